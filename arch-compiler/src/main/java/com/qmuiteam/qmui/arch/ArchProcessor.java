@@ -18,18 +18,21 @@ package com.qmuiteam.qmui.arch;
 
 import com.google.auto.service.AutoService;
 import com.qmuiteam.qmui.arch.annotation.MaybeFirstIn;
+import com.squareup.javapoet.AnnotationSpec;
+import com.squareup.javapoet.ArrayTypeName;
 import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
 import com.squareup.javapoet.FieldSpec;
 import com.squareup.javapoet.JavaFile;
 import com.squareup.javapoet.MethodSpec;
 import com.squareup.javapoet.ParameterizedTypeName;
-import com.squareup.javapoet.TypeName;
 import com.squareup.javapoet.TypeSpec;
 import com.squareup.javapoet.WildcardTypeName;
 
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
@@ -60,25 +63,25 @@ import static javax.lang.model.element.ElementKind.INTERFACE;
 public class ArchProcessor extends AbstractProcessor {
     private static final String QMUI_FRAGMENT_TYPE = "com.qmuiteam.qmui.arch.QMUIFragment";
     private static final String FinderSuffix = "_FragmentFinder";
+    private static final String OPTION_FINDER_INDEX = "qmuiArchFinderIndex";
+    private static final int FIRST_ID = 100;
 
     private static ClassName FirstFragmentFinderName = ClassName.get(
             "com.qmuiteam.qmui.arch.first", "FirstFragmentFinder");
     private static final ClassName QMUIFragmentName = ClassName.get(
             "com.qmuiteam.qmui.arch", "QMUIFragment");
-    private static ClassName MapName = ClassName.get("java.util", "Map");
-    private static ClassName HashMapName = ClassName.get("java.util", "HashMap");
-    private static ClassName IntegerName = ClassName.get("java.lang", "Integer");
+    private static ClassName FirstFragmentFactoryName = ClassName.get(
+            "com.qmuiteam.qmui.arch.first", "FirstFragmentFactory");
+    private static ClassName FirstFragmentFindersName = ClassName.get(
+            "com.qmuiteam.qmui.arch.first", "FirstFragmentFinders");
     private static ClassName OriginClassName = ClassName.get("java.lang", "Class");
     private static ParameterizedTypeName FragmQMUIFragmentClassName = ParameterizedTypeName.get(
             OriginClassName, WildcardTypeName.subtypeOf(QMUIFragmentName));
-    private static TypeName ClassToIdMapName = ParameterizedTypeName.get(MapName,
-            FragmQMUIFragmentClassName, IntegerName);
-    private static TypeName IdToClassName = ParameterizedTypeName.get(MapName,
-            IntegerName, FragmQMUIFragmentClassName);
 
     private Filer mFiler;
     private Elements mElementUtils;
     private Messager mMessager;
+    private boolean mIndexGenerated = false;
 
 
     @Override
@@ -125,69 +128,170 @@ public class ArchProcessor extends AbstractProcessor {
                 }
             }
         }
+        LinkedHashMap<TypeElement, ClassName> finders = new LinkedHashMap<>();
         for (Map.Entry<TypeElement, List<TypeElement>> entry : containerTypeElementMap.entrySet()) {
             TypeElement container = entry.getKey();
             List<TypeElement> fragments = entry.getValue();
-            processCodeGeneration(container, fragments);
+            finders.put(container, processCodeGeneration(container, fragments));
+        }
+
+        String indexClassName = processingEnv.getOptions().get(OPTION_FINDER_INDEX);
+        if (indexClassName != null && !finders.isEmpty()) {
+            if (mIndexGenerated) {
+                mMessager.printMessage(Diagnostic.Kind.WARNING,
+                        "MaybeFirstIn found in more than one round, finder index only contains the first round");
+            } else {
+                mIndexGenerated = true;
+                LinkedHashSet<TypeElement> originatingElements = new LinkedHashSet<>();
+                for (Map.Entry<TypeElement, List<TypeElement>> entry : containerTypeElementMap.entrySet()) {
+                    originatingElements.add(entry.getKey());
+                    originatingElements.addAll(entry.getValue());
+                }
+                processIndexGeneration(indexClassName, finders, originatingElements);
+            }
         }
 
         return true;
     }
 
-    private void processCodeGeneration(TypeElement container, List<TypeElement> fragments) {
+    private ClassName processCodeGeneration(TypeElement container, List<TypeElement> fragments) {
+        String packageName = container.getQualifiedName().toString().replace("." + container.getSimpleName().toString(), "");
+        ClassName finderName = ClassName.get(packageName, container.getSimpleName() + FinderSuffix);
         TypeSpec.Builder finderClassBuilder = TypeSpec
-                .classBuilder(container.getSimpleName() + FinderSuffix)
+                .classBuilder(finderName)
                 .addModifiers(Modifier.PUBLIC)
-                .addSuperinterface(FirstFragmentFinderName);
-
-        FieldSpec classToIdMap = FieldSpec.builder(ClassToIdMapName, "mClassToIdMap")
-                .addModifiers(Modifier.PRIVATE)
-                .build();
-
-        FieldSpec idToClassMap = FieldSpec.builder(IdToClassName, "mIdToClassMap")
-                .addModifiers(Modifier.PRIVATE)
-                .build();
+                .addSuperinterface(FirstFragmentFinderName)
+                .addSuperinterface(FirstFragmentFactoryName)
+                .addOriginatingElement(container);
+        // originating elements are required by gradle incremental annotation processing
+        for (TypeElement fragment : fragments) {
+            finderClassBuilder.addOriginatingElement(fragment);
+        }
 
-        MethodSpec.Builder constructorBuilder = MethodSpec.constructorBuilder()
-                .addModifiers(Modifier.PUBLIC)
-                .addStatement("mClassToIdMap = new $T<>()", HashMapName)
-                .addStatement("mIdToClassMap = new $T<>()", HashMapName);
-
-        int currentId = 100;
-        for (TypeElement element : fragments) {
-            ClassName elementName = ClassName.get(element);
-            constructorBuilder.addStatement("mClassToIdMap.put($T.class, $L)",
-                    elementName,
-                    currentId);
-            constructorBuilder.addStatement("mIdToClassMap.put($L, $T.class)",
-                    currentId,
-                    elementName);
-            currentId++;
+        // ids are dense, so that the id can be used as index of array directly
+        CodeBlock.Builder fragmentsInitializer = CodeBlock.builder().add("{");
+        for (int i = 0; i < fragments.size(); i++) {
+            if (i > 0) {
+                fragmentsInitializer.add(", ");
+            }
+            fragmentsInitializer.add("$T.class", ClassName.get(fragments.get(i)));
         }
+        fragmentsInitializer.add("}");
+        FieldSpec fragmentArray = FieldSpec.builder(ArrayTypeName.of(FragmQMUIFragmentClassName), "FRAGMENTS")
+                .addModifiers(Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+                .addAnnotation(AnnotationSpec.builder(SuppressWarnings.class)
+                        .addMember("value", "$S", "unchecked").build())
+                .initializer("new $T[]$L", OriginClassName, fragmentsInitializer.build())
+                .build();
 
         ExecutableElement iGetFragmentClassById = getOverrideMethod(
                 FirstFragmentFinderName, "getFragmentClassById");
+        String idParam = iGetFragmentClassById.getParameters().get(0).getSimpleName().toString();
         MethodSpec.Builder getFragmentClassById = MethodSpec.overriding(iGetFragmentClassById)
-                .addStatement("return mIdToClassMap.get($L)",
-                        iGetFragmentClassById.getParameters().get(0).getSimpleName().toString());
+                .addStatement("int index = $L - $L", idParam, FIRST_ID)
+                .beginControlFlow("if (index < 0 || index >= FRAGMENTS.length)")
+                .addStatement("return null")
+                .endControlFlow()
+                .addStatement("return FRAGMENTS[index]");
+
         ExecutableElement iGetIdByFragmentClass = getOverrideMethod(
                 FirstFragmentFinderName, "getIdByFragmentClass");
+        String clsParam = iGetIdByFragmentClass.getParameters().get(0).getSimpleName().toString();
         MethodSpec.Builder getIdByFragmentClass = MethodSpec.overriding(iGetIdByFragmentClass)
-                .addStatement("return mClassToIdMap.get($L)",
-                        iGetIdByFragmentClass.getParameters().get(0).getSimpleName().toString());
+                .beginControlFlow("if ($L == null)", clsParam)
+                .addStatement("return NO_ID")
+                .endControlFlow()
+                .beginControlFlow("switch ($L.getName())", clsParam);
+        for (int i = 0; i < fragments.size(); i++) {
+            TypeElement element = fragments.get(i);
+            getIdByFragmentClass.addCode("case $S:\n", mElementUtils.getBinaryName(element).toString())
+                    .addStatement("$>return $T.class == $L ? $L : NO_ID$<",
+                            ClassName.get(element), clsParam, FIRST_ID + i);
+        }
+        getIdByFragmentClass.addCode("default:\n")
+                .addStatement("$>return NO_ID$<")
+                .endControlFlow();
+
+        ExecutableElement iNewFragment = getOverrideMethod(FirstFragmentFactoryName, "newFragment");
+        MethodSpec.Builder newFragment = MethodSpec.overriding(iNewFragment)
+                .beginControlFlow("switch ($L)", iNewFragment.getParameters().get(0).getSimpleName().toString());
+        for (int i = 0; i < fragments.size(); i++) {
+            TypeElement element = fragments.get(i);
+            if (canInstantiateDirectly(element)) {
+                newFragment.addCode("case $L:\n", FIRST_ID + i)
+                        .addStatement("$>return new $T()$<", ClassName.get(element));
+            }
+        }
+        newFragment.addCode("default:\n")
+                .addStatement("$>return null$<")
+                .endControlFlow();
 
         try {
             finderClassBuilder
-                    .addField(classToIdMap)
-                    .addField(idToClassMap)
-                    .addMethod(constructorBuilder.build())
+                    .addField(fragmentArray)
                     .addMethod(getFragmentClassById.build())
-                    .addMethod(getIdByFragmentClass.build());
-            JavaFile.builder(container.getQualifiedName().toString().replace("." + container.getSimpleName().toString(), ""), finderClassBuilder.build())
+                    .addMethod(getIdByFragmentClass.build())
+                    .addMethod(newFragment.build());
+            JavaFile.builder(packageName, finderClassBuilder.build())
                     .build().writeTo(mFiler);
         } catch (IOException e) {
             error(container, "Unable to write finders for container %s: %s", container.getSimpleName(), e.getMessage());
         }
+        return finderName;
+    }
+
+    /**
+     * generate an index class to register all finders, so that FirstFragmentFinders does not need
+     * to load finder classes by class loader.
+     */
+    private void processIndexGeneration(String indexClassName, Map<TypeElement, ClassName> finders,
+                                        Set<TypeElement> originatingElements) {
+        int lastDot = indexClassName.lastIndexOf('.');
+        String packageName = lastDot > 0 ? indexClassName.substring(0, lastDot) : "";
+        String simpleName = indexClassName.substring(lastDot + 1);
+        MethodSpec.Builder register = MethodSpec.methodBuilder("register")
+                .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+                .addStatement("$T finders = $T.getInstance()", FirstFragmentFindersName, FirstFragmentFindersName);
+        for (Map.Entry<TypeElement, ClassName> entry : finders.entrySet()) {
+            register.addStatement("finders.register($T.class, new $T())",
+                    ClassName.get(entry.getKey()), entry.getValue());
+        }
+        TypeSpec.Builder index = TypeSpec.classBuilder(simpleName)
+                .addModifiers(Modifier.PUBLIC, Modifier.FINAL)
+                .addMethod(MethodSpec.constructorBuilder().addModifiers(Modifier.PRIVATE).build())
+                .addMethod(register.build());
+        for (TypeElement element : originatingElements) {
+            index.addOriginatingElement(element);
+        }
+        try {
+            JavaFile.builder(packageName, index.build()).build().writeTo(mFiler);
+        } catch (IOException e) {
+            mMessager.printMessage(Diagnostic.Kind.ERROR, "Unable to write finder index " + indexClassName + ": " + e.getMessage());
+        }
+    }
+
+    private boolean canInstantiateDirectly(TypeElement element) {
+        if (element.getModifiers().contains(Modifier.ABSTRACT) || !element.getModifiers().contains(Modifier.PUBLIC)) {
+            return false;
+        }
+        if (element.getNestingKind().isNested() && !element.getModifiers().contains(Modifier.STATIC)) {
+            return false;
+        }
+        for (Element enclosed : element.getEnclosedElements()) {
+            if (enclosed.getKind() == ElementKind.CONSTRUCTOR
+                    && ((ExecutableElement) enclosed).getParameters().isEmpty()
+                    && enclosed.getModifiers().contains(Modifier.PUBLIC)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public Set<String> getSupportedOptions() {
+        Set<String> options = new LinkedHashSet<>();
+        options.add(OPTION_FINDER_INDEX);
+        return options;
     }
 
     @Override
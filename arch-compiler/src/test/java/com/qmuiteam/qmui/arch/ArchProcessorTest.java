@@ -0,0 +1,189 @@
+package com.qmuiteam.qmui.arch;
+
+import com.google.testing.compile.Compilation;
+import com.google.testing.compile.JavaFileObjects;
+import com.qmuiteam.qmui.arch.annotation.MaybeFirstIn;
+import com.qmuiteam.qmui.test.processing.RecordingProcessor;
+
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.annotation.Retention;
+import java.net.MalformedURLException;
+import java.lang.annotation.RetentionPolicy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import javax.lang.model.element.Element;
+import javax.tools.JavaFileObject;
+
+import static com.google.testing.compile.CompilationSubject.assertThat;
+import static com.google.testing.compile.Compiler.javac;
+import static org.junit.Assert.*;
+
+/**
+ * check that {@link ArchProcessor} follows the rules of gradle aggregating annotation processors.
+ */
+public class ArchProcessorTest {
+    private static final String INCREMENTAL_PROCESSORS = "META-INF/gradle/incremental.annotation.processors";
+
+    private static final JavaFileObject QMUI_FRAGMENT = JavaFileObjects.forSourceLines(
+            "com.qmuiteam.qmui.arch.QMUIFragment",
+            "package com.qmuiteam.qmui.arch;",
+            "public class QMUIFragment {}");
+    private static final JavaFileObject QMUI_FRAGMENT_ACTIVITY = JavaFileObjects.forSourceLines(
+            "com.qmuiteam.qmui.arch.QMUIFragmentActivity",
+            "package com.qmuiteam.qmui.arch;",
+            "public class QMUIFragmentActivity {}");
+    // the android classes used by the real sources of com.qmuiteam.qmui.arch.first
+    private static final JavaFileObject NULLABLE = JavaFileObjects.forSourceLines(
+            "android.support.annotation.Nullable",
+            "package android.support.annotation;",
+            "public @interface Nullable {}");
+    private static final JavaFileObject MAIN_THREAD = JavaFileObjects.forSourceLines(
+            "android.support.annotation.MainThread",
+            "package android.support.annotation;",
+            "public @interface MainThread {}");
+    private static final JavaFileObject LOG = JavaFileObjects.forSourceLines(
+            "android.util.Log",
+            "package android.util;",
+            "public class Log {",
+            "    public static int d(String tag, String msg) { return 0; }",
+            "}");
+    private static final JavaFileObject ACTIVITY = JavaFileObjects.forSourceLines(
+            "test.TestActivity",
+            "package test;",
+            "public class TestActivity extends com.qmuiteam.qmui.arch.QMUIFragmentActivity {}");
+    private static final JavaFileObject HOME_FRAGMENT = JavaFileObjects.forSourceLines(
+            "test.HomeFragment",
+            "package test;",
+            "import com.qmuiteam.qmui.arch.annotation.MaybeFirstIn;",
+            "@MaybeFirstIn(container = TestActivity.class)",
+            "public class HomeFragment extends com.qmuiteam.qmui.arch.QMUIFragment {}");
+    private static final JavaFileObject ABSTRACT_FRAGMENT = JavaFileObjects.forSourceLines(
+            "test.AbstractFragment",
+            "package test;",
+            "import com.qmuiteam.qmui.arch.annotation.MaybeFirstIn;",
+            "@MaybeFirstIn(container = TestActivity.class)",
+            "public abstract class AbstractFragment extends com.qmuiteam.qmui.arch.QMUIFragment {}");
+
+    private static JavaFileObject[] sources(JavaFileObject... fragments) {
+        List<JavaFileObject> list = new ArrayList<>();
+        list.add(QMUI_FRAGMENT);
+        list.add(QMUI_FRAGMENT_ACTIVITY);
+        list.add(NULLABLE);
+        list.add(MAIN_THREAD);
+        list.add(LOG);
+        list.add(archSource("first/FirstFragmentFinder.java"));
+        list.add(archSource("first/FirstFragmentFactory.java"));
+        list.add(archSource("first/FirstFragmentFinders.java"));
+        list.add(ACTIVITY);
+        for (JavaFileObject fragment : fragments) {
+            list.add(fragment);
+        }
+        return list.toArray(new JavaFileObject[list.size()]);
+    }
+
+    private static JavaFileObject archSource(String path) {
+        String sourceDir = System.getProperty("qmui.arch.sourceDir", "../arch/src/main/java");
+        File file = new File(sourceDir, "com/qmuiteam/qmui/arch/" + path);
+        assertTrue(file + " does not exist", file.isFile());
+        try {
+            return JavaFileObjects.forResource(file.toURI().toURL());
+        } catch (MalformedURLException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    @Test
+    public void declaredAsAggregating() throws Exception {
+        InputStream input = getClass().getClassLoader().getResourceAsStream(INCREMENTAL_PROCESSORS);
+        assertNotNull(input);
+        List<String> lines = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, "UTF-8"));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.trim().length() > 0) {
+                    lines.add(line.trim());
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        assertTrue(lines.contains(ArchProcessor.class.getName() + ",aggregating"));
+    }
+
+    @Test
+    public void onlyReadsRetainedAnnotations() throws Exception {
+        // aggregating processors can only read CLASS or RUNTIME retention annotations
+        ArchProcessor processor = new ArchProcessor();
+        assertFalse(processor.getSupportedAnnotationTypes().contains("*"));
+        assertEquals(RetentionPolicy.CLASS, MaybeFirstIn.class.getAnnotation(Retention.class).value());
+    }
+
+    @Test
+    public void generatesFinderWithOriginatingElements() throws Exception {
+        RecordingProcessor processor = new RecordingProcessor(new ArchProcessor());
+        Compilation compilation = javac()
+                .withProcessors(processor)
+                .compile(sources(HOME_FRAGMENT, ABSTRACT_FRAGMENT));
+        assertThat(compilation).succeeded();
+        assertThat(compilation).generatedSourceFile("test.TestActivity_FragmentFinder")
+                .contentsAsUtf8String().contains("return new HomeFragment()");
+
+        Map<String, List<Element>> generated = processor.getOriginatingElements();
+        assertEquals(1, generated.size());
+        assertOriginatedFrom(generated.get("test.TestActivity_FragmentFinder"),
+                "test.TestActivity", "test.HomeFragment", "test.AbstractFragment");
+    }
+
+    @Test
+    public void generatesIndexWithOriginatingElements() throws Exception {
+        RecordingProcessor processor = new RecordingProcessor(new ArchProcessor());
+        Compilation compilation = javac()
+                .withProcessors(processor)
+                .withOptions("-AqmuiArchFinderIndex=test.FinderIndex")
+                .compile(sources(HOME_FRAGMENT));
+        assertThat(compilation).succeeded();
+        assertThat(compilation).generatedSourceFile("test.FinderIndex")
+                .contentsAsUtf8String().contains("finders.register(TestActivity.class, new TestActivity_FragmentFinder())");
+
+        Map<String, List<Element>> generated = processor.getOriginatingElements();
+        assertEquals(2, generated.size());
+        assertOriginatedFrom(generated.get("test.TestActivity_FragmentFinder"),
+                "test.TestActivity", "test.HomeFragment");
+        assertOriginatedFrom(generated.get("test.FinderIndex"),
+                "test.TestActivity", "test.HomeFragment");
+    }
+
+    @Test
+    public void rejectsNonFragment() throws Exception {
+        JavaFileObject notFragment = JavaFileObjects.forSourceLines(
+                "test.NotFragment",
+                "package test;",
+                "import com.qmuiteam.qmui.arch.annotation.MaybeFirstIn;",
+                "@MaybeFirstIn(container = TestActivity.class)",
+                "public class NotFragment {}");
+        Compilation compilation = javac()
+                .withProcessors(new ArchProcessor())
+                .compile(sources(notFragment));
+        assertThat(compilation).hadErrorContaining("Must annotated on subclasses of QMUIFragment");
+    }
+
+    private static void assertOriginatedFrom(List<Element> elements, String... types) {
+        assertNotNull(elements);
+        List<String> names = new ArrayList<>();
+        for (Element element : elements) {
+            names.add(element.toString());
+        }
+        assertEquals(types.length, names.size());
+        for (String type : types) {
+            assertTrue(type + " is not an originating element of " + names, names.contains(type));
+        }
+    }
+}
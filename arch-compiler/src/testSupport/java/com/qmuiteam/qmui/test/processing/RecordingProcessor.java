@@ -0,0 +1,95 @@
+package com.qmuiteam.qmui.test.processing;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.Processor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+
+/**
+ * delegate to the processor under test and record the originating elements of every generated
+ * source file, which gradle relies on for incremental annotation processing.
+ * It is shared by the tests of arch-compiler and compiler.
+ */
+public class RecordingProcessor extends AbstractProcessor {
+    private final Processor mDelegate;
+    private final Map<String, List<Element>> mOriginatingElements = new LinkedHashMap<>();
+
+    public RecordingProcessor(Processor delegate) {
+        mDelegate = delegate;
+    }
+
+    /**
+     * @return generated source file name to its originating elements
+     */
+    public Map<String, List<Element>> getOriginatingElements() {
+        return mOriginatingElements;
+    }
+
+    @Override
+    public synchronized void init(final ProcessingEnvironment processingEnv) {
+        super.init(processingEnv);
+        final Filer filer = (Filer) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{Filer.class}, new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                        if ("createSourceFile".equals(method.getName())) {
+                            mOriginatingElements.put(args[0].toString(), Arrays.asList((Element[]) args[1]));
+                        }
+                        return invokeDelegate(processingEnv.getFiler(), method, args);
+                    }
+                });
+        ProcessingEnvironment env = (ProcessingEnvironment) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{ProcessingEnvironment.class}, new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                        if ("getFiler".equals(method.getName())) {
+                            return filer;
+                        }
+                        return invokeDelegate(processingEnv, method, args);
+                    }
+                });
+        mDelegate.init(env);
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        return mDelegate.process(annotations, roundEnv);
+    }
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        return mDelegate.getSupportedAnnotationTypes();
+    }
+
+    @Override
+    public Set<String> getSupportedOptions() {
+        return mDelegate.getSupportedOptions();
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return mDelegate.getSupportedSourceVersion();
+    }
+
+    private static Object invokeDelegate(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
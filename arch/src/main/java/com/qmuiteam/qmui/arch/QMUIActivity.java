@@ -80,7 +80,8 @@ public class QMUIActivity extends InnerBaseActivity {
                     decorView.addView(mSwipeBackgroundView, 0, new FrameLayout.LayoutParams(
                             ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT));
                 }
-                mSwipeBackgroundView.bind(prevActivity, QMUIActivity.this, restoreSubWindowWhenDragBack());
+                mSwipeBackgroundView.bind(prevActivity, QMUIActivity.this, restoreSubWindowWhenDragBack(),
+                        snapshotPrevActivityWhenDragBack());
                 SwipeBackLayout.offsetInSwipeBack(mSwipeBackgroundView, edgeFlag,
                         Math.abs(backViewInitOffset()));
             }
@@ -215,4 +216,15 @@ public class QMUIActivity extends InnerBaseActivity {
     protected boolean restoreSubWindowWhenDragBack() {
         return true;
     }
+
+    /**
+     * draw the previous activity into a bitmap once when drag back starts, and only draw the
+     * bitmap during the drag. It is useful when the previous activity is heavy to draw,
+     * but the content changed during the drag will not be shown.
+     *
+     * @return true to use snapshot for the previous activity
+     */
+    protected boolean snapshotPrevActivityWhenDragBack() {
+        return false;
+    }
 }
@@ -0,0 +1,241 @@
+/*
+ * Tencent is pleased to support the open source community by making QMUI_Android available.
+ *
+ * Copyright (C) 2017-2018 THL A29 Limited, a Tencent company. All rights reserved.
+ *
+ * Licensed under the MIT License (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/MIT
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.qmuiteam.qmui.arch;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.support.annotation.MainThread;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.view.Choreographer;
+
+import java.util.ArrayList;
+
+/**
+ * Run deferred render work (e.g. the actions of {@link QMUIFragment#runAfterAnimation(Runnable)})
+ * in frame slices: in every frame, tasks are performed by priority until the frame budget is used up,
+ * the rest are left to the next frame. So a lot of work queued during the transition does not
+ * produce a long frame when the transition ends.
+ * <p>
+ * The scheduler is shared by all fragments, all methods must be called in main thread.
+ */
+public class QMUIDeferredRenderScheduler {
+
+    public static final int PRIORITY_LOW = -1;
+    public static final int PRIORITY_NORMAL = 0;
+    public static final int PRIORITY_HIGH = 1;
+
+    private static final long DEFAULT_FRAME_BUDGET_NANOS = 8 * 1000 * 1000;
+
+    private static QMUIDeferredRenderScheduler sInstance;
+
+    @MainThread
+    public static QMUIDeferredRenderScheduler getInstance() {
+        if (sInstance == null) {
+            sInstance = new QMUIDeferredRenderScheduler();
+        }
+        return sInstance;
+    }
+
+    public interface Monitor {
+        /**
+         * @param owner    the owner of the task
+         * @param waitTime the time in millis from scheduled to performed
+         * @param costTime the time in millis the task takes
+         */
+        void onTaskPerformed(Object owner, long waitTime, long costTime);
+
+        /**
+         * all scheduled tasks are performed
+         *
+         * @param taskCount the count of performed tasks since the queue was not empty
+         * @param frameCount the count of frames used
+         */
+        void onQueueDrained(int taskCount, int frameCount);
+    }
+
+    private final ArrayList<Task> mTasks = new ArrayList<>();
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private long mFrameBudgetNanos = DEFAULT_FRAME_BUDGET_NANOS;
+    private boolean mIsFrameScheduled = false;
+    private int mPerformedTaskCount = 0;
+    private int mUsedFrameCount = 0;
+    private Monitor mMonitor;
+    private Object mFrameCallback;
+
+    private final Runnable mFrameRunnable = new Runnable() {
+        @Override
+        public void run() {
+            doFrame(System.nanoTime());
+        }
+    };
+
+    private QMUIDeferredRenderScheduler() {
+    }
+
+    /**
+     * set the max time the tasks can take in one frame, at least one task is performed in every frame.
+     */
+    public void setFrameBudget(long frameBudgetMillis) {
+        mFrameBudgetNanos = frameBudgetMillis * 1000 * 1000;
+    }
+
+    public void setMonitor(@Nullable Monitor monitor) {
+        mMonitor = monitor;
+    }
+
+    public void schedule(@NonNull Object owner, @NonNull Runnable runnable) {
+        schedule(owner, runnable, PRIORITY_NORMAL);
+    }
+
+    /**
+     * @param owner    used to cancel the tasks by {@link #cancel(Object)}
+     * @param runnable the task
+     * @param priority tasks with higher priority are performed first, tasks with the same
+     *                 priority are performed in order
+     */
+    public void schedule(@NonNull Object owner, @NonNull Runnable runnable, int priority) {
+        Task task = new Task(owner, runnable, priority, SystemClock.uptimeMillis());
+        // keep the list sorted, the insertion is rare compared to the frame
+        int index = mTasks.size();
+        while (index > 0 && mTasks.get(index - 1).priority < priority) {
+            index--;
+        }
+        mTasks.add(index, task);
+        scheduleFrame();
+    }
+
+    /**
+     * remove all tasks of the owner that are not performed yet
+     */
+    public void cancel(@NonNull Object owner) {
+        for (int i = mTasks.size() - 1; i >= 0; i--) {
+            if (mTasks.get(i).owner == owner) {
+                mTasks.remove(i);
+            }
+        }
+    }
+
+    /**
+     * whether the owner has tasks that are not performed yet
+     */
+    public boolean hasPending(@NonNull Object owner) {
+        for (int i = 0; i < mTasks.size(); i++) {
+            if (mTasks.get(i).owner == owner) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the lowest priority of the tasks of the owner that are not performed yet, or
+     * {@code defaultPriority} if there is none. A task scheduled with it is performed after
+     * all of them.
+     */
+    public int getLowestPendingPriority(@NonNull Object owner, int defaultPriority) {
+        // the list is sorted by priority, the last one of the owner has the lowest priority
+        for (int i = mTasks.size() - 1; i >= 0; i--) {
+            Task task = mTasks.get(i);
+            if (task.owner == owner) {
+                return task.priority;
+            }
+        }
+        return defaultPriority;
+    }
+
+    public int getPendingCount() {
+        return mTasks.size();
+    }
+
+    private void scheduleFrame() {
+        if (mIsFrameScheduled) {
+            return;
+        }
+        mIsFrameScheduled = true;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            postFrameCallback();
+        } else {
+            mHandler.post(mFrameRunnable);
+        }
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private void postFrameCallback() {
+        if (mFrameCallback == null) {
+            mFrameCallback = new Choreographer.FrameCallback() {
+                @Override
+                public void doFrame(long frameTimeNanos) {
+                    QMUIDeferredRenderScheduler.this.doFrame(frameTimeNanos);
+                }
+            };
+        }
+        Choreographer.getInstance().postFrameCallback((Choreographer.FrameCallback) mFrameCallback);
+    }
+
+    private void doFrame(long frameStartNanos) {
+        mIsFrameScheduled = false;
+        if (mTasks.isEmpty()) {
+            return;
+        }
+        mUsedFrameCount++;
+        // the frame start time may be a bit earlier than now if the frame is busy, just use it
+        // so that we only use the rest of the frame.
+        long deadline = Math.min(frameStartNanos, System.nanoTime()) + mFrameBudgetNanos;
+        boolean first = true;
+        while (!mTasks.isEmpty()) {
+            if (!first && System.nanoTime() >= deadline) {
+                break;
+            }
+            first = false;
+            Task task = mTasks.remove(0);
+            long start = SystemClock.uptimeMillis();
+            task.runnable.run();
+            mPerformedTaskCount++;
+            if (mMonitor != null) {
+                long end = SystemClock.uptimeMillis();
+                mMonitor.onTaskPerformed(task.owner, start - task.scheduleTime, end - start);
+            }
+        }
+        if (mTasks.isEmpty()) {
+            if (mMonitor != null) {
+                mMonitor.onQueueDrained(mPerformedTaskCount, mUsedFrameCount);
+            }
+            mPerformedTaskCount = 0;
+            mUsedFrameCount = 0;
+        } else {
+            scheduleFrame();
+        }
+    }
+
+    private static class Task {
+        final Object owner;
+        final Runnable runnable;
+        final int priority;
+        final long scheduleTime;
+
+        Task(Object owner, Runnable runnable, int priority, long scheduleTime) {
+            this.owner = owner;
+            this.runnable = runnable;
+            this.priority = priority;
+            this.scheduleTime = scheduleTime;
+        }
+    }
+}
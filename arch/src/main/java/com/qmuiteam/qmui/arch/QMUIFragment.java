@@ -19,10 +19,18 @@ package com.qmuiteam.qmui.arch;
 import android.annotation.SuppressLint;
 import android.app.Activity;
 import android.arch.core.util.Function;
+import android.arch.lifecycle.Lifecycle;
+import android.arch.lifecycle.LifecycleObserver;
 import android.arch.lifecycle.LifecycleOwner;
+import android.arch.lifecycle.OnLifecycleEvent;
+import android.content.Context;
 import android.content.Intent;
 import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
 import android.os.Bundle;
+import android.os.SystemClock;
+import android.support.annotation.LayoutRes;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.v4.app.Fragment;
@@ -35,6 +43,7 @@ import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.view.ViewParent;
+import android.view.ViewTreeObserver;
 import android.view.animation.AlphaAnimation;
 import android.view.animation.Animation;
 import android.view.animation.AnimationUtils;
@@ -93,22 +102,26 @@ public abstract class QMUIFragment extends Fragment implements QMUIFragmentLazyL
     private SwipeBackLayout.ListenerRemover mListenerRemover;
     private SwipeBackgroundView mSwipeBackgroundView;
     private boolean mIsInSwipeBack = false;
+    private Bitmap mSwipeBackSnapshot;
+    private boolean mIsViewFromPool = false;
 
     private int mEnterAnimationStatus = ANIMATION_ENTER_STATUS_NOT_START;
     private boolean mCalled = true;
-    private ArrayList<Runnable> mDelayRenderRunnableList;
-    private ArrayList<Runnable> mPostResumeRunnableList;
+    // tasks waiting for the end of enter animation or resume, they are handed over to
+    // QMUIDeferredRenderScheduler when the condition is satisfied
+    private ArrayList<DeferredTask> mDelayRenderRunnableList;
+    private ArrayList<DeferredTask> mPostResumeRunnableList;
+    // the actions of runAfterResumed handed over to QMUIDeferredRenderScheduler, they are scheduled
+    // with a separate owner, so that they are not dropped with the view-bound work
+    private final Object mResumeTaskOwner = new Object();
+    private ArrayList<DeferredTask> mScheduledResumeTasks;
     private Runnable mCheckPostResumeRunnable = new Runnable() {
         @Override
         public void run() {
             if (isResumed() && mPostResumeRunnableList != null) {
-                ArrayList<Runnable> list = mPostResumeRunnableList;
-                if (!list.isEmpty()) {
-                    for (Runnable runnable : list) {
-                        runnable.run();
-                    }
-                }
+                ArrayList<DeferredTask> list = mPostResumeRunnableList;
                 mPostResumeRunnableList = null;
+                scheduleDeferredTasks(list);
             }
         }
     };
@@ -129,6 +142,19 @@ public abstract class QMUIFragment extends Fragment implements QMUIFragmentLazyL
     @Override
     public void onDestroyView() {
         super.onDestroyView();
+        // deferred render work is bound to the view
+        QMUIDeferredRenderScheduler scheduler = QMUIDeferredRenderScheduler.getInstance();
+        scheduler.cancel(this);
+        if (mScheduledResumeTasks != null) {
+            // the actions waiting for resumed are not bound to the view, wait for the next resume
+            scheduler.cancel(mResumeTaskOwner);
+            ArrayList<DeferredTask> list = mScheduledResumeTasks;
+            mScheduledResumeTasks = null;
+            if (mPostResumeRunnableList != null) {
+                list.addAll(mPostResumeRunnableList);
+            }
+            mPostResumeRunnableList = list;
+        }
         mBaseView = null;
         mEnterAnimationStatus = ANIMATION_ENTER_STATUS_NOT_START;
     }
@@ -258,6 +284,10 @@ public abstract class QMUIFragment extends Fragment implements QMUIFragmentLazyL
     @Override
     public void onCreate(@Nullable Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        Activity activity = getActivity();
+        if (getParentFragment() == null && activity instanceof QMUIFragmentActivity) {
+            ((QMUIFragmentActivity) activity).onStackFragmentCreated(this);
+        }
         FragmentManager fragmentManager = getFragmentManager();
         if (fragmentManager != null) {
             int backStackEntryCount = fragmentManager.getBackStackEntryCount();
@@ -393,18 +423,15 @@ public abstract class QMUIFragment extends Fragment implements QMUIFragmentLazyL
                                 return false;
                             }
                             try {
-                                cmdField.setAccessible(true);
                                 int cmd = (int) cmdField.get(op);
                                 if (cmd == 1) {
                                     Field popEnterAnimField = Utils.getOpPopExitAnimField(op);
                                     if (popEnterAnimField != null) {
-                                        popEnterAnimField.setAccessible(true);
                                         popEnterAnimField.set(op, 0);
                                     }
                                 } else if (cmd == 3) {
                                     Field popExitAnimField = Utils.getOpPopEnterAnimField(op);
                                     if (popExitAnimField != null) {
-                                        popExitAnimField.setAccessible(true);
                                         popExitAnimField.set(op, 0);
                                     }
                                 }
@@ -467,23 +494,29 @@ public abstract class QMUIFragment extends Fragment implements QMUIFragmentLazyL
                             return false;
                         }
                         try {
-                            cmdField.setAccessible(true);
                             int cmd = (int) cmdField.get(op);
                             if (cmd == 3) {
                                 Field popEnterAnimField = Utils.getOpPopEnterAnimField(op);
                                 if (popEnterAnimField != null) {
-                                    popEnterAnimField.setAccessible(true);
                                     popEnterAnimField.set(op, 0);
                                 }
 
 
                                 Field fragmentField = Utils.getOpFragmentField(op);
                                 if (fragmentField != null) {
-                                    fragmentField.setAccessible(true);
                                     Object fragmentObject = fragmentField.get(op);
                                     if (fragmentObject instanceof QMUIFragment) {
                                         mModifiedFragment = (QMUIFragment) fragmentObject;
                                         ViewGroup container = getBaseFragmentActivity().getFragmentContainer();
+                                        Bitmap snapshot = mModifiedFragment.mSwipeBackSnapshot;
+                                        if (snapshot != null && !snapshot.isRecycled()) {
+                                            // draw the snapshot, the real view will be restored after pop back
+                                            View snapshotView = new SwipeBackSnapshotView(getContext(), snapshot);
+                                            addViewInSwipeBack(container, snapshotView, 0);
+                                            SwipeBackLayout.offsetInSwipeBack(snapshotView, edgeFlag,
+                                                    Math.abs(backViewInitOffset()));
+                                            return false;
+                                        }
                                         mModifiedFragment.isCreateForSwipeBack = true;
                                         View baseView = mModifiedFragment.onCreateView(LayoutInflater.from(getContext()), container, null);
                                         mModifiedFragment.isCreateForSwipeBack = false;
@@ -525,7 +558,8 @@ public abstract class QMUIFragment extends Fragment implements QMUIFragmentLazyL
                         decorView.addView(mSwipeBackgroundView, 0, new FrameLayout.LayoutParams(
                                 ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT));
                     }
-                    mSwipeBackgroundView.bind(prevActivity, currentActivity, restoreSubWindowWhenDragBack());
+                    mSwipeBackgroundView.bind(prevActivity, currentActivity, restoreSubWindowWhenDragBack(),
+                            snapshotPrevActivityWhenDragBack());
                     SwipeBackLayout.offsetInSwipeBack(mSwipeBackgroundView, edgeFlag,
                             Math.abs(backViewInitOffset()));
                 }
@@ -565,7 +599,7 @@ public abstract class QMUIFragment extends Fragment implements QMUIFragmentLazyL
         }
 
 
-        private void handleChildFragmentListWhenSwipeBackStart(Fragment parentFragment, View baseView) throws IllegalAccessException {
+        private void handleChildFragmentListWhenSwipeBackStart(Fragment parentFragment, View baseView) {
             // handle issue #235
             if (baseView instanceof ViewGroup) {
                 ViewGroup childMainContainer = (ViewGroup) baseView;
@@ -576,14 +610,7 @@ public abstract class QMUIFragment extends Fragment implements QMUIFragmentLazyL
                 for (Fragment fragment : childFragmentList) {
                     if (fragment instanceof QMUIFragment) {
                         QMUIFragment qmuiFragment = (QMUIFragment) fragment;
-                        Field containerIdField = null;
-                        try {
-                            containerIdField = Fragment.class.getDeclaredField("mContainerId");
-                        } catch (NoSuchFieldException e) {
-                            continue;
-                        }
-                        containerIdField.setAccessible(true);
-                        int containerId = containerIdField.getInt(qmuiFragment);
+                        int containerId = Utils.getFragmentContainerId(qmuiFragment);
                         if (containerId != 0) {
                             if (childContainerId != containerId) {
                                 childContainerId = containerId;
@@ -616,24 +643,15 @@ public abstract class QMUIFragment extends Fragment implements QMUIFragmentLazyL
                         FragmentManager childFragmentManager = mModifiedFragment.getChildFragmentManager();
                         List<Fragment> childFragmentList = childFragmentManager.getFragments();
                         int childContainerId = 0;
-                        try {
-                            for (Fragment fragment : childFragmentList) {
-                                if (fragment instanceof QMUIFragment) {
-                                    QMUIFragment qmuiFragment = (QMUIFragment) fragment;
-                                    Field containerIdField = Fragment.class.getDeclaredField("mContainerId");
-                                    containerIdField.setAccessible(true);
-                                    int containerId = containerIdField.getInt(qmuiFragment);
-                                    if (containerId != 0 && childContainerId != containerId) {
-                                        childContainerId = containerId;
-                                        ViewGroup childContainer = childMainContainer.findViewById(containerId);
-                                        removeViewInSwipeBack(childContainer, null);
-                                    }
+                        for (Fragment fragment : childFragmentList) {
+                            if (fragment instanceof QMUIFragment) {
+                                int containerId = Utils.getFragmentContainerId(fragment);
+                                if (containerId != 0 && childContainerId != containerId) {
+                                    childContainerId = containerId;
+                                    ViewGroup childContainer = childMainContainer.findViewById(containerId);
+                                    removeViewInSwipeBack(childContainer, null);
                                 }
                             }
-                        } catch (IllegalAccessException e) {
-                            e.printStackTrace();
-                        } catch (NoSuchFieldException e) {
-                            e.printStackTrace();
                         }
 
                     }
@@ -652,8 +670,29 @@ public abstract class QMUIFragment extends Fragment implements QMUIFragmentLazyL
         return mIsInSwipeBack;
     }
 
+    /**
+     * capture the current content into a bitmap before it is covered by a new fragment,
+     * see {@link #useSnapshotForSwipeBackPreview()}
+     */
+    void captureSwipeBackSnapshot() {
+        releaseSwipeBackSnapshot();
+        if (!useSnapshotForSwipeBackPreview() || mCacheSwipeBackLayout == null || !isAttachedToActivity()) {
+            return;
+        }
+        mSwipeBackSnapshot = SwipeBackSnapshotPool.capture(mCacheSwipeBackLayout);
+    }
+
+    void releaseSwipeBackSnapshot() {
+        if (mSwipeBackSnapshot != null) {
+            SwipeBackSnapshotPool.release(mSwipeBackSnapshot);
+            mSwipeBackSnapshot = null;
+        }
+    }
+
     @Override
     public View onCreateView(@NonNull LayoutInflater inflater, ViewGroup container, Bundle savedInstanceState) {
+        long createViewStartTime = SystemClock.uptimeMillis();
+        mIsViewFromPool = false;
         SwipeBackLayout swipeBackLayout;
         if (mCacheSwipeBackLayout == null) {
             swipeBackLayout = newSwipeBackLayout();
@@ -680,6 +719,9 @@ public abstract class QMUIFragment extends Fragment implements QMUIFragmentLazyL
         if (!isCreateForSwipeBack) {
             mBaseView = swipeBackLayout.getContentView();
             swipeBackLayout.setTag(R.id.qmui_arch_swipe_layout_in_back, null);
+            // the real view is back, the snapshot is useless now
+            releaseSwipeBackSnapshot();
+            observeFirstFrame(swipeBackLayout, createViewStartTime);
         }
 
         ViewCompat.setTranslationZ(swipeBackLayout, mBackStackIndex);
@@ -694,6 +736,57 @@ public abstract class QMUIFragment extends Fragment implements QMUIFragmentLazyL
         return swipeBackLayout;
     }
 
+    private void observeFirstFrame(final View view, final long createViewStartTime) {
+        final boolean fromPool = mIsViewFromPool;
+        view.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+            @Override
+            public boolean onPreDraw() {
+                view.getViewTreeObserver().removeOnPreDrawListener(this);
+                onViewFirstFrame(SystemClock.uptimeMillis() - createViewStartTime, fromPool);
+                return true;
+            }
+        });
+    }
+
+    /**
+     * inflate the layout, use the view prepared by {@link QMUIFragmentViewPool} if exists.
+     * it is designed to be used in {@link #onCreateView()}:
+     * <pre>
+     * protected View onCreateView() {
+     *     View root = inflatePreparedLayout(R.layout.fragment_detail);
+     *     // bind views...
+     *     return root;
+     * }
+     * </pre>
+     * and the layout can be prepared before {@link #startFragment(QMUIFragment)}, e.g.
+     * <pre>
+     * QMUIFragmentViewPool.getInstance().prepare(getContext(), R.layout.fragment_detail, 1, true);
+     * </pre>
+     *
+     * @param layoutId the layout of root view
+     * @return the root view
+     */
+    protected View inflatePreparedLayout(@LayoutRes int layoutId) {
+        View view = QMUIFragmentViewPool.getInstance().take(getActivity(), layoutId);
+        if (view != null) {
+            mIsViewFromPool = true;
+            return view;
+        }
+        return LayoutInflater.from(getActivity()).inflate(layoutId, null);
+    }
+
+    /**
+     * called when the view created by {@link #onCreateView()} is going to draw the first frame,
+     * it can be used to measure how long it takes for a transition to its first frame.
+     * by default it is reported to {@link QMUIFragmentViewPool.Monitor}.
+     *
+     * @param duration  the time from {@link #onCreateView(LayoutInflater, ViewGroup, Bundle)} to the first frame
+     * @param fromPool  whether the root view is taken from {@link QMUIFragmentViewPool}
+     */
+    protected void onViewFirstFrame(long duration, boolean fromPool) {
+        QMUIFragmentViewPool.getInstance().dispatchFirstFrame(this, duration, fromPool);
+    }
+
     protected void onBackPressed() {
         popBackStack();
     }
@@ -907,16 +1000,33 @@ public abstract class QMUIFragment extends Fragment implements QMUIFragmentLazyL
      *                 or after the enter animation is finished.
      */
     public void runAfterAnimation(Runnable runnable, boolean onlyEnd) {
+        runAfterAnimation(runnable, onlyEnd, QMUIDeferredRenderScheduler.PRIORITY_NORMAL);
+    }
+
+    /**
+     * same as {@link #runAfterAnimation(Runnable, boolean)}, the actions queued during the
+     * animation are performed by {@link QMUIDeferredRenderScheduler} in frame slices after the
+     * animation is finished, the higher priority the earlier.
+     *
+     * @param priority see {@link QMUIDeferredRenderScheduler#PRIORITY_NORMAL}
+     */
+    public void runAfterAnimation(Runnable runnable, boolean onlyEnd, int priority) {
         Utils.assertInMainThread();
         boolean ok = onlyEnd ? mEnterAnimationStatus == ANIMATION_ENTER_STATUS_END :
                 mEnterAnimationStatus != ANIMATION_ENTER_STATUS_STARTED;
         if (ok) {
-            runnable.run();
+            QMUIDeferredRenderScheduler scheduler = QMUIDeferredRenderScheduler.getInstance();
+            if (scheduler.hasPending(this)) {
+                // keep the order with the actions queued before that are not performed yet
+                scheduler.schedule(this, runnable, priority);
+            } else {
+                runnable.run();
+            }
         } else {
             if (mDelayRenderRunnableList == null) {
                 mDelayRenderRunnableList = new ArrayList<>(4);
             }
-            mDelayRenderRunnableList.add(runnable);
+            mDelayRenderRunnableList.add(new DeferredTask(runnable, priority, false));
         }
     }
 
@@ -929,14 +1039,59 @@ public abstract class QMUIFragment extends Fragment implements QMUIFragmentLazyL
      */
     public void runAfterResumed(Runnable runnable) {
         Utils.assertInMainThread();
-        if (isResumed()) {
-            runnable.run();
-        } else {
-            if (mPostResumeRunnableList == null) {
-                mPostResumeRunnableList = new ArrayList<>(4);
+        if (isResumed() && mPostResumeRunnableList == null) {
+            QMUIDeferredRenderScheduler scheduler = QMUIDeferredRenderScheduler.getInstance();
+            int priority = Math.min(
+                    scheduler.getLowestPendingPriority(this, Integer.MAX_VALUE),
+                    scheduler.getLowestPendingPriority(mResumeTaskOwner, Integer.MAX_VALUE));
+            if (priority != Integer.MAX_VALUE) {
+                // keep the order with the actions queued before that are not performed yet:
+                // with the lowest priority of them, the action is appended after all of them
+                scheduleDeferredTask(new DeferredTask(runnable, priority, true));
+            } else {
+                runnable.run();
             }
-            mPostResumeRunnableList.add(runnable);
+        } else {
+            addPostResumeTask(new DeferredTask(runnable, QMUIDeferredRenderScheduler.PRIORITY_NORMAL, true));
+        }
+    }
+
+    private void addPostResumeTask(DeferredTask task) {
+        if (mPostResumeRunnableList == null) {
+            mPostResumeRunnableList = new ArrayList<>(4);
+        }
+        mPostResumeRunnableList.add(task);
+    }
+
+    private void scheduleDeferredTasks(ArrayList<DeferredTask> list) {
+        for (DeferredTask task : list) {
+            scheduleDeferredTask(task);
+        }
+    }
+
+    private void scheduleDeferredTask(final DeferredTask task) {
+        if (!task.needResumed) {
+            QMUIDeferredRenderScheduler.getInstance().schedule(this, task.runnable, task.priority);
+            return;
         }
+        if (mScheduledResumeTasks == null) {
+            mScheduledResumeTasks = new ArrayList<>(4);
+        }
+        mScheduledResumeTasks.add(task);
+        QMUIDeferredRenderScheduler.getInstance().schedule(mResumeTaskOwner, new Runnable() {
+            @Override
+            public void run() {
+                if (mScheduledResumeTasks != null) {
+                    mScheduledResumeTasks.remove(task);
+                }
+                // the fragment may be paused during the frames waited in scheduler
+                if (isResumed()) {
+                    task.runnable.run();
+                } else {
+                    addPostResumeTask(task);
+                }
+            }
+        }, task.priority);
     }
 
     protected void onEnterAnimationStart(@Nullable Animation animation) {
@@ -950,19 +1105,19 @@ public abstract class QMUIFragment extends Fragment implements QMUIFragmentLazyL
         mCalled = true;
         mEnterAnimationStatus = ANIMATION_ENTER_STATUS_END;
         if (mDelayRenderRunnableList != null) {
-            ArrayList<Runnable> list = mDelayRenderRunnableList;
+            ArrayList<DeferredTask> list = mDelayRenderRunnableList;
             mDelayRenderRunnableList = null;
-            if (!list.isEmpty()) {
-                for(Runnable runnable: list){
-                    runnable.run();
-                }
-            }
+            scheduleDeferredTasks(list);
         }
     }
 
     @Override
     public void onDestroy() {
         super.onDestroy();
+        Activity activity = getActivity();
+        if (activity instanceof QMUIFragmentActivity) {
+            ((QMUIFragmentActivity) activity).onStackFragmentDestroyed(this);
+        }
         if (mListenerRemover != null) {
             mListenerRemover.remove();
         }
@@ -970,13 +1125,18 @@ public abstract class QMUIFragment extends Fragment implements QMUIFragmentLazyL
             mSwipeBackgroundView.unBind();
             mSwipeBackgroundView = null;
         }
+        releaseSwipeBackSnapshot();
 
         // help gc, sometimes user may hold fragment instance in somewhere,
         // then these objects can not be released in time.
         mCacheSwipeBackLayout = null;
         mCacheRootView = null;
         mDelayRenderRunnableList = null;
+        mPostResumeRunnableList = null;
         mCheckPostResumeRunnable = null;
+        mScheduledResumeTasks = null;
+        QMUIDeferredRenderScheduler.getInstance().cancel(this);
+        QMUIDeferredRenderScheduler.getInstance().cancel(mResumeTaskOwner);
     }
 
     @Override
@@ -1027,6 +1187,59 @@ public abstract class QMUIFragment extends Fragment implements QMUIFragmentLazyL
         return mLazyViewLifecycleOwner;
     }
 
+    /**
+     * suspend the component when the fragment is invisible to user, and resume it when visible again.
+     * the component is unregistered automatically in onDestroyView, so it must be called
+     * after {@link #onViewCreated(View, Bundle)}.
+     *
+     * @param suspendable the component
+     */
+    public void addSuspendable(@NonNull QMUISuspendable suspendable) {
+        Lifecycle lifecycle = getLazyViewLifecycleOwner().getLifecycle();
+        SuspendableObserver observer = new SuspendableObserver(suspendable);
+        lifecycle.addObserver(observer);
+        if (!lifecycle.getCurrentState().isAtLeast(Lifecycle.State.STARTED)) {
+            observer.suspend();
+        }
+    }
+
+    /**
+     * @return the count of views kept by this fragment for reuse, 0 if nothing is kept
+     */
+    public int getRetainedViewCount() {
+        return mCacheSwipeBackLayout == null ? 0 : countViews(mCacheSwipeBackLayout);
+    }
+
+    private static int countViews(View view) {
+        int count = 1;
+        if (view instanceof ViewGroup) {
+            ViewGroup viewGroup = (ViewGroup) view;
+            for (int i = 0; i < viewGroup.getChildCount(); i++) {
+                count += countViews(viewGroup.getChildAt(i));
+            }
+        }
+        return count;
+    }
+
+    /**
+     * release the cached view of a detached fragment, the view will be created again by
+     * {@link #onCreateView()} when the fragment is attached again.
+     *
+     * @return true if the cached view is released
+     */
+    boolean releaseCachedView() {
+        if (getView() != null || mCacheSwipeBackLayout == null) {
+            return false;
+        }
+        if (mListenerRemover != null) {
+            mListenerRemover.remove();
+            mListenerRemover = null;
+        }
+        mCacheSwipeBackLayout = null;
+        mCacheRootView = null;
+        return true;
+    }
+
     /**
      * Immersive processing
      *
@@ -1056,6 +1269,31 @@ public abstract class QMUIFragment extends Fragment implements QMUIFragmentLazyL
         return true;
     }
 
+    /**
+     * works when drag back to previous activity, same as {@link QMUIActivity#snapshotPrevActivityWhenDragBack()}
+     *
+     * @return true to use snapshot for the previous activity
+     */
+    protected boolean snapshotPrevActivityWhenDragBack() {
+        return false;
+    }
+
+    /**
+     * If true, the content of this fragment will be captured into a bitmap when a new fragment
+     * is started above it, and swipe back from the new fragment will draw the bitmap instead of
+     * calling {@link #onCreateView()} again to inflate a live view. The real view is restored
+     * only after the pop back is committed.
+     * <p>
+     * It avoids the hitch caused by inflating heavy pages when the finger touches down, but the
+     * preview is static: content changed after the fragment is covered will not be shown during
+     * the drag. Only the fragment directly under the top one keeps its snapshot.
+     *
+     * @return true to use snapshot for swipe back preview
+     */
+    protected boolean useSnapshotForSwipeBackPreview() {
+        return false;
+    }
+
     /**
      * Fragment Transition Controller
      */
@@ -1064,6 +1302,69 @@ public abstract class QMUIFragment extends Fragment implements QMUIFragmentLazyL
     }
 
 
+    private static class SuspendableObserver implements LifecycleObserver {
+        private final QMUISuspendable mSuspendable;
+        private boolean mIsSuspended = false;
+
+        SuspendableObserver(QMUISuspendable suspendable) {
+            mSuspendable = suspendable;
+        }
+
+        void suspend() {
+            if (!mIsSuspended) {
+                mIsSuspended = true;
+                mSuspendable.onSuspend();
+            }
+        }
+
+        @OnLifecycleEvent(Lifecycle.Event.ON_START)
+        void onStart() {
+            if (mIsSuspended) {
+                mIsSuspended = false;
+                mSuspendable.onResumeFromSuspend();
+            }
+        }
+
+        @OnLifecycleEvent(Lifecycle.Event.ON_STOP)
+        void onStop() {
+            suspend();
+        }
+
+        @OnLifecycleEvent(Lifecycle.Event.ON_DESTROY)
+        void onDestroy(LifecycleOwner owner) {
+            owner.getLifecycle().removeObserver(this);
+        }
+    }
+
+    private static class DeferredTask {
+        final Runnable runnable;
+        final int priority;
+        final boolean needResumed;
+
+        DeferredTask(Runnable runnable, int priority, boolean needResumed) {
+            this.runnable = runnable;
+            this.priority = priority;
+            this.needResumed = needResumed;
+        }
+    }
+
+    private static class SwipeBackSnapshotView extends View {
+        private final Bitmap mSnapshot;
+
+        SwipeBackSnapshotView(Context context, Bitmap snapshot) {
+            super(context);
+            mSnapshot = snapshot;
+        }
+
+        @Override
+        protected void onDraw(Canvas canvas) {
+            super.onDraw(canvas);
+            if (!mSnapshot.isRecycled()) {
+                canvas.drawBitmap(mSnapshot, 0, 0, null);
+            }
+        }
+    }
+
     public static final class TransitionConfig {
         public final int enter;
         public final int exit;
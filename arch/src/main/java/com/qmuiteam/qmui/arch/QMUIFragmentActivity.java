@@ -21,21 +21,25 @@ import android.content.Intent;
 import android.os.Bundle;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
-import android.support.v4.app.Fragment;
 import android.support.v4.app.FragmentManager;
 import android.support.v4.app.FragmentTransaction;
+import android.support.v4.util.Pair;
 import android.util.Log;
 import android.view.KeyEvent;
 import android.widget.FrameLayout;
 
 import com.qmuiteam.qmui.QMUILog;
 import com.qmuiteam.qmui.arch.annotation.DefaultFirstFragment;
+import com.qmuiteam.qmui.arch.first.FirstFragmentFactory;
 import com.qmuiteam.qmui.arch.first.FirstFragmentFinder;
 import com.qmuiteam.qmui.arch.first.FirstFragmentFinders;
 import com.qmuiteam.qmui.util.QMUIStatusBarHelper;
 import com.qmuiteam.qmui.widget.QMUIWindowInsetLayout;
 
+import java.lang.ref.WeakReference;
 import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * the container activity for {@link QMUIFragment}.
@@ -45,8 +49,21 @@ public abstract class QMUIFragmentActivity extends InnerBaseActivity {
     public static final String QMUI_INTENT_DST_FRAGMENT = "qmui_intent_dst_fragment";
     public static final String QMUI_INTENT_FRAGMENT_ARG = "qmui_intent_fragment_arg";
     private static final String TAG = "QMUIFragmentActivity";
+    private static boolean sBackStackFieldsVerified = false;
     private RootView mFragmentContainer;
     private boolean mIsFirstFragmentAddedByAnnotation = false;
+    private WeakReference<QMUIFragment> mSwipeBackSnapshotFragmentRef;
+    // the fragments in back stack, in order of creation
+    private final ArrayList<QMUIFragment> mStackFragments = new ArrayList<>();
+    private int mRetainViewFragmentCount = -1;
+    private final FragmentManager.OnBackStackChangedListener mBackStackChangedListener =
+            new FragmentManager.OnBackStackChangedListener() {
+                @Override
+                public void onBackStackChanged() {
+                    // the covered fragment has already destroyed its view now, so it can be released
+                    trimStackFragmentViews();
+                }
+            };
 
     @SuppressWarnings("SameReturnValue")
     protected abstract int getContextViewId();
@@ -54,10 +71,15 @@ public abstract class QMUIFragmentActivity extends InnerBaseActivity {
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        if (!sBackStackFieldsVerified) {
+            sBackStackFieldsVerified = true;
+            Utils.verifyBackStackFields();
+        }
         QMUIStatusBarHelper.translucent(this);
         mFragmentContainer = new RootView(this);
         mFragmentContainer.setId(getContextViewId());
         setContentView(mFragmentContainer);
+        getSupportFragmentManager().addOnBackStackChangedListener(mBackStackChangedListener);
         mIsFirstFragmentAddedByAnnotation = false;
         if (savedInstanceState == null) {
             long start = System.currentTimeMillis();
@@ -114,7 +136,17 @@ public abstract class QMUIFragmentActivity extends InnerBaseActivity {
 
     protected QMUIFragment instantiationFirstFragment(Class<? extends QMUIFragment> cls, Intent intent) {
         try {
-            QMUIFragment fragment = cls.newInstance();
+            QMUIFragment fragment = null;
+            FirstFragmentFinder finder = FirstFragmentFinders.getInstance().get(getClass());
+            if (finder instanceof FirstFragmentFactory) {
+                int id = finder.getIdByFragmentClass(cls);
+                if (id != FirstFragmentFinder.NO_ID) {
+                    fragment = ((FirstFragmentFactory) finder).newFragment(id);
+                }
+            }
+            if (fragment == null) {
+                fragment = cls.newInstance();
+            }
             Bundle args = intent.getBundleExtra(QMUI_INTENT_FRAGMENT_ARG);
             if (args != null) {
                 fragment.setArguments(args);
@@ -189,35 +221,37 @@ public abstract class QMUIFragmentActivity extends InnerBaseActivity {
         Utils.findAndModifyOpInBackStackRecord(fragmentManager, -1, new Utils.OpHandler() {
             @Override
             public boolean handle(Object op) {
-                Field cmdField = null;
+                Field cmdField = Utils.getOpCmdField(op);
+                if (cmdField == null) {
+                    return false;
+                }
                 try {
-                    cmdField = Utils.getOpCmdField(op);
-                    cmdField.setAccessible(true);
                     int cmd = (int) cmdField.get(op);
                     if (cmd == 1) {
                         if (useNewTransitionConfigWhenPop) {
                             Field popEnterAnimField = Utils.getOpPopEnterAnimField(op);
-                            popEnterAnimField.setAccessible(true);
-                            popEnterAnimField.set(op, transitionConfig.popenter);
+                            if (popEnterAnimField != null) {
+                                popEnterAnimField.set(op, transitionConfig.popenter);
+                            }
 
                             Field popExitAnimField = Utils.getOpPopExitAnimField(op);
-                            popExitAnimField.setAccessible(true);
-                            popExitAnimField.set(op, transitionConfig.popout);
+                            if (popExitAnimField != null) {
+                                popExitAnimField.set(op, transitionConfig.popout);
+                            }
                         }
 
                         Field oldFragmentField = Utils.getOpFragmentField(op);
-                        oldFragmentField.setAccessible(true);
+                        Field backStackNestField = Utils.getFragmentBackStackNestingField();
+                        if (oldFragmentField == null || backStackNestField == null) {
+                            return false;
+                        }
                         Object fragmentObj = oldFragmentField.get(op);
                         oldFragmentField.set(op, fragment);
-                        Field backStackNestField = Fragment.class.getDeclaredField("mBackStackNesting");
-                        backStackNestField.setAccessible(true);
                         int oldFragmentBackStackNest = (int) backStackNestField.get(fragmentObj);
                         backStackNestField.set(fragment, oldFragmentBackStackNest);
                         backStackNestField.set(fragmentObj, --oldFragmentBackStackNest);
                         return true;
                     }
-                } catch (NoSuchFieldException e) {
-                    e.printStackTrace();
                 } catch (IllegalAccessException e) {
                     e.printStackTrace();
                 }
@@ -239,6 +273,7 @@ public abstract class QMUIFragmentActivity extends InnerBaseActivity {
 
     public int startFragment(QMUIFragment fragment) {
         Log.i(TAG, "startFragment");
+        captureSwipeBackSnapshotForCurrentFragment();
         QMUIFragment.TransitionConfig transitionConfig = fragment.onFetchTransitionConfig();
         String tagName = fragment.getClass().getSimpleName();
         return getSupportFragmentManager()
@@ -249,6 +284,138 @@ public abstract class QMUIFragmentActivity extends InnerBaseActivity {
                 .commit();
     }
 
+    private void captureSwipeBackSnapshotForCurrentFragment() {
+        // only the fragment directly under the top one keeps snapshot, bound the memory
+        QMUIFragment lastSnapshotFragment = mSwipeBackSnapshotFragmentRef == null ?
+                null : mSwipeBackSnapshotFragmentRef.get();
+        if (lastSnapshotFragment != null) {
+            lastSnapshotFragment.releaseSwipeBackSnapshot();
+        }
+        mSwipeBackSnapshotFragmentRef = null;
+        QMUIFragment currentFragment = getCurrentFragment();
+        if (currentFragment != null) {
+            currentFragment.captureSwipeBackSnapshot();
+            mSwipeBackSnapshotFragmentRef = new WeakReference<>(currentFragment);
+        }
+    }
+
+    /**
+     * By default, every {@link QMUIFragment} in back stack keeps its view hierarchy after it is
+     * covered, so that pop back is fast, but the memory grows with the depth of back stack.
+     * Set the count to only keep views for the top fragments, the deeper fragments only keep the
+     * saved view state, and their views are created again when they are popped back.
+     * The views are trimmed every time the back stack changes. The top fragment is shown, so it
+     * always keeps its view, even if the count is 0.
+     *
+     * @param count the count of top fragments to keep views, negative value to keep all (default)
+     */
+    public void setRetainViewFragmentCount(int count) {
+        mRetainViewFragmentCount = count;
+        trimStackFragmentViews();
+    }
+
+    void onStackFragmentCreated(QMUIFragment fragment) {
+        if (!mStackFragments.contains(fragment)) {
+            mStackFragments.add(fragment);
+        }
+    }
+
+    void onStackFragmentDestroyed(QMUIFragment fragment) {
+        mStackFragments.remove(fragment);
+    }
+
+    private void trimStackFragmentViews() {
+        if (mRetainViewFragmentCount >= 0) {
+            releaseStackFragmentViews(mRetainViewFragmentCount);
+        }
+    }
+
+    private void releaseStackFragmentViews(int retainCount) {
+        // the fragment with a view is never released, see QMUIFragment#releaseCachedView
+        List<QMUIFragment> fragments = getStackFragmentsInBackStackOrder();
+        for (int i = fragments.size() - 1 - retainCount; i >= 0; i--) {
+            fragments.get(i).releaseCachedView();
+        }
+    }
+
+    /**
+     * @return the fragments in back stack, from bottom to top. The order of creation is not
+     * the order of back stack, e.g. after {@link #startFragmentAndDestroyCurrent(QMUIFragment)}
+     */
+    private List<QMUIFragment> getStackFragmentsInBackStackOrder() {
+        final ArrayList<QMUIFragment> fragments = new ArrayList<>(mStackFragments.size());
+        Utils.OpHandler handler = new Utils.OpHandler() {
+            @Override
+            public boolean handle(Object op) {
+                Field cmdField = Utils.getOpCmdField(op);
+                Field fragmentField = Utils.getOpFragmentField(op);
+                if (cmdField == null || fragmentField == null) {
+                    return false;
+                }
+                try {
+                    int cmd = (int) cmdField.get(op);
+                    // OP_ADD or OP_REPLACE
+                    if (cmd == 1 || cmd == 2) {
+                        Object fragment = fragmentField.get(op);
+                        if (fragment instanceof QMUIFragment && mStackFragments.contains(fragment)
+                                && !fragments.contains(fragment)) {
+                            fragments.add((QMUIFragment) fragment);
+                        }
+                    }
+                } catch (IllegalAccessException e) {
+                    e.printStackTrace();
+                }
+                return false;
+            }
+
+            @Override
+            public boolean needReNameTag() {
+                return false;
+            }
+
+            @Override
+            public String newTagName() {
+                return null;
+            }
+        };
+        FragmentManager fragmentManager = getSupportFragmentManager();
+        for (int i = 0; i < fragmentManager.getBackStackEntryCount(); i++) {
+            Utils.findAndModifyOpInBackStackRecord(fragmentManager, i, handler);
+        }
+        // the fragments can not be found in back stack records are treated as the deepest ones
+        int index = 0;
+        for (QMUIFragment fragment : mStackFragments) {
+            if (!fragments.contains(fragment)) {
+                fragments.add(index++, fragment);
+            }
+        }
+        return fragments;
+    }
+
+    /**
+     * @return the class name and the count of views kept by every fragment in back stack,
+     * from top to bottom
+     */
+    public List<Pair<String, Integer>> getRetainedViewCounts() {
+        List<QMUIFragment> fragments = getStackFragmentsInBackStackOrder();
+        List<Pair<String, Integer>> result = new ArrayList<>(fragments.size());
+        for (int i = fragments.size() - 1; i >= 0; i--) {
+            QMUIFragment fragment = fragments.get(i);
+            result.add(new Pair<>(fragment.getClass().getSimpleName(), fragment.getRetainedViewCount()));
+        }
+        return result;
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        if (level >= TRIM_MEMORY_RUNNING_LOW) {
+            // only the top fragment keeps its view
+            releaseStackFragmentViews(1);
+            QMUIFragmentViewPool.getInstance().clear();
+        }
+    }
+
     /**
      * Exit the current Fragment。
      */
@@ -21,6 +21,7 @@ import android.support.annotation.NonNull;
 import android.support.v4.app.Fragment;
 import android.support.v4.app.FragmentManager;
 import android.support.v4.app.FragmentTransaction;
+import android.util.SparseArray;
 import android.view.View;
 import android.view.ViewGroup;
 
@@ -32,11 +33,40 @@ public abstract class QMUIFragmentPagerAdapter extends QMUIPagerAdapter {
     private final FragmentManager mFragmentManager;
     private FragmentTransaction mCurrentTransaction;
     private Fragment mCurrentPrimaryItem = null;
+    private int mCurrentPrimaryPosition = -1;
+    private int mViewRetainDistance = -1;
+    private final SparseArray<Fragment> mDetachedFragments = new SparseArray<>();
 
     public QMUIFragmentPagerAdapter(@NonNull FragmentManager fm) {
         mFragmentManager = fm;
     }
 
+    /**
+     * {@link QMUIFragment} keeps its view after detached so that it can be attached again quickly,
+     * but all views are kept alive if there are many pages. Set the distance to release views of
+     * detached pages that are more than distance positions away from the current page.
+     *
+     * @param distance the distance from current page, negative value to keep all views (default)
+     */
+    public void setViewRetainDistance(int distance) {
+        mViewRetainDistance = distance;
+        releaseFarAwayViews();
+    }
+
+    private void releaseFarAwayViews() {
+        if (mViewRetainDistance < 0 || mCurrentPrimaryPosition < 0) {
+            return;
+        }
+        for (int i = 0; i < mDetachedFragments.size(); i++) {
+            int position = mDetachedFragments.keyAt(i);
+            Fragment fragment = mDetachedFragments.valueAt(i);
+            if (Math.abs(position - mCurrentPrimaryPosition) > mViewRetainDistance
+                    && fragment instanceof QMUIFragment) {
+                ((QMUIFragment) fragment).releaseCachedView();
+            }
+        }
+    }
+
     public abstract QMUIFragment createFragment(int position);
 
     @Override
@@ -66,6 +96,7 @@ public abstract class QMUIFragmentPagerAdapter extends QMUIPagerAdapter {
         if (mCurrentTransaction == null) {
             mCurrentTransaction = mFragmentManager.beginTransaction();
         }
+        mDetachedFragments.remove(position);
         Fragment fragment = mFragmentManager.findFragmentByTag(name);
         if (fragment != null) {
             mCurrentTransaction.attach(fragment);
@@ -89,6 +120,7 @@ public abstract class QMUIFragmentPagerAdapter extends QMUIPagerAdapter {
             mCurrentTransaction = mFragmentManager.beginTransaction();
         }
         mCurrentTransaction.detach((Fragment) object);
+        mDetachedFragments.put(position, (Fragment) object);
     }
 
     @Override
@@ -104,6 +136,8 @@ public abstract class QMUIFragmentPagerAdapter extends QMUIPagerAdapter {
         if (mCurrentTransaction != null) {
             mCurrentTransaction.commitNowAllowingStateLoss();
             mCurrentTransaction = null;
+            // views are destroyed after the transaction is committed
+            releaseFarAwayViews();
         }
     }
 
@@ -119,6 +153,7 @@ public abstract class QMUIFragmentPagerAdapter extends QMUIPagerAdapter {
             fragment.setUserVisibleHint(true);
             mCurrentPrimaryItem = fragment;
         }
+        mCurrentPrimaryPosition = position;
     }
 
     private String makeFragmentName(int viewId, long id) {
@@ -0,0 +1,196 @@
+/*
+ * Tencent is pleased to support the open source community by making QMUI_Android available.
+ *
+ * Copyright (C) 2017-2018 THL A29 Limited, a Tencent company. All rights reserved.
+ *
+ * Licensed under the MIT License (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/MIT
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.qmuiteam.qmui.arch;
+
+import android.content.Context;
+import android.content.MutableContextWrapper;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.support.annotation.LayoutRes;
+import android.support.annotation.MainThread;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v4.view.AsyncLayoutInflater;
+import android.util.SparseArray;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+
+import java.util.ArrayList;
+
+/**
+ * warm pool for the root views of {@link QMUIFragment}, used to inflate the layout of the next
+ * fragment ahead, so that the inflation does not compete with the enter animation.
+ * <p>
+ * views are inflated with {@link MutableContextWrapper}: bound to application context when
+ * waiting in pool, and bound to the activity when taken out by {@link QMUIFragment#inflatePreparedLayout(int)}.
+ * the views are never put back, a fragment always gets a clean view.
+ * <p>
+ * all methods must be called in main thread.
+ */
+public class QMUIFragmentViewPool {
+
+    private static final int DEFAULT_MAX_SIZE_PER_LAYOUT = 2;
+
+    private static QMUIFragmentViewPool sInstance;
+
+    private final SparseArray<ArrayList<View>> mPool = new SparseArray<>();
+    private int mMaxSizePerLayout = DEFAULT_MAX_SIZE_PER_LAYOUT;
+    private int mHitCount = 0;
+    private int mMissCount = 0;
+    private Monitor mMonitor;
+
+    @MainThread
+    public static QMUIFragmentViewPool getInstance() {
+        if (sInstance == null) {
+            sInstance = new QMUIFragmentViewPool();
+        }
+        return sInstance;
+    }
+
+    public interface Monitor {
+        /**
+         * @param fragment the fragment whose view is going to draw the first frame
+         * @param duration the time in millis from onCreateView to the first frame
+         * @param fromPool whether the root view is taken from the pool
+         */
+        void onFragmentFirstFrame(QMUIFragment fragment, long duration, boolean fromPool);
+    }
+
+    private QMUIFragmentViewPool() {
+    }
+
+    /**
+     * set the monitor to collect the first frame duration of fragments, e.g. to compare the
+     * duration with and without the prepared views.
+     */
+    public void setMonitor(@Nullable Monitor monitor) {
+        mMonitor = monitor;
+    }
+
+    void dispatchFirstFrame(QMUIFragment fragment, long duration, boolean fromPool) {
+        if (mMonitor != null) {
+            mMonitor.onFragmentFirstFrame(fragment, duration, fromPool);
+        }
+    }
+
+    public void setMaxSizePerLayout(int maxSizePerLayout) {
+        mMaxSizePerLayout = maxSizePerLayout;
+        for (int i = 0; i < mPool.size(); i++) {
+            ArrayList<View> views = mPool.valueAt(i);
+            while (views.size() > maxSizePerLayout) {
+                views.remove(views.size() - 1);
+            }
+        }
+    }
+
+    /**
+     * prepare views for the layout ahead.
+     *
+     * @param async if true, inflate in background thread by {@link AsyncLayoutInflater}, it will
+     *              fall back to main thread if the layout can not be inflated in background thread.
+     *              note that the LayoutInflater.Factory of activity (e.g. AppCompat) is not used.
+     *              otherwise, inflate one view each time when main thread is idle.
+     */
+    public void prepare(@NonNull final Context context, @LayoutRes final int layoutId, final int count, boolean async) {
+        final int needCount = Math.min(count, mMaxSizePerLayout) - getPreparedCount(layoutId);
+        if (needCount <= 0) {
+            return;
+        }
+        if (async) {
+            for (int i = 0; i < needCount; i++) {
+                // every view need its own MutableContextWrapper
+                AsyncLayoutInflater inflater = new AsyncLayoutInflater(new MutableContextWrapper(context));
+                inflater.inflate(layoutId, null, new AsyncLayoutInflater.OnInflateFinishedListener() {
+                    @Override
+                    public void onInflateFinished(@NonNull View view, int resid, @Nullable ViewGroup parent) {
+                        put(view, layoutId);
+                    }
+                });
+            }
+            return;
+        }
+        Looper.myQueue().addIdleHandler(new MessageQueue.IdleHandler() {
+            private int mRemain = needCount;
+
+            @Override
+            public boolean queueIdle() {
+                if (getPreparedCount(layoutId) >= count) {
+                    return false;
+                }
+                LayoutInflater inflater = LayoutInflater.from(context)
+                        .cloneInContext(new MutableContextWrapper(context));
+                put(inflater.inflate(layoutId, null, false), layoutId);
+                mRemain--;
+                return mRemain > 0;
+            }
+        });
+    }
+
+    /**
+     * @return the prepared view, or null if nothing is prepared for the layout
+     */
+    @Nullable
+    public View take(@NonNull Context context, @LayoutRes int layoutId) {
+        ArrayList<View> views = mPool.get(layoutId);
+        if (views == null || views.isEmpty()) {
+            mMissCount++;
+            return null;
+        }
+        mHitCount++;
+        View view = views.remove(views.size() - 1);
+        Context viewContext = view.getContext();
+        if (viewContext instanceof MutableContextWrapper) {
+            ((MutableContextWrapper) viewContext).setBaseContext(context);
+        }
+        return view;
+    }
+
+    public int getPreparedCount(@LayoutRes int layoutId) {
+        ArrayList<View> views = mPool.get(layoutId);
+        return views == null ? 0 : views.size();
+    }
+
+    public int getHitCount() {
+        return mHitCount;
+    }
+
+    public int getMissCount() {
+        return mMissCount;
+    }
+
+    public void clear() {
+        mPool.clear();
+    }
+
+    private void put(View view, int layoutId) {
+        ArrayList<View> views = mPool.get(layoutId);
+        if (views == null) {
+            views = new ArrayList<>();
+            mPool.put(layoutId, views);
+        }
+        if (views.size() >= mMaxSizePerLayout) {
+            return;
+        }
+        Context viewContext = view.getContext();
+        if (viewContext instanceof MutableContextWrapper) {
+            MutableContextWrapper wrapper = (MutableContextWrapper) viewContext;
+            wrapper.setBaseContext(wrapper.getBaseContext().getApplicationContext());
+        }
+        views.add(view);
+    }
+}
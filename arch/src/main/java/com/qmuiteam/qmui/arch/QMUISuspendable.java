@@ -0,0 +1,32 @@
+/*
+ * Tencent is pleased to support the open source community by making QMUI_Android available.
+ *
+ * Copyright (C) 2017-2018 THL A29 Limited, a Tencent company. All rights reserved.
+ *
+ * Licensed under the MIT License (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/MIT
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.qmuiteam.qmui.arch;
+
+/**
+ * components (animations, timers, image loaders, etc.) that can be suspended when the fragment
+ * is invisible to user, e.g. the off-screen pages of {@link QMUIFragmentPagerAdapter}.
+ * <p>
+ * register it by {@link QMUIFragment#addSuspendable(QMUISuspendable)}, it follows the lifecycle of
+ * {@link QMUIFragment#getLazyViewLifecycleOwner()}: suspended when the lifecycle falls below STARTED,
+ * resumed when it is at least STARTED again, and unregistered when the view is destroyed.
+ */
+public interface QMUISuspendable {
+
+    void onSuspend();
+
+    void onResumeFromSuspend();
+}
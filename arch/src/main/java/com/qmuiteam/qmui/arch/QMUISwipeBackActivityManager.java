@@ -23,12 +23,16 @@ import android.support.annotation.MainThread;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
-import java.util.Stack;
-
-
+/**
+ * keep the stack of activities for swipe back.
+ * <p>
+ * the stack is a {@link WeakLinkedStack}, so that push, remove and penultimate lookup are all O(1),
+ * and a leaked destroy callback will not hold the activity.
+ * all methods are called in main thread by activity lifecycle callbacks.
+ */
 public class QMUISwipeBackActivityManager implements Application.ActivityLifecycleCallbacks {
     private static QMUISwipeBackActivityManager sInstance;
-    private Stack<Activity> mActivityStack = new Stack<>();
+    private final WeakLinkedStack<Activity> mActivityStack = new WeakLinkedStack<>();
 
 
     @MainThread
@@ -52,12 +56,16 @@ public class QMUISwipeBackActivityManager implements Application.ActivityLifecyc
 
     @Override
     public void onActivityCreated(Activity activity, Bundle savedInstanceState) {
-        mActivityStack.add(activity);
+        mActivityStack.push(activity);
     }
 
     @Override
     public void onActivityDestroyed(Activity activity) {
         mActivityStack.remove(activity);
+        if (mActivityStack.size() == 0) {
+            // nothing left to swipe back to, the pooled snapshots are useless
+            SwipeBackSnapshotPool.clear();
+        }
     }
 
     @Override
@@ -94,25 +102,7 @@ public class QMUISwipeBackActivityManager implements Application.ActivityLifecyc
      */
     @Nullable
     public Activity getPenultimateActivity(Activity currentActivity) {
-        Activity activity = null;
-        try {
-            if (mActivityStack.size() > 1) {
-                activity = mActivityStack.get(mActivityStack.size() - 2);
-
-                if (currentActivity.equals(activity)) {
-                    int index = mActivityStack.indexOf(currentActivity);
-                    if (index > 0) {
-                        // if memory leaks or the last activity is being finished
-                        activity = mActivityStack.get(index - 1);
-                    } else if (mActivityStack.size() == 2) {
-                        // if screen orientation changes, there may be an error sequence in the stack
-                        activity = mActivityStack.lastElement();
-                    }
-                }
-            }
-        } catch (Exception ignored) {
-        }
-        return activity;
+        return mActivityStack.getPenultimate(currentActivity);
     }
 
     public boolean canSwipeBack() {
@@ -0,0 +1,138 @@
+/*
+ * Tencent is pleased to support the open source community by making QMUI_Android available.
+ *
+ * Copyright (C) 2017-2018 THL A29 Limited, a Tencent company. All rights reserved.
+ *
+ * Licensed under the MIT License (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/MIT
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.qmuiteam.qmui.arch;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.view.View;
+
+import com.qmuiteam.qmui.QMUILog;
+
+import java.util.ArrayList;
+
+/**
+ * bitmap pool for swipe back snapshots.
+ * <p>
+ * snapshots are always window sized, so recycled bitmaps can almost always be reused
+ * by the next swipe. The pool is cleared when the application is hidden or runs low on memory,
+ * and when the last activity is destroyed. All methods must be called in main thread.
+ */
+class SwipeBackSnapshotPool {
+    private static final String TAG = "SwipeBackSnapshotPool";
+    private static final int MAX_POOL_SIZE = 2;
+
+    private static final ArrayList<Bitmap> sPool = new ArrayList<>(MAX_POOL_SIZE);
+    private static boolean sMemoryCallbacksRegistered = false;
+
+    private SwipeBackSnapshotPool() {
+    }
+
+    @Nullable
+    static Bitmap acquire(@NonNull Context context, int width, int height) {
+        if (width <= 0 || height <= 0) {
+            return null;
+        }
+        registerMemoryCallbacks(context);
+        for (int i = sPool.size() - 1; i >= 0; i--) {
+            Bitmap bitmap = sPool.get(i);
+            if (bitmap.getWidth() == width && bitmap.getHeight() == height) {
+                sPool.remove(i);
+                bitmap.eraseColor(0);
+                return bitmap;
+            }
+        }
+        try {
+            return Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        } catch (OutOfMemoryError e) {
+            QMUILog.d(TAG, "create snapshot failed: width = " + width + " ; height = " + height);
+            clear();
+            return null;
+        }
+    }
+
+    static void release(@Nullable Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled() || sPool.contains(bitmap)) {
+            return;
+        }
+        if (sPool.size() >= MAX_POOL_SIZE) {
+            // drop the oldest one, the size of window may have changed
+            sPool.remove(0).recycle();
+        }
+        sPool.add(bitmap);
+    }
+
+    static void clear() {
+        for (Bitmap bitmap : sPool) {
+            bitmap.recycle();
+        }
+        sPool.clear();
+    }
+
+    private static void registerMemoryCallbacks(Context context) {
+        if (sMemoryCallbacksRegistered) {
+            return;
+        }
+        Context appContext = context.getApplicationContext();
+        if (appContext == null) {
+            return;
+        }
+        // not every activity is a QMUIFragmentActivity, so the application must release the pool
+        appContext.registerComponentCallbacks(new ComponentCallbacks2() {
+            @Override
+            public void onTrimMemory(int level) {
+                if (level >= TRIM_MEMORY_RUNNING_LOW) {
+                    clear();
+                }
+            }
+
+            @Override
+            public void onConfigurationChanged(Configuration newConfig) {
+
+            }
+
+            @Override
+            public void onLowMemory() {
+                clear();
+            }
+        });
+        sMemoryCallbacksRegistered = true;
+    }
+
+    /**
+     * draw the view into a pooled bitmap
+     *
+     * @return null if the view is not laid out or there is not enough memory
+     */
+    @Nullable
+    static Bitmap capture(@Nullable View view) {
+        if (view == null || view.getWidth() <= 0 || view.getHeight() <= 0) {
+            return null;
+        }
+        Bitmap bitmap = acquire(view.getContext(), view.getWidth(), view.getHeight());
+        if (bitmap != null) {
+            Canvas canvas = new Canvas(bitmap);
+            canvas.translate(-view.getScrollX(), -view.getScrollY());
+            view.draw(canvas);
+        }
+        return bitmap;
+    }
+}
@@ -19,6 +19,7 @@ package com.qmuiteam.qmui.arch;
 import android.app.Activity;
 import android.content.Context;
 import android.content.pm.ActivityInfo;
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.os.IBinder;
@@ -40,6 +41,8 @@ class SwipeBackgroundView extends View {
 
     private ArrayList<ViewInfo> mViewWeakReference;
     private boolean mDoRotate = false;
+    private boolean mUseSnapshot = false;
+    private Bitmap mSnapshot;
 
     public SwipeBackgroundView(Context context) {
         super(context);
@@ -50,7 +53,18 @@ class SwipeBackgroundView extends View {
     }
 
     public void bind(Activity activity, Activity swipeActivity, boolean restoreForSubWindow) {
+        bind(activity, swipeActivity, restoreForSubWindow, false);
+    }
+
+    /**
+     * @param useSnapshot if true, the previous activity (and its sub windows) will be drawn into a
+     *                    bitmap only once at the first frame, and then only the bitmap is drawn
+     *                    during the drag. The bitmap is released in {@link #unBind()}
+     */
+    public void bind(Activity activity, Activity swipeActivity, boolean restoreForSubWindow, boolean useSnapshot) {
         mDoRotate = false;
+        mUseSnapshot = useSnapshot;
+        releaseSnapshot();
         if (mViewWeakReference != null) {
             mViewWeakReference.clear();
         }
@@ -148,25 +162,56 @@ class SwipeBackgroundView extends View {
         }
         mViewWeakReference = null;
         mDoRotate = false;
+        mUseSnapshot = false;
+        releaseSnapshot();
+    }
+
+    private void releaseSnapshot() {
+        if (mSnapshot != null) {
+            SwipeBackSnapshotPool.release(mSnapshot);
+            mSnapshot = null;
+        }
     }
 
     boolean hasChildWindow() {
         return mViewWeakReference != null && mViewWeakReference.size() > 1;
     }
 
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        // the snapshot is sized to the window, capture again
+        releaseSnapshot();
+    }
+
     @Override
     protected void onDraw(Canvas canvas) {
         super.onDraw(canvas);
         if (mViewWeakReference != null && mViewWeakReference.size() > 0) {
-            if (mDoRotate) {
-                canvas.translate(0, getHeight());
-                canvas.rotate(-90, 0, 0);
-            }
-            // reverse order
-            for (int i = mViewWeakReference.size() - 1; i >= 0; i--) {
-                mViewWeakReference.get(i).draw(canvas);
+            if (mUseSnapshot) {
+                if (mSnapshot == null) {
+                    mSnapshot = SwipeBackSnapshotPool.acquire(getContext(), getWidth(), getHeight());
+                    if (mSnapshot != null) {
+                        drawViews(new Canvas(mSnapshot));
+                    }
+                }
+                if (mSnapshot != null) {
+                    canvas.drawBitmap(mSnapshot, 0, 0, null);
+                    return;
+                }
             }
+            drawViews(canvas);
+        }
+    }
 
+    private void drawViews(Canvas canvas) {
+        if (mDoRotate) {
+            canvas.translate(0, getHeight());
+            canvas.rotate(-90, 0, 0);
+        }
+        // reverse order
+        for (int i = mViewWeakReference.size() - 1; i >= 0; i--) {
+            mViewWeakReference.get(i).draw(canvas);
         }
     }
 
@@ -22,6 +22,9 @@ import android.app.Activity;
 import android.app.ActivityOptions;
 import android.os.Build;
 import android.os.Looper;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v4.app.Fragment;
 import android.support.v4.app.FragmentManager;
 import android.support.v4.app.FragmentTransaction;
 
@@ -29,6 +32,7 @@ import com.qmuiteam.qmui.QMUILog;
 
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.util.HashMap;
 import java.util.List;
 
 /**
@@ -157,14 +161,15 @@ public class Utils {
                 if (handler.needReNameTag()) {
                     Field nameField = Utils.getNameField(backStackEntry);
                     if (nameField != null) {
-                        nameField.setAccessible(true);
                         nameField.set(backStackEntry, handler.newTagName());
                     }
                 }
 
 
                 Field opsField = Utils.getOpsField(backStackEntry);
-                opsField.setAccessible(true);
+                if (opsField == null) {
+                    return;
+                }
                 Object opsObj = opsField.get(backStackEntry);
                 if (opsObj instanceof List<?>) {
                     List<?> ops = (List<?>) opsObj;
@@ -180,25 +185,52 @@ public class Utils {
         }
     }
 
-    private static boolean sOldBackStackEntryImpl = false;
+    private static final Object NO_FIELD = new Object();
+    // key: class, then field name, value: Field or NO_FIELD
+    private static final HashMap<Class<?>, HashMap<String, Object>> sFieldCache = new HashMap<>();
 
-    static Field getBackStackEntryField(FragmentManager.BackStackEntry backStackEntry, String name) {
-        Field opsField = null;
-        if (!sOldBackStackEntryImpl) {
+    /**
+     * resolve a declared field once per class, the returned field is already accessible.
+     * the failed lookup is cached too, so that it will not be retried in swipe back.
+     */
+    @Nullable
+    static Field getDeclaredField(@NonNull Class<?> cls, @NonNull String name) {
+        HashMap<String, Object> classCache = sFieldCache.get(cls);
+        if (classCache == null) {
+            classCache = new HashMap<>();
+            sFieldCache.put(cls, classCache);
+        }
+        Object cached = classCache.get(name);
+        if (cached == null) {
             try {
-                opsField = FragmentTransaction.class.getDeclaredField(name);
-            } catch (NoSuchFieldException ignore) {
+                Field field = cls.getDeclaredField(name);
+                field.setAccessible(true);
+                cached = field;
+            } catch (NoSuchFieldException e) {
+                cached = NO_FIELD;
+            } catch (SecurityException e) {
+                cached = NO_FIELD;
             }
+            classCache.put(name, cached);
         }
+        return cached == NO_FIELD ? null : (Field) cached;
+    }
 
-        if (opsField == null) {
-            sOldBackStackEntryImpl = true;
-            try {
-                opsField = backStackEntry.getClass().getDeclaredField(name);
-            } catch (NoSuchFieldException ignore) {
-            }
+    @Nullable
+    private static Field getDeclaredField(@NonNull Class<?> cls, @NonNull String newName, @NonNull String oldName) {
+        Field field = getDeclaredField(cls, newName);
+        if (field == null) {
+            field = getDeclaredField(cls, oldName);
         }
-        return opsField;
+        return field;
+    }
+
+    static Field getBackStackEntryField(FragmentManager.BackStackEntry backStackEntry, String name) {
+        Field field = getDeclaredField(FragmentTransaction.class, name);
+        if (field == null) {
+            field = getDeclaredField(backStackEntry.getClass(), name);
+        }
+        return field;
     }
 
     static Field getOpsField(FragmentManager.BackStackEntry backStackEntry) {
@@ -209,42 +241,96 @@ public class Utils {
         return getBackStackEntryField(backStackEntry, "mName");
     }
 
-    private static boolean sOldOpImpl = false;
-
-    private static Field getOpField(Object op, String fieldNameNew, String fieldNameOld) {
-        Field field = null;
-        if (!sOldOpImpl) {
-            try {
-                field = op.getClass().getDeclaredField(fieldNameNew);
-            } catch (NoSuchFieldException ignore) {
-
-            }
-        }
-
-        if (field == null) {
-            sOldOpImpl = true;
-            try {
-                field = op.getClass().getDeclaredField(fieldNameOld);
-            } catch (NoSuchFieldException ignore) {
-            }
-        }
-        return field;
-    }
-
     static Field getOpCmdField(Object op) {
-        return getOpField(op, "mCmd", "cmd");
+        return getDeclaredField(op.getClass(), "mCmd", "cmd");
     }
 
     static Field getOpFragmentField(Object op) {
-        return getOpField(op, "mFragment", "fragment");
+        return getDeclaredField(op.getClass(), "mFragment", "fragment");
     }
 
     static Field getOpPopEnterAnimField(Object op) {
-        return getOpField(op, "mPopEnterAnim", "popEnterAnim");
+        return getDeclaredField(op.getClass(), "mPopEnterAnim", "popEnterAnim");
     }
 
     static Field getOpPopExitAnimField(Object op) {
-        return getOpField(op, "mPopExitAnim", "popExitAnim");
+        return getDeclaredField(op.getClass(), "mPopExitAnim", "popExitAnim");
+    }
+
+    static Field getFragmentBackStackNestingField() {
+        return getDeclaredField(Fragment.class, "mBackStackNesting");
+    }
+
+    /**
+     * @return the id of container view that the fragment is added to, or 0 if not exists
+     */
+    static int getFragmentContainerId(Fragment fragment) {
+        Field containerIdField = getDeclaredField(Fragment.class, "mContainerId");
+        if (containerIdField != null) {
+            try {
+                return containerIdField.getInt(fragment);
+            } catch (IllegalAccessException ignore) {
+            }
+        }
+        // for fragments added by transaction, the id is the same as container id
+        return fragment.isInLayout() ? 0 : fragment.getId();
+    }
+
+    /**
+     * resolve all fields used by swipe back and fragment transition ahead, so that there is
+     * no reflection lookup when the finger touches down.
+     *
+     * @return false if some field can not be found in current support library, then swipe back
+     * and {@link QMUIFragmentActivity#startFragmentAndDestroyCurrent(QMUIFragment, boolean)}
+     * may not work as expected.
+     */
+    static boolean verifyBackStackFields() {
+        boolean ok = getFragmentBackStackNestingField() != null
+                && getDeclaredField(Fragment.class, "mContainerId") != null;
+        Class<?> backStackRecordClass = null;
+        try {
+            backStackRecordClass = Class.forName("android.support.v4.app.BackStackRecord");
+        } catch (ClassNotFoundException ignore) {
+        }
+        if (backStackRecordClass != null) {
+            Field opsField = getDeclaredField(FragmentTransaction.class, "mOps");
+            if (opsField == null) {
+                opsField = getDeclaredField(backStackRecordClass, "mOps");
+            }
+            if (getDeclaredField(FragmentTransaction.class, "mName") == null &&
+                    getDeclaredField(backStackRecordClass, "mName") == null) {
+                ok = false;
+            }
+            ok = ok && opsField != null;
+            Class<?> opClass = null;
+            for (Class<?> cls : backStackRecordClass.getDeclaredClasses()) {
+                if ("Op".equals(cls.getSimpleName())) {
+                    opClass = cls;
+                    break;
+                }
+            }
+            if (opClass == null) {
+                try {
+                    opClass = Class.forName("android.support.v4.app.FragmentTransaction$Op");
+                } catch (ClassNotFoundException ignore) {
+                }
+            }
+            if (opClass != null) {
+                ok = ok && getDeclaredField(opClass, "mCmd", "cmd") != null
+                        && getDeclaredField(opClass, "mFragment", "fragment") != null
+                        && getDeclaredField(opClass, "mPopEnterAnim", "popEnterAnim") != null
+                        && getDeclaredField(opClass, "mPopExitAnim", "popExitAnim") != null;
+            } else {
+                ok = false;
+            }
+        } else {
+            ok = false;
+        }
+        if (!ok) {
+            QMUILog.d("verifyBackStackFields", "some fields of back stack record can not be found, " +
+                    "swipe back may not work as expected");
+        }
+        return ok;
     }
 
     interface OpHandler {
@@ -0,0 +1,144 @@
+/*
+ * Tencent is pleased to support the open source community by making QMUI_Android available.
+ *
+ * Copyright (C) 2017-2018 THL A29 Limited, a Tencent company. All rights reserved.
+ *
+ * Licensed under the MIT License (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/MIT
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.qmuiteam.qmui.arch;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.WeakHashMap;
+
+/**
+ * a doubly linked list of weak references, indexed by item, so that push, remove
+ * and penultimate lookup are all O(1). the node of an item that is garbage collected
+ * without being removed is unlinked on the next access.
+ * <p>
+ * it is not thread safe.
+ */
+class WeakLinkedStack<T> {
+    private final WeakHashMap<T, Node<T>> mNodeMap = new WeakHashMap<>();
+    private final ReferenceQueue<T> mReferenceQueue = new ReferenceQueue<>();
+    private Node<T> mHead;
+    private Node<T> mTail;
+    private int mSize = 0;
+
+    /**
+     * push the item to the top, if it is already in the stack, it is moved to the top.
+     */
+    void push(T item) {
+        sweepStaleNodes();
+        Node<T> old = mNodeMap.get(item);
+        if (old != null) {
+            unlink(old);
+        }
+        Node<T> node = new Node<>(item, mReferenceQueue);
+        mNodeMap.put(item, node);
+        node.prev = mTail;
+        if (mTail != null) {
+            mTail.next = node;
+        } else {
+            mHead = node;
+        }
+        mTail = node;
+        mSize++;
+    }
+
+    void remove(T item) {
+        Node<T> node = mNodeMap.remove(item);
+        if (node != null) {
+            unlink(node);
+        }
+        sweepStaleNodes();
+    }
+
+    int size() {
+        sweepStaleNodes();
+        return mSize;
+    }
+
+    /**
+     * @return the item under current, or the item under the top if current is not the top
+     */
+    T getPenultimate(T current) {
+        sweepStaleNodes();
+        Node<T> last = mTail;
+        if (last == null) {
+            return null;
+        }
+        Node<T> penultimate = last.prev;
+        if (penultimate == null) {
+            return null;
+        }
+        T item = penultimate.get();
+        if (item != current) {
+            return item;
+        }
+        if (penultimate.prev != null) {
+            // if memory leaks or the last item is being finished
+            return penultimate.prev.get();
+        }
+        // if screen orientation changes, there may be an error sequence in the stack
+        return last.get();
+    }
+
+    /**
+     * only for test, to simulate the item being garbage collected.
+     */
+    Node<T> getNode(T item) {
+        return mNodeMap.get(item);
+    }
+
+    /**
+     * remove the nodes whose item is already garbage collected, it happens only
+     * if {@link #remove(Object)} is missed.
+     */
+    void sweepStaleNodes() {
+        Object ref;
+        while ((ref = mReferenceQueue.poll()) != null) {
+            //noinspection unchecked
+            unlink((Node<T>) ref);
+        }
+    }
+
+    private void unlink(Node<T> node) {
+        if (node.unlinked) {
+            return;
+        }
+        node.unlinked = true;
+        if (node.prev != null) {
+            node.prev.next = node.next;
+        } else {
+            mHead = node.next;
+        }
+        if (node.next != null) {
+            node.next.prev = node.prev;
+        } else {
+            mTail = node.prev;
+        }
+        node.prev = null;
+        node.next = null;
+        mSize--;
+    }
+
+    static class Node<T> extends WeakReference<T> {
+        Node<T> prev;
+        Node<T> next;
+        boolean unlinked = false;
+
+        Node(T item, ReferenceQueue<T> queue) {
+            super(item, queue);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+/*
+ * Tencent is pleased to support the open source community by making QMUI_Android available.
+ *
+ * Copyright (C) 2017-2018 THL A29 Limited, a Tencent company. All rights reserved.
+ *
+ * Licensed under the MIT License (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/MIT
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.qmuiteam.qmui.arch.first;
+
+import android.support.annotation.Nullable;
+
+import com.qmuiteam.qmui.arch.QMUIFragment;
+
+/**
+ * implemented by generated {@link FirstFragmentFinder}, create the first fragment without reflection.
+ */
+public interface FirstFragmentFactory {
+    /**
+     * @param id the id from {@link FirstFragmentFinder#getIdByFragmentClass(Class)}
+     * @return null if the id is unknown or the fragment can not be created directly
+     */
+    @Nullable
+    QMUIFragment newFragment(int id);
+}
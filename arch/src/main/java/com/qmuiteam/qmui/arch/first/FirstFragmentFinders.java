@@ -58,6 +58,23 @@ public class FirstFragmentFinders {
 
     }
 
+    /**
+     * register the finder directly, so that {@link #get(Class)} does not need to probe the generated
+     * class by class loader. It is called by the index class generated by arch-compiler, which is
+     * enabled by the annotation processor argument "qmuiArchFinderIndex", e.g.
+     * <pre>
+     * javaCompileOptions {
+     *     annotationProcessorOptions {
+     *         arguments = [qmuiArchFinderIndex: 'com.example.QDFragmentFinderIndex']
+     *     }
+     * }
+     * </pre>
+     * then call QDFragmentFinderIndex.register() in Application#onCreate.
+     */
+    public void register(Class<? extends QMUIFragmentActivity> cls, FirstFragmentFinder finder) {
+        mCache.put(cls, finder);
+    }
+
     public FirstFragmentFinder get(Class<? extends QMUIFragmentActivity> cls) {
         FirstFragmentFinder finder = mCache.get(cls);
         if (finder != null) {
@@ -0,0 +1,123 @@
+package com.qmuiteam.qmui.arch;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * local unit test for the activity stack of {@link QMUISwipeBackActivityManager}.
+ */
+public class WeakLinkedStackTest {
+
+    @Test
+    public void push_keepsOrder() throws Exception {
+        WeakLinkedStack<Object> stack = new WeakLinkedStack<>();
+        Object a = new Object(), b = new Object(), c = new Object();
+        stack.push(a);
+        assertEquals(1, stack.size());
+        assertNull(stack.getPenultimate(a));
+        stack.push(b);
+        stack.push(c);
+        assertEquals(3, stack.size());
+        assertSame(b, stack.getPenultimate(c));
+    }
+
+    @Test
+    public void push_existingItemMovesToTop() throws Exception {
+        WeakLinkedStack<Object> stack = new WeakLinkedStack<>();
+        Object a = new Object(), b = new Object(), c = new Object();
+        stack.push(a);
+        stack.push(b);
+        stack.push(c);
+        stack.push(a);
+        assertEquals(3, stack.size());
+        assertSame(c, stack.getPenultimate(a));
+    }
+
+    @Test
+    public void remove_unlinksHeadMiddleAndTail() throws Exception {
+        WeakLinkedStack<Object> stack = new WeakLinkedStack<>();
+        Object a = new Object(), b = new Object(), c = new Object(), d = new Object();
+        stack.push(a);
+        stack.push(b);
+        stack.push(c);
+        stack.push(d);
+
+        stack.remove(b);
+        assertEquals(3, stack.size());
+        assertSame(c, stack.getPenultimate(d));
+
+        stack.remove(d);
+        assertEquals(2, stack.size());
+        assertSame(a, stack.getPenultimate(c));
+
+        stack.remove(a);
+        assertEquals(1, stack.size());
+        assertNull(stack.getPenultimate(c));
+
+        // removing twice or removing an unknown item is ignored
+        stack.remove(a);
+        stack.remove(new Object());
+        assertEquals(1, stack.size());
+
+        stack.remove(c);
+        assertEquals(0, stack.size());
+        assertNull(stack.getPenultimate(c));
+    }
+
+    @Test
+    public void getPenultimate_currentIsNotTop() throws Exception {
+        WeakLinkedStack<Object> stack = new WeakLinkedStack<>();
+        Object a = new Object(), b = new Object(), c = new Object();
+        stack.push(a);
+        stack.push(b);
+        stack.push(c);
+        // the last one is being finished and the current one is under it
+        assertSame(a, stack.getPenultimate(b));
+
+        WeakLinkedStack<Object> two = new WeakLinkedStack<>();
+        two.push(a);
+        two.push(b);
+        // the sequence is wrong after screen orientation changes
+        assertSame(b, two.getPenultimate(a));
+    }
+
+    @Test
+    public void sweepStaleNodes_unlinksCollectedItems() throws Exception {
+        WeakLinkedStack<Object> stack = new WeakLinkedStack<>();
+        Object a = new Object(), b = new Object(), c = new Object();
+        stack.push(a);
+        stack.push(b);
+        stack.push(c);
+
+        // simulate b being garbage collected without remove
+        WeakLinkedStack.Node<Object> node = stack.getNode(b);
+        node.clear();
+        assertTrue(node.enqueue());
+
+        assertEquals(2, stack.size());
+        assertSame(a, stack.getPenultimate(c));
+
+        // a late remove of the swept item is ignored
+        stack.remove(b);
+        assertEquals(2, stack.size());
+
+        stack.getNode(c).enqueue();
+        stack.sweepStaleNodes();
+        assertEquals(1, stack.size());
+        assertNull(stack.getPenultimate(a));
+    }
+
+    @Test
+    public void canSwipeBack_needsTwoItems() throws Exception {
+        WeakLinkedStack<Object> stack = new WeakLinkedStack<>();
+        Object a = new Object(), b = new Object();
+        assertFalse(stack.size() > 1);
+        stack.push(a);
+        assertFalse(stack.size() > 1);
+        stack.push(b);
+        assertTrue(stack.size() > 1);
+        stack.getNode(a).enqueue();
+        assertFalse(stack.size() > 1);
+    }
+}
@@ -100,7 +100,12 @@ public class WidgetProcessor extends AbstractProcessor {
 
     @Override
     public boolean process(Set<? extends TypeElement> set, RoundEnvironment roundEnvironment) {
+        Set<? extends Element> elements = roundEnvironment.getElementsAnnotatedWith(Widget.class);
         if (mIsFileCreated) {
+            // QDWidgetContainer 只能生成一次, 后续 round 中(即生成代码中)的 @Widget 无法处理
+            if (!elements.isEmpty()) {
+                mMessager.printMessage(Diagnostic.Kind.WARNING, "@Widget in generated code is ignored");
+            }
             return true;
         }
         mIsFileCreated = true;
@@ -120,9 +125,11 @@ public class WidgetProcessor extends AbstractProcessor {
                 .addModifiers(Modifier.PRIVATE)
                 .addStatement("mWidgets = new $T<>()", mHashMapName);
 
-        for (Element element : roundEnvironment.getElementsAnnotatedWith(Widget.class)) {
+        for (Element element : elements) {
             if (element instanceof TypeElement) {
                 TypeElement classElement = (TypeElement) element;
+                // gradle 增量编译(aggregating)需要记录生成文件的来源
+                widgetContainerBuilder.addOriginatingElement(classElement);
                 ClassName elementName = ClassName.get(classElement);
                 Widget widget = classElement.getAnnotation(Widget.class);
                 String name = null;
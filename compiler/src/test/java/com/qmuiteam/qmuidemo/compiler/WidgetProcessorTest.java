@@ -0,0 +1,109 @@
+package com.qmuiteam.qmuidemo.compiler;
+
+import com.google.testing.compile.Compilation;
+import com.google.testing.compile.JavaFileObjects;
+import com.qmuiteam.qmui.test.processing.RecordingProcessor;
+import com.qmuiteam.qmuidemo.lib.annotation.Widget;
+
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import javax.lang.model.element.Element;
+import javax.tools.JavaFileObject;
+
+import static com.google.testing.compile.CompilationSubject.assertThat;
+import static com.google.testing.compile.Compiler.javac;
+import static org.junit.Assert.*;
+
+/**
+ * 检查 {@link WidgetProcessor} 符合 gradle aggregating 注解处理器的要求
+ */
+public class WidgetProcessorTest {
+    private static final String INCREMENTAL_PROCESSORS = "META-INF/gradle/incremental.annotation.processors";
+    private static final String CONTAINER = "com.qmuiteam.qmuidemo.manager.QDWidgetContainer";
+
+    private static final JavaFileObject BASE_FRAGMENT = JavaFileObjects.forSourceLines(
+            "com.qmuiteam.qmuidemo.base.BaseFragment",
+            "package com.qmuiteam.qmuidemo.base;",
+            "public class BaseFragment {}");
+    private static final JavaFileObject ITEM_DESCRIPTION = JavaFileObjects.forSourceLines(
+            "com.qmuiteam.qmuidemo.model.QDItemDescription",
+            "package com.qmuiteam.qmuidemo.model;",
+            "import com.qmuiteam.qmuidemo.base.BaseFragment;",
+            "public class QDItemDescription {",
+            "    public QDItemDescription(Class<? extends BaseFragment> kitDemoClass, String kitName,",
+            "                             int iconRes, String docUrl) {}",
+            "}");
+    private static final JavaFileObject BUTTON_FRAGMENT = JavaFileObjects.forSourceLines(
+            "test.QDButtonFragment",
+            "package test;",
+            "import com.qmuiteam.qmuidemo.lib.annotation.Widget;",
+            "@Widget(widgetClass = String.class, iconRes = 1)",
+            "public class QDButtonFragment extends com.qmuiteam.qmuidemo.base.BaseFragment {}");
+    private static final JavaFileObject NAMED_FRAGMENT = JavaFileObjects.forSourceLines(
+            "test.QDNamedFragment",
+            "package test;",
+            "import com.qmuiteam.qmuidemo.lib.annotation.Widget;",
+            "@Widget(name = \"Named\", docUrl = \"doc\")",
+            "public class QDNamedFragment extends com.qmuiteam.qmuidemo.base.BaseFragment {}");
+
+    @Test
+    public void declaredAsAggregating() throws Exception {
+        InputStream input = getClass().getClassLoader().getResourceAsStream(INCREMENTAL_PROCESSORS);
+        assertNotNull(input);
+        List<String> lines = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, "UTF-8"));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.trim().length() > 0) {
+                    lines.add(line.trim());
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        assertTrue(lines.contains(WidgetProcessor.class.getName() + ",aggregating"));
+    }
+
+    @Test
+    public void onlyReadsRetainedAnnotations() throws Exception {
+        // aggregating 处理器只能读取 CLASS 或 RUNTIME 的注解
+        WidgetProcessor processor = new WidgetProcessor();
+        assertFalse(processor.getSupportedAnnotationTypes().contains("*"));
+        assertEquals(RetentionPolicy.CLASS, Widget.class.getAnnotation(Retention.class).value());
+    }
+
+    @Test
+    public void generatesContainerWithOriginatingElements() throws Exception {
+        RecordingProcessor processor = new RecordingProcessor(new WidgetProcessor());
+        Compilation compilation = javac()
+                .withProcessors(processor)
+                .compile(BASE_FRAGMENT, ITEM_DESCRIPTION, BUTTON_FRAGMENT, NAMED_FRAGMENT);
+        assertThat(compilation).succeededWithoutWarnings();
+        assertThat(compilation).generatedSourceFile(CONTAINER).contentsAsUtf8String()
+                .contains("new QDItemDescription(QDButtonFragment.class, \"String\", 1, \"\")");
+        assertThat(compilation).generatedSourceFile(CONTAINER).contentsAsUtf8String()
+                .contains("new QDItemDescription(QDNamedFragment.class, \"Named\", 0, \"doc\")");
+
+        Map<String, List<Element>> generated = processor.getOriginatingElements();
+        assertEquals(1, generated.size());
+        List<Element> elements = generated.get(CONTAINER);
+        assertNotNull(elements);
+        List<String> names = new ArrayList<>();
+        for (Element element : elements) {
+            names.add(element.toString());
+        }
+        assertEquals(2, names.size());
+        assertTrue(names.contains("test.QDButtonFragment"));
+        assertTrue(names.contains("test.QDNamedFragment"));
+    }
+}
@@ -0,0 +1,56 @@
+package com.qmuiteam.qmui.widget.roundwidget;
+
+import android.content.Context;
+import android.os.Debug;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+import android.view.ContextThemeWrapper;
+
+import com.qmuiteam.qmui.R;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 对比走缓存与每次都解析属性时, 创建大量同样式按钮背景的分配次数
+ */
+@RunWith(AndroidJUnit4.class)
+public class QMUIRoundButtonDrawableBenchmark {
+    private static final String TAG = "RoundButtonBenchmark";
+    private static final int COUNT = 500;
+
+    @Test
+    public void cachedStyleAllocatesLessThanParsing() {
+        Context context = new ContextThemeWrapper(InstrumentationRegistry.getTargetContext(), R.style.QMUI_Compat);
+        // 预热, 让缓存与 TypedArray 池都就绪
+        QMUIRoundButtonDrawable first = QMUIRoundButtonDrawable.fromAttributeSet(context, null, R.attr.QMUIButtonStyle);
+        QMUIRoundButtonDrawable.parseAttributeSet(context, null, R.attr.QMUIButtonStyle);
+
+        int parsed = countAllocations(context, false);
+        int cached = countAllocations(context, true);
+        Log.i(TAG, "allocations for " + COUNT + " drawables: parsed = " + parsed + ", cached = " + cached);
+
+        QMUIRoundButtonDrawable other = QMUIRoundButtonDrawable.fromAttributeSet(context, null, R.attr.QMUIButtonStyle);
+        assertSame(first.getConstantState(), other.getConstantState());
+        assertTrue(cached < parsed);
+    }
+
+    @SuppressWarnings("deprecation")
+    private static int countAllocations(Context context, boolean cached) {
+        Debug.resetThreadAllocCount();
+        Debug.startAllocCounting();
+        for (int i = 0; i < COUNT; i++) {
+            if (cached) {
+                QMUIRoundButtonDrawable.fromAttributeSet(context, null, R.attr.QMUIButtonStyle);
+            } else {
+                QMUIRoundButtonDrawable.parseAttributeSet(context, null, R.attr.QMUIButtonStyle);
+            }
+        }
+        Debug.stopAllocCounting();
+        return Debug.getThreadAllocCount();
+    }
+}
@@ -28,6 +28,12 @@ import com.qmuiteam.qmui.R;
 
 import java.util.ArrayList;
 
+/**
+ * 按优先级分配空间的 LinearLayout, 见 {@link LayoutParams#setPriority(int)}。
+ * <p>
+ * 子 View 在主轴方向上的自然尺寸会缓存在 {@link LayoutParams} 中, 只有子 View requestLayout 或者测量条件变化时才会重新测量。
+ * </p>
+ */
 public class QMUIPriorityLinearLayout extends QMUILinearLayout {
     private ArrayList<View> mTempMiniWidthChildList = new ArrayList<>();
     private ArrayList<View> mTempDisposableChildList = new ArrayList<>();
@@ -51,6 +57,33 @@ public class QMUIPriorityLinearLayout extends QMUILinearLayout {
         super.onMeasure(widthMeasureSpec, heightMeasureSpec);
     }
 
+    /**
+     * 获取子 View 在主轴方向上的自然尺寸, 子 View 没有 requestLayout 且测量条件不变时直接使用缓存
+     */
+    private int measureIntrinsicSize(View child, LayoutParams lp, int orientation, int mainSpec, int crossSpec) {
+        if (lp.intrinsicSize >= 0 && !child.isLayoutRequested()
+                && lp.intrinsicMainSpec == mainSpec && lp.intrinsicCrossSpec == crossSpec) {
+            return lp.intrinsicSize;
+        }
+        if (orientation == HORIZONTAL) {
+            child.measure(mainSpec, crossSpec);
+            lp.intrinsicSize = child.getMeasuredWidth();
+        } else {
+            child.measure(crossSpec, mainSpec);
+            lp.intrinsicSize = child.getMeasuredHeight();
+        }
+        lp.intrinsicMainSpec = mainSpec;
+        lp.intrinsicCrossSpec = crossSpec;
+        return lp.intrinsicSize;
+    }
+
+    private int getIntrinsicSize(View view, LayoutParams lp) {
+        if (lp.intrinsicSize >= 0) {
+            return lp.intrinsicSize;
+        }
+        return getOrientation() == HORIZONTAL ? view.getMeasuredWidth() : view.getMeasuredHeight();
+    }
+
     private void handleHorizontal(int widthMeasureSpec, int heightMeasureSpec) {
         int widthSize = MeasureSpec.getSize(widthMeasureSpec) - getPaddingLeft() - getPaddingRight();
         int widthMode = MeasureSpec.getMode(widthMeasureSpec);
@@ -59,8 +92,10 @@ public class QMUIPriorityLinearLayout extends QMUILinearLayout {
             return;
         }
         int usedWidth = handlePriorityIncompressible(widthMeasureSpec, heightMeasureSpec);
+        int intrinsicWidthSpec = MeasureSpec.makeMeasureSpec(widthSize, MeasureSpec.AT_MOST);
         if (usedWidth >= widthSize) {
             for (View view : mTempMiniWidthChildList) {
+                // 在最小保护宽度内重新测量, 文字等内容可能因换行而比保护宽度更窄
                 LayoutParams lp = (LayoutParams) view.getLayoutParams();
                 view.measure(MeasureSpec.makeMeasureSpec(lp.miniContentProtectionSize, MeasureSpec.AT_MOST), heightMeasureSpec);
                 lp.width = view.getMeasuredWidth();
@@ -74,15 +109,15 @@ public class QMUIPriorityLinearLayout extends QMUILinearLayout {
             int miniNeedWidth = 0, miniWidthChildTotalWidth = 0, marginHor;
             for (View view : mTempMiniWidthChildList) {
                 LayoutParams lp = (LayoutParams) view.getLayoutParams();
-                view.measure(MeasureSpec.makeMeasureSpec(widthSize, MeasureSpec.AT_MOST), heightMeasureSpec);
+                int intrinsicWidth = measureIntrinsicSize(view, lp, HORIZONTAL, intrinsicWidthSpec, heightMeasureSpec);
                 marginHor = lp.leftMargin + lp.rightMargin;
-                miniWidthChildTotalWidth += view.getMeasuredWidth() + marginHor;
-                miniNeedWidth += Math.min(view.getMeasuredWidth(), lp.miniContentProtectionSize) + marginHor;
+                miniWidthChildTotalWidth += intrinsicWidth + marginHor;
+                miniNeedWidth += Math.min(intrinsicWidth, lp.miniContentProtectionSize) + marginHor;
             }
             if (miniNeedWidth >= usefulWidth) {
                 for (View view : mTempMiniWidthChildList) {
                     LayoutParams lp = (LayoutParams) view.getLayoutParams();
-                    lp.width = Math.min(view.getMeasuredWidth(), lp.miniContentProtectionSize);
+                    lp.width = Math.min(lp.intrinsicSize, lp.miniContentProtectionSize);
                 }
                 for (View view : mTempDisposableChildList) {
                     LayoutParams lp = (LayoutParams) view.getLayoutParams();
@@ -115,6 +150,7 @@ public class QMUIPriorityLinearLayout extends QMUILinearLayout {
             return;
         }
         int usedHeight = handlePriorityIncompressible(widthMeasureSpec, heightMeasureSpec);
+        int intrinsicHeightSpec = MeasureSpec.makeMeasureSpec(heightSize, MeasureSpec.AT_MOST);
         if (usedHeight >= heightSize) {
             for (View view : mTempMiniWidthChildList) {
                 LayoutParams lp = (LayoutParams) view.getLayoutParams();
@@ -130,15 +166,15 @@ public class QMUIPriorityLinearLayout extends QMUILinearLayout {
             int miniNeedSpace = 0, miniSizeChildTotalLength = 0, marginVer;
             for (View view : mTempMiniWidthChildList) {
                 LayoutParams lp = (LayoutParams) view.getLayoutParams();
-                view.measure(widthMeasureSpec, MeasureSpec.makeMeasureSpec(heightSize, MeasureSpec.AT_MOST));
+                int intrinsicHeight = measureIntrinsicSize(view, lp, VERTICAL, intrinsicHeightSpec, widthMeasureSpec);
                 marginVer = lp.topMargin + lp.bottomMargin;
-                miniSizeChildTotalLength += view.getMeasuredHeight() + marginVer;
-                miniNeedSpace += Math.min(view.getMeasuredHeight(), lp.miniContentProtectionSize) + marginVer;
+                miniSizeChildTotalLength += intrinsicHeight + marginVer;
+                miniNeedSpace += Math.min(intrinsicHeight, lp.miniContentProtectionSize) + marginVer;
             }
             if (miniNeedSpace >= usefulSpace) {
                 for (View view : mTempMiniWidthChildList) {
                     LayoutParams lp = (LayoutParams) view.getLayoutParams();
-                    lp.height = Math.min(view.getMeasuredHeight(), lp.miniContentProtectionSize);
+                    lp.height = Math.min(lp.intrinsicSize, lp.miniContentProtectionSize);
                 }
                 for (View view : mTempDisposableChildList) {
                     LayoutParams lp = (LayoutParams) view.getLayoutParams();
@@ -185,15 +221,15 @@ public class QMUIPriorityLinearLayout extends QMUILinearLayout {
                     if (lp.width >= 0) {
                         usedSize += lp.width + margin;
                     } else {
-                        child.measure(MeasureSpec.makeMeasureSpec(widthSize, MeasureSpec.AT_MOST), heightMeasureSpec);
-                        usedSize += child.getMeasuredWidth() + margin;
+                        usedSize += measureIntrinsicSize(child, lp, HORIZONTAL,
+                                MeasureSpec.makeMeasureSpec(widthSize, MeasureSpec.AT_MOST), heightMeasureSpec) + margin;
                     }
                 } else {
                     if (lp.height >= 0) {
                         usedSize += lp.height + margin;
                     } else {
-                        child.measure(widthMeasureSpec, MeasureSpec.makeMeasureSpec(heightSize, MeasureSpec.AT_MOST));
-                        usedSize += child.getMeasuredHeight() + margin;
+                        usedSize += measureIntrinsicSize(child, lp, VERTICAL,
+                                MeasureSpec.makeMeasureSpec(heightSize, MeasureSpec.AT_MOST), widthMeasureSpec) + margin;
                     }
                 }
             } else if (priority == LayoutParams.PRIORITY_MINI_CONTENT_PROTECTION) {
@@ -233,15 +269,16 @@ public class QMUIPriorityLinearLayout extends QMUILinearLayout {
         if (extra > 0) {
             for (View view : childList) {
                 LayoutParams lp = (LayoutParams) view.getLayoutParams();
+                int intrinsicSize = getIntrinsicSize(view, lp);
                 if (getOrientation() == HORIZONTAL) {
-                    float radio = (view.getMeasuredWidth() + lp.leftMargin + lp.rightMargin)
+                    float radio = (intrinsicSize + lp.leftMargin + lp.rightMargin)
                             * 1f / calculateTotalLength;
-                    int width = (int) (view.getMeasuredWidth() - extra * radio);
+                    int width = (int) (intrinsicSize - extra * radio);
                     lp.width = Math.max(0, width);
                 } else {
-                    float radio = (view.getMeasuredHeight() + lp.topMargin + lp.bottomMargin)
+                    float radio = (intrinsicSize + lp.topMargin + lp.bottomMargin)
                             * 1f / calculateTotalLength;
-                    int height = (int) (view.getMeasuredHeight() - extra * radio);
+                    int height = (int) (intrinsicSize - extra * radio);
                     lp.height = Math.max(0, height);
                 }
             }
@@ -290,6 +327,13 @@ public class QMUIPriorityLinearLayout extends QMUILinearLayout {
         private int backupWidth = Integer.MIN_VALUE;
         private int backupHeight = Integer.MIN_VALUE;
 
+        /**
+         * 子 View 在主轴方向上的自然尺寸以及测量它时使用的 MeasureSpec
+         */
+        int intrinsicSize = -1;
+        int intrinsicMainSpec;
+        int intrinsicCrossSpec;
+
 
         public LayoutParams(Context c, AttributeSet attrs) {
             super(c, attrs);
@@ -21,17 +21,33 @@ import android.os.Bundle;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.design.widget.CoordinatorLayout;
+import android.support.v4.view.ViewCompat;
 import android.util.AttributeSet;
 import android.view.Gravity;
 import android.view.MotionEvent;
 import android.view.View;
 import android.view.ViewGroup;
+import android.view.ViewTreeObserver;
 
 import com.qmuiteam.qmui.util.QMUILangHelper;
 
 import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * a layout that makes a top view and a bottom view scroll as one continuous list.
+ * <p>
+ * scrolls started from the top area (dragging the top area, its fling, and {@link #scrollBy(int)})
+ * are distributed across the inner scroll of top view, the offset of top area and the inner scroll
+ * of bottom view in one step by {@link #coordinateScroll(int)}. nested scrolls started from the bottom
+ * view are not routed there: the bottom view scrolls itself between its nested pre-scroll and
+ * nested scroll, so they still go through {@link QMUIContinuousNestedTopAreaBehavior#onNestedPreScroll}
+ * and {@link QMUIContinuousNestedTopAreaBehavior#onNestedScroll} step by step.
+ * <p>
+ * {@link OnScrollListener#onScroll} is notified at most once before each draw, and any pending
+ * onScroll is flushed before {@link OnScrollListener#onScrollStateChange}, so listeners always see
+ * the final position before the state changes.
+ */
 public class QMUIContinuousNestedScrollLayout extends CoordinatorLayout implements
         QMUIContinuousNestedTopAreaBehavior.Callback, QMUIDraggableScrollBar.Callback {
     public static final String KEY_SCROLL_INFO_OFFSET = "@qmui_nested_scroll_layout_offset";
@@ -51,6 +67,25 @@ public class QMUIContinuousNestedScrollLayout extends CoordinatorLayout implemen
     private boolean mKeepBottomAreaStableWhenCheckLayout = false;
     private QMUIDraggableScrollBar mDraggableScrollBar;
     private boolean mIsDraggableScrollBarEnabled = false;
+    /**
+     * the scroll state is changed, OnScrollListener will be notified once before the next draw
+     */
+    private boolean mIsScrollChanged = false;
+    /**
+     * applying the distribution computed by {@link #coordinateScroll(int)}, the nested scroll
+     * dispatched by inner views is ignored
+     */
+    private boolean mIsApplyingScroll = false;
+    private final ViewTreeObserver.OnPreDrawListener mDispatchScrollAction = new ViewTreeObserver.OnPreDrawListener() {
+        @Override
+        public boolean onPreDraw() {
+            if (mIsScrollChanged) {
+                mIsScrollChanged = false;
+                dispatchScroll();
+            }
+            return true;
+        }
+    };
 
     public QMUIContinuousNestedScrollLayout(@NonNull Context context) {
         this(context, null);
@@ -162,10 +197,7 @@ public class QMUIContinuousNestedScrollLayout extends CoordinatorLayout implemen
         mTopView.injectScrollNotifier(new IQMUIContinuousNestedScrollCommon.OnScrollNotifier() {
             @Override
             public void notify(int innerOffset, int innerRange) {
-                int offsetCurrent = mTopAreaBehavior == null ? 0 : -mTopAreaBehavior.getTopAndBottomOffset();
-                int bottomCurrent = mBottomView == null ? 0 : mBottomView.getCurrentScroll();
-                int bottomRange = mBottomView == null ? 0 : mBottomView.getScrollOffsetRange();
-                dispatchScroll(innerOffset, innerRange, offsetCurrent, getOffsetRange(), bottomCurrent, bottomRange);
+                markScrollChanged();
             }
 
             @Override
@@ -215,10 +247,7 @@ public class QMUIContinuousNestedScrollLayout extends CoordinatorLayout implemen
         mBottomView.injectScrollNotifier(new IQMUIContinuousNestedBottomView.OnScrollNotifier() {
             @Override
             public void notify(int innerOffset, int innerRange) {
-                int topCurrent = mTopView == null ? 0 : mTopView.getCurrentScroll();
-                int topRange = mTopView == null ? 0 : mTopView.getScrollOffsetRange();
-                int offsetCurrent = mTopAreaBehavior == null ? 0 : -mTopAreaBehavior.getTopAndBottomOffset();
-                dispatchScroll(topCurrent, topRange, offsetCurrent, getOffsetRange(), innerOffset, innerRange);
+                markScrollChanged();
             }
 
             @Override
@@ -240,6 +269,19 @@ public class QMUIContinuousNestedScrollLayout extends CoordinatorLayout implemen
         addView(bottomView, 0, layoutParams);
     }
 
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        getViewTreeObserver().addOnPreDrawListener(mDispatchScrollAction);
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        getViewTreeObserver().removeOnPreDrawListener(mDispatchScrollAction);
+        mIsScrollChanged = false;
+    }
+
     @Override
     protected void onLayout(boolean changed, int l, int t, int r, int b) {
         super.onLayout(changed, l, t, r, b);
@@ -304,9 +346,26 @@ public class QMUIContinuousNestedScrollLayout extends CoordinatorLayout implemen
         }
     }
 
-    private void dispatchScroll(int topCurrent, int topRange,
-                                int offsetCurrent, int offsetRange,
-                                int bottomCurrent, int bottomRange) {
+    /**
+     * the inner scroll of top/bottom view and the offset of top area may change several times
+     * in one frame, so just mark here and notify the final state once before the next draw
+     */
+    private void markScrollChanged() {
+        if (!ViewCompat.isAttachedToWindow(this)) {
+            // no frame will come, notify directly
+            dispatchScroll();
+            return;
+        }
+        mIsScrollChanged = true;
+    }
+
+    private void dispatchScroll() {
+        int topCurrent = mTopView == null ? 0 : mTopView.getCurrentScroll();
+        int topRange = mTopView == null ? 0 : mTopView.getScrollOffsetRange();
+        int offsetCurrent = getOffsetCurrent();
+        int offsetRange = getOffsetRange();
+        int bottomCurrent = mBottomView == null ? 0 : mBottomView.getCurrentScroll();
+        int bottomRange = mBottomView == null ? 0 : mBottomView.getScrollOffsetRange();
         if (mIsDraggableScrollBarEnabled) {
             ensureScrollBar();
             mDraggableScrollBar.setPercent(getCurrentScrollPercent());
@@ -320,12 +379,95 @@ public class QMUIContinuousNestedScrollLayout extends CoordinatorLayout implemen
     }
 
     private void dispatchScrollStateChange(int newScrollState, boolean fromTopBehavior) {
+        // the state change must not overtake the scroll waiting for the next draw
+        if (mIsScrollChanged) {
+            mIsScrollChanged = false;
+            dispatchScroll();
+        }
         for (OnScrollListener onScrollListener : mOnScrollListeners) {
             onScrollListener.onScrollStateChange(newScrollState, fromTopBehavior);
         }
     }
 
+    /**
+     * compute the distribution of dy across the inner scroll of top view, the offset of top area
+     * and the inner scroll of bottom view in one step, then apply them together. dy > 0 is consumed
+     * by top view, top area, bottom view in order, and dy < 0 in reverse order.
+     * the nested scroll dispatched by inner views is ignored while applying, so the behavior
+     * does not adjust the offset again by an intermediate state.
+     *
+     * @return false if top view or bottom view is not set (or bottom view is gone)
+     */
+    boolean coordinateScroll(int dy) {
+        if (mTopView == null || mBottomView == null || mTopAreaBehavior == null
+                || ((View) mBottomView).getVisibility() == View.GONE) {
+            return false;
+        }
+        if (dy == 0) {
+            return true;
+        }
+        int topCurrent = mTopView.getCurrentScroll();
+        int topRange = mTopView.getScrollOffsetRange();
+        int offsetCurrent = getOffsetCurrent();
+        int offsetRange = getOffsetRange();
+        int bottomCurrent = mBottomView.getCurrentScroll();
+        int bottomRange = mBottomView.getContentHeight() == IQMUIContinuousNestedBottomView.HEIGHT_IS_ENOUGH_TO_SCROLL ?
+                mBottomView.getScrollOffsetRange() : 0;
+
+        int remain = dy;
+        int topDelta, offsetDelta, bottomDelta;
+        if (dy > 0) {
+            topDelta = Math.min(remain, Math.max(0, topRange - topCurrent));
+            remain -= topDelta;
+            offsetDelta = Math.min(remain, Math.max(0, offsetRange - offsetCurrent));
+            remain -= offsetDelta;
+            bottomDelta = Math.min(remain, Math.max(0, bottomRange - bottomCurrent));
+        } else {
+            bottomDelta = Math.max(remain, -bottomCurrent);
+            remain -= bottomDelta;
+            offsetDelta = Math.max(remain, -offsetCurrent);
+            remain -= offsetDelta;
+            topDelta = Math.max(remain, -topCurrent);
+        }
+
+        mIsApplyingScroll = true;
+        try {
+            if (topDelta != 0) {
+                mTopView.consumeScroll(topDelta);
+            }
+            if (offsetDelta != 0) {
+                mTopAreaBehavior.setTopAndBottomOffset(-(offsetCurrent + offsetDelta));
+            }
+            if (bottomDelta != 0) {
+                mBottomView.consumeScroll(bottomDelta);
+            }
+        } finally {
+            mIsApplyingScroll = false;
+        }
+        return true;
+    }
+
+    @Override
+    public void onNestedPreScroll(View target, int dx, int dy, int[] consumed, int type) {
+        if (mIsApplyingScroll) {
+            return;
+        }
+        super.onNestedPreScroll(target, dx, dy, consumed, type);
+    }
+
+    @Override
+    public void onNestedScroll(View target, int dxConsumed, int dyConsumed,
+                               int dxUnconsumed, int dyUnconsumed, int type) {
+        if (mIsApplyingScroll) {
+            return;
+        }
+        super.onNestedScroll(target, dxConsumed, dyConsumed, dxUnconsumed, dyUnconsumed, type);
+    }
+
     public void scrollBy(int dy) {
+        if (coordinateScroll(dy)) {
+            return;
+        }
         if (dy > 0 && mTopAreaBehavior != null) {
             mTopAreaBehavior.scroll(this, ((View) mTopView), dy);
         } else if (dy != 0 && mBottomView != null) {
@@ -407,11 +549,7 @@ public class QMUIContinuousNestedScrollLayout extends CoordinatorLayout implemen
 
     @Override
     public void onTopAreaOffset(int offset) {
-        int topCurrent = mTopView == null ? 0 : mTopView.getCurrentScroll();
-        int topRange = mTopView == null ? 0 : mTopView.getScrollOffsetRange();
-        int bottomCurrent = mBottomView == null ? 0 : mBottomView.getCurrentScroll();
-        int bottomRange = mBottomView == null ? 0 : mBottomView.getScrollOffsetRange();
-        dispatchScroll(topCurrent, topRange, -offset, getOffsetRange(), bottomCurrent, bottomRange);
+        markScrollChanged();
     }
 
     @Override
@@ -226,6 +226,10 @@ public class QMUIContinuousNestedTopAreaBehavior extends QMUIViewOffsetBehavior<
     }
 
     void scroll(@NonNull CoordinatorLayout parent, @NonNull View child, int dy) {
+        if (parent instanceof QMUIContinuousNestedScrollLayout
+                && ((QMUIContinuousNestedScrollLayout) parent).coordinateScroll(dy)) {
+            return;
+        }
         mScrollConsumed[0] = 0;
         mScrollConsumed[1] = 0;
         onNestedPreScroll(parent, child, child, 0, dy, mScrollConsumed, ViewCompat.TYPE_TOUCH);
@@ -17,13 +17,13 @@
 package com.qmuiteam.qmui.nestedScroll;
 
 import android.content.Context;
-import android.os.Build;
 import android.os.Bundle;
 import android.support.annotation.NonNull;
 import android.util.AttributeSet;
 
 import com.qmuiteam.qmui.util.QMUIDisplayHelper;
 import com.qmuiteam.qmui.widget.webview.QMUIWebView;
+import com.qmuiteam.qmui.widget.webview.QMUIWebViewJsInjector;
 
 public class QMUIContinuousNestedTopWebView extends QMUIWebView implements IQMUIContinuousNestedTopView {
 
@@ -101,14 +101,6 @@ public class QMUIContinuousNestedTopWebView extends QMUIWebView implements IQMUI
     public void restoreScrollInfo(@NonNull Bundle bundle) {
         int scrollY = QMUIDisplayHelper.px2dp(getContext(),
                 bundle.getInt(KEY_SCROLL_INFO, 0));
-        exec("javascript:scrollTo(0, " + scrollY + ")");
-    }
-
-    private void exec(final String jsCode) {
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
-            evaluateJavascript(jsCode, null);
-        } else {
-            loadUrl(jsCode);
-        }
+        getJsInjector().post(QMUIWebViewJsInjector.SLOT_SCROLL_Y, scrollY);
     }
 }
@@ -21,9 +21,11 @@ import android.annotation.TargetApi;
 import android.app.AppOpsManager;
 import android.content.Context;
 import android.content.res.Configuration;
+import android.os.AsyncTask;
 import android.os.Binder;
 import android.os.Build;
 import android.os.Environment;
+import android.os.Looper;
 import android.support.annotation.Nullable;
 import android.text.TextUtils;
 
@@ -31,6 +33,7 @@ import com.qmuiteam.qmui.QMUILog;
 
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.lang.reflect.Method;
 import java.util.Properties;
 import java.util.regex.Matcher;
@@ -50,16 +53,121 @@ public class QMUIDeviceHelper {
     private final static String ZUKZ1 = "zuk z1";
     private final static String ESSENTIAL = "essential";
     private final static String MEIZUBOARD[] = {"m9", "M9", "mx", "MX"};
-    private static String sMiuiVersionName;
-    private static String sFlymeVersionName;
+    private static final String CAPABILITY_FILE_NAME = "qmui_device_capability";
+    private static final int CAPABILITY_VERSION = 1;
+    private static final String KEY_CAPABILITY_VERSION = "version";
+    private static final String KEY_CAPABILITY_FINGERPRINT = "fingerprint";
+    private static final String KEY_CAPABILITY_MIUI = "miui_version_name";
+    private static final String KEY_CAPABILITY_FLYME = "flyme_version_name";
+    private static final String KEY_CAPABILITY_3RD_NOTCH = "has_3rd_notch";
+    private static volatile String sMiuiVersionName;
+    private static volatile String sFlymeVersionName;
+    private static volatile Boolean sHas3rdNotch = null;
+    private static volatile boolean sVersionNameLoaded = false;
+    private static boolean sPrepareCalled = false;
     private static boolean sIsTabletChecked = false;
     private static boolean sIsTabletValue = false;
     private static final String BRAND = Build.BRAND.toLowerCase();
 
-    static {
+    /**
+     * 在子线程探测 ROM 与设备能力(MIUI/Flyme 版本、非官方刘海屏等), 结果按 {@link Build#FINGERPRINT}
+     * 持久化到 files 目录, 之后的冷启动直接从文件读取, 系统升级后会重新探测。
+     * <p>
+     * 建议在 Application#onCreate 中调用。没有调用或探测还没完成时, 在主线程只通过 SystemProperties
+     * 读取版本信息(不读取 /system/build.prop), 在子线程则直接完整探测。
+     * </p>
+     */
+    public static void prepare(Context context) {
+        synchronized (QMUIDeviceHelper.class) {
+            if (sPrepareCalled) {
+                return;
+            }
+            sPrepareCalled = true;
+        }
+        final Context appContext = context.getApplicationContext();
+        AsyncTask.THREAD_POOL_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                // 线程池的线程会被复用, 探测完成后恢复原来的优先级
+                int tid = android.os.Process.myTid();
+                int priority = android.os.Process.getThreadPriority(tid);
+                android.os.Process.setThreadPriority(android.os.Process.THREAD_PRIORITY_BACKGROUND);
+                try {
+                    loadCapability(appContext);
+                } finally {
+                    android.os.Process.setThreadPriority(priority);
+                }
+            }
+        });
+    }
+
+    private static void loadCapability(Context context) {
+        File file = new File(context.getFilesDir(), CAPABILITY_FILE_NAME);
+        Properties capability = readProperties(file);
+        if (capability != null
+                && String.valueOf(CAPABILITY_VERSION).equals(capability.getProperty(KEY_CAPABILITY_VERSION))
+                && Build.FINGERPRINT.equals(capability.getProperty(KEY_CAPABILITY_FINGERPRINT))) {
+            applyCapability(capability);
+            return;
+        }
+        capability = probeCapability(context);
+        applyCapability(capability);
+        writeProperties(file, capability);
+    }
+
+    private static Properties probeCapability(Context context) {
+        Properties capability = new Properties();
+        capability.setProperty(KEY_CAPABILITY_VERSION, String.valueOf(CAPABILITY_VERSION));
+        capability.setProperty(KEY_CAPABILITY_FINGERPRINT, Build.FINGERPRINT);
+        String[] versionNames = probeVersionNames(true);
+        capability.setProperty(KEY_CAPABILITY_MIUI, versionNames[0] == null ? "" : versionNames[0]);
+        capability.setProperty(KEY_CAPABILITY_FLYME, versionNames[1] == null ? "" : versionNames[1]);
+        if (!QMUINotchHelper.isNotchOfficialSupport()) {
+            // Android P 以上通过 DisplayCutout 判断, 只有厂商方案需要反射探测
+            capability.setProperty(KEY_CAPABILITY_3RD_NOTCH,
+                    String.valueOf(QMUINotchHelper.has3rdNotch(context)));
+        }
+        return capability;
+    }
+
+    private static void applyCapability(Properties capability) {
+        String miui = capability.getProperty(KEY_CAPABILITY_MIUI);
+        String flyme = capability.getProperty(KEY_CAPABILITY_FLYME);
+        String has3rdNotch = capability.getProperty(KEY_CAPABILITY_3RD_NOTCH);
+        // 与 ensureVersionNameLoaded 使用同一把锁, 避免两个线程交替写入版本信息
+        synchronized (QMUIDeviceHelper.class) {
+            sMiuiVersionName = TextUtils.isEmpty(miui) ? null : miui;
+            sFlymeVersionName = TextUtils.isEmpty(flyme) ? null : flyme;
+            sHas3rdNotch = has3rdNotch == null ? null : Boolean.valueOf(has3rdNotch);
+            sVersionNameLoaded = true;
+        }
+    }
+
+    private static void ensureVersionNameLoaded() {
+        if (sVersionNameLoaded) {
+            return;
+        }
+        synchronized (QMUIDeviceHelper.class) {
+            if (sVersionNameLoaded) {
+                return;
+            }
+            // 主线程不做磁盘 I/O, SystemProperties 读取的是内存中的属性区
+            boolean readBuildProp = Looper.myLooper() != Looper.getMainLooper();
+            String[] versionNames = probeVersionNames(readBuildProp);
+            sMiuiVersionName = versionNames[0];
+            sFlymeVersionName = versionNames[1];
+            sVersionNameLoaded = true;
+        }
+    }
+
+    /**
+     * @return MIUI 与 Flyme 的版本名
+     */
+    private static String[] probeVersionNames(boolean readBuildProp) {
+        String[] result = new String[2];
         Properties properties = new Properties();
 
-        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.O) {
+        if (readBuildProp && Build.VERSION.SDK_INT < Build.VERSION_CODES.O) {
             // android 8.0，读取 /system/uild.prop 会报 permission denied
             FileInputStream fileInputStream = null;
             try {
@@ -77,12 +185,59 @@ public class QMUIDeviceHelper {
             clzSystemProperties = Class.forName("android.os.SystemProperties");
             Method getMethod = clzSystemProperties.getDeclaredMethod("get", String.class);
             // miui
-            sMiuiVersionName = getLowerCaseName(properties, getMethod, KEY_MIUI_VERSION_NAME);
+            result[0] = getLowerCaseName(properties, getMethod, KEY_MIUI_VERSION_NAME);
             //flyme
-            sFlymeVersionName = getLowerCaseName(properties, getMethod, KEY_FLYME_VERSION_NAME);
+            result[1] = getLowerCaseName(properties, getMethod, KEY_FLYME_VERSION_NAME);
         } catch (Exception e) {
             QMUILog.printErrStackTrace(TAG, e, "read SystemProperties error");
         }
+        return result;
+    }
+
+    @Nullable
+    private static Properties readProperties(File file) {
+        if (!file.exists()) {
+            return null;
+        }
+        FileInputStream inputStream = null;
+        try {
+            inputStream = new FileInputStream(file);
+            Properties properties = new Properties();
+            properties.load(inputStream);
+            return properties;
+        } catch (Exception e) {
+            QMUILog.printErrStackTrace(TAG, e, "read capability error");
+            return null;
+        } finally {
+            QMUILangHelper.close(inputStream);
+        }
+    }
+
+    private static void writeProperties(File file, Properties properties) {
+        // 先写临时文件再重命名, 避免进程被杀时留下不完整的文件
+        File tmpFile = new File(file.getPath() + ".tmp");
+        FileOutputStream outputStream = null;
+        try {
+            outputStream = new FileOutputStream(tmpFile);
+            properties.store(outputStream, null);
+            outputStream.close();
+            outputStream = null;
+            if (!tmpFile.renameTo(file)) {
+                tmpFile.delete();
+            }
+        } catch (Exception e) {
+            QMUILog.printErrStackTrace(TAG, e, "write capability error");
+        } finally {
+            QMUILangHelper.close(outputStream);
+        }
+    }
+
+    /**
+     * 持久化的非官方刘海屏探测结果, 还没探测完成或系统支持官方刘海屏 API 时返回 null
+     */
+    @Nullable
+    static Boolean getPersisted3rdNotch() {
+        return sHas3rdNotch;
     }
 
     private static boolean _isTablet(Context context) {
@@ -106,6 +261,7 @@ public class QMUIDeviceHelper {
      * 判断是否是flyme系统
      */
     public static boolean isFlyme() {
+        ensureVersionNameLoaded();
         return !TextUtils.isEmpty(sFlymeVersionName) && sFlymeVersionName.contains(FLYME);
     }
 
@@ -113,30 +269,37 @@ public class QMUIDeviceHelper {
      * 判断是否是MIUI系统
      */
     public static boolean isMIUI() {
+        ensureVersionNameLoaded();
         return !TextUtils.isEmpty(sMiuiVersionName);
     }
 
     public static boolean isMIUIV5() {
+        ensureVersionNameLoaded();
         return "v5".equals(sMiuiVersionName);
     }
 
     public static boolean isMIUIV6() {
+        ensureVersionNameLoaded();
         return "v6".equals(sMiuiVersionName);
     }
 
     public static boolean isMIUIV7() {
+        ensureVersionNameLoaded();
         return "v7".equals(sMiuiVersionName);
     }
 
     public static boolean isMIUIV8() {
+        ensureVersionNameLoaded();
         return "v8".equals(sMiuiVersionName);
     }
 
     public static boolean isMIUIV9() {
+        ensureVersionNameLoaded();
         return "v9".equals(sMiuiVersionName);
     }
 
     public static boolean isFlymeVersionHigher5_2_4() {
+        ensureVersionNameLoaded();
         //查不到默认高于5.2.4
         boolean isHigher = true;
         if (sFlymeVersionName != null && !sFlymeVersionName.equals("")) {
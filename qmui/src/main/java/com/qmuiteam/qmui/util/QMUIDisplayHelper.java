@@ -19,15 +19,19 @@ package com.qmuiteam.qmui.util;
 import android.annotation.SuppressLint;
 import android.annotation.TargetApi;
 import android.app.Activity;
+import android.content.ComponentCallbacks;
 import android.content.Context;
 import android.content.pm.PackageInfo;
 import android.content.pm.PackageManager;
 import android.content.res.Configuration;
 import android.content.res.Resources;
 import android.graphics.Point;
+import android.hardware.display.DisplayManager;
 import android.net.ConnectivityManager;
 import android.os.Build;
 import android.os.Environment;
+import android.os.Handler;
+import android.os.Looper;
 import android.provider.Settings;
 import android.util.DisplayMetrics;
 import android.util.TypedValue;
@@ -61,8 +65,18 @@ public class QMUIDisplayHelper {
      */
     private static Boolean sHasCamera = null;
 
-//    private static int[] sPortraitRealSizeCache = null;
-//    private static int[] sLandscapeRealSizeCache = null;
+    /**
+     * 真实屏幕尺寸的缓存, 按 rotation 分别缓存, 并以 (display id, 配置版本) 校验。
+     * 配置变化(旋转、分辨率/刘海设置变化等)或 Display 变化时配置版本递增, 所有缓存失效
+     */
+    private static final Object sRealSizeLock = new Object();
+    private static final int[][] sRealSizeCache = new int[4][];
+    private static int sRealSizeCacheDisplayId = -1;
+    private static int sRealSizeCacheSeq = -1;
+    private static int sConfigSeq = 0;
+    private static boolean sRealSizeInvalidatorRegistered = false;
+    private static Method sGetRawWidthMethod;
+    private static Method sGetRawHeightMethod;
 
     /**
      * 获取 DisplayMetrics
@@ -131,63 +145,113 @@ public class QMUIDisplayHelper {
      */
 
     public static int[] getRealScreenSize(Context context) {
-        // 切换屏幕导致宽高变化时不能用 cache，先去掉 cache
-        return doGetRealScreenSize(context);
-//        if (QMUIDeviceHelper.isEssentialPhone() && Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-//            // Essential Phone 8.0版本后，Display size 会根据挖孔屏的设置而得到不同的结果，不能信任 cache
-//            return doGetRealScreenSize(context);
-//        }
-//        int orientation = context.getResources().getConfiguration().orientation;
-//        int[] result;
-//        if (orientation == Configuration.ORIENTATION_LANDSCAPE) {
-//            result = sLandscapeRealSizeCache;
-//            if (result == null) {
-//                result = doGetRealScreenSize(context);
-//                if(result[0] > result[1]){
-//                    // the result may be wrong sometimes, do not cache !!!!
-//                    sLandscapeRealSizeCache = result;
-//                }
-//            }
-//            return result;
-//        } else {
-//            result = sPortraitRealSizeCache;
-//            if (result == null) {
-//                result = doGetRealScreenSize(context);
-//                if(result[0] < result[1]){
-//                    // the result may be wrong sometimes, do not cache !!!!
-//                    sPortraitRealSizeCache = result;
-//                }
-//            }
-//            return result;
-//        }
+        WindowManager w = (WindowManager) context.getSystemService(Context.WINDOW_SERVICE);
+        Display d = w.getDefaultDisplay();
+        int rotation = d.getRotation();
+        int displayId = d.getDisplayId();
+        synchronized (sRealSizeLock) {
+            ensureRealSizeInvalidator(context);
+            if (sRealSizeCacheDisplayId != displayId || sRealSizeCacheSeq != sConfigSeq) {
+                for (int i = 0; i < sRealSizeCache.length; i++) {
+                    sRealSizeCache[i] = null;
+                }
+                sRealSizeCacheDisplayId = displayId;
+                sRealSizeCacheSeq = sConfigSeq;
+            }
+            int[] result = sRealSizeCache[rotation];
+            if (result == null) {
+                result = doGetRealScreenSize(d);
+                if (sRealSizeInvalidatorRegistered) {
+                    // 没有监听到配置变化时不能信任 cache
+                    sRealSizeCache[rotation] = result;
+                }
+            }
+            // 返回副本, 避免调用方修改缓存
+            return new int[]{result[0], result[1]};
+        }
+    }
+
+    private static void ensureRealSizeInvalidator(Context context) {
+        if (sRealSizeInvalidatorRegistered) {
+            return;
+        }
+        Context appContext = context.getApplicationContext();
+        if (appContext == null) {
+            return;
+        }
+        appContext.registerComponentCallbacks(new ComponentCallbacks() {
+            @Override
+            public void onConfigurationChanged(Configuration newConfig) {
+                invalidateRealScreenSize();
+            }
+
+            @Override
+            public void onLowMemory() {
+
+            }
+        });
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1) {
+            registerDisplayListener(appContext);
+        }
+        sRealSizeInvalidatorRegistered = true;
     }
 
-    private static int[] doGetRealScreenSize(Context context) {
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR1)
+    private static void registerDisplayListener(Context context) {
+        DisplayManager displayManager = (DisplayManager) context.getSystemService(Context.DISPLAY_SERVICE);
+        if (displayManager == null) {
+            return;
+        }
+        displayManager.registerDisplayListener(new DisplayManager.DisplayListener() {
+            @Override
+            public void onDisplayAdded(int displayId) {
+
+            }
+
+            @Override
+            public void onDisplayRemoved(int displayId) {
+                invalidateRealScreenSize();
+            }
+
+            @Override
+            public void onDisplayChanged(int displayId) {
+                invalidateRealScreenSize();
+            }
+        }, new Handler(Looper.getMainLooper()));
+    }
+
+    /**
+     * 使 {@link #getRealScreenSize(Context)} 的缓存失效, 一般不需要手动调用
+     */
+    public static void invalidateRealScreenSize() {
+        synchronized (sRealSizeLock) {
+            sConfigSeq++;
+        }
+    }
+
+    private static int[] doGetRealScreenSize(Display d) {
         int[] size = new int[2];
         int widthPixels, heightPixels;
-        WindowManager w = (WindowManager) context.getSystemService(Context.WINDOW_SERVICE);
-        Display d = w.getDefaultDisplay();
-        DisplayMetrics metrics = new DisplayMetrics();
-        d.getMetrics(metrics);
-        // since SDK_INT = 1;
-        widthPixels = metrics.widthPixels;
-        heightPixels = metrics.heightPixels;
-        try {
-            // used when 17 > SDK_INT >= 14; includes window decorations (statusbar bar/menu bar)
-            widthPixels = (Integer) Display.class.getMethod("getRawWidth").invoke(d);
-            heightPixels = (Integer) Display.class.getMethod("getRawHeight").invoke(d);
-        } catch (Exception ignored) {
-        }
         if (Build.VERSION.SDK_INT >= 17) {
+            // used when SDK_INT >= 17; includes window decorations (statusbar bar/menu bar)
+            Point realSize = new Point();
+            d.getRealSize(realSize);
+            widthPixels = realSize.x;
+            heightPixels = realSize.y;
+        } else {
+            DisplayMetrics metrics = new DisplayMetrics();
+            d.getMetrics(metrics);
+            // since SDK_INT = 1;
+            widthPixels = metrics.widthPixels;
+            heightPixels = metrics.heightPixels;
             try {
-                // used when SDK_INT >= 17; includes window decorations (statusbar bar/menu bar)
-                Point realSize = new Point();
-                d.getRealSize(realSize);
-
-
-                Display.class.getMethod("getRealSize", Point.class).invoke(d, realSize);
-                widthPixels = realSize.x;
-                heightPixels = realSize.y;
+                // used when 17 > SDK_INT >= 14; includes window decorations (statusbar bar/menu bar)
+                if (sGetRawWidthMethod == null) {
+                    sGetRawWidthMethod = Display.class.getMethod("getRawWidth");
+                    sGetRawHeightMethod = Display.class.getMethod("getRawHeight");
+                }
+                widthPixels = (Integer) sGetRawWidthMethod.invoke(d);
+                heightPixels = (Integer) sGetRawHeightMethod.invoke(d);
             } catch (Exception ignored) {
             }
         }
@@ -600,8 +664,8 @@ public class QMUIDisplayHelper {
 
     // ====================== Setting ===========================
     private static final String VIVO_NAVIGATION_GESTURE = "navigation_gesture_on";
-    private static final String HUAWAI_DISPLAY_NOTCH_STATUS = "display_notch_status";
-    private static final String XIAOMI_DISPLAY_NOTCH_STATUS = "force_black";
+    static final String HUAWAI_DISPLAY_NOTCH_STATUS = "display_notch_status";
+    static final String XIAOMI_DISPLAY_NOTCH_STATUS = "force_black";
     private static final String XIAOMI_FULLSCREEN_GESTURE = "force_fsg_nav_bar";
 
     /**
@@ -19,10 +19,8 @@ package com.qmuiteam.qmui.util;
 import android.app.Activity;
 import android.content.Context;
 import android.graphics.Rect;
-import android.os.Build;
 import android.util.Log;
 import android.view.View;
-import android.view.ViewTreeObserver;
 import android.view.inputmethod.InputMethodManager;
 import android.widget.EditText;
 
@@ -94,11 +92,14 @@ public class QMUIKeyboardHelper {
 
     /**
      * Set keyboard visibility change event listener.
+     * <p>
+     * 监听由 {@link QMUIKeyboardStateTracker} 统一处理, 同一个 Activity 的多个 listener 共享一个监听,
+     * 每帧最多计算一次键盘状态。
+     * </p>
      *
      * @param activity Activity
      * @param listener KeyboardVisibilityEventListener
      */
-    @SuppressWarnings("deprecation")
     public static void setVisibilityEventListener(final Activity activity,
                                                   final KeyboardVisibilityEventListener listener) {
 
@@ -110,63 +111,33 @@ public class QMUIKeyboardHelper {
             throw new NullPointerException("Parameter:listener must not be null");
         }
 
-        final View activityRoot = QMUIViewHelper.getActivityRoot(activity);
-
-        final ViewTreeObserver.OnGlobalLayoutListener layoutListener =
-                new ViewTreeObserver.OnGlobalLayoutListener() {
-
-                    private final Rect r = new Rect();
-
-                    private final int visibleThreshold = Math.round(
-                            QMUIDisplayHelper.dp2px(activity, KEYBOARD_VISIBLE_THRESHOLD_DP));
-
-                    private boolean wasOpened = false;
-
-                    @Override
-                    public void onGlobalLayout() {
-                        activityRoot.getWindowVisibleDisplayFrame(r);
-
-                        int heightDiff = activityRoot.getRootView().getHeight() - r.height();
-
-                        boolean isOpen = heightDiff > visibleThreshold;
-
-                        if (isOpen == wasOpened) {
-                            // keyboard state has not changed
-                            return;
-                        }
-
-                        wasOpened = isOpen;
-
-                        boolean removeListener = listener.onVisibilityChanged(isOpen, heightDiff);
-                        if (removeListener) {
-                            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
-                                activityRoot.getViewTreeObserver()
-                                        .removeOnGlobalLayoutListener(this);
-                            } else {
-                                activityRoot.getViewTreeObserver()
-                                        .removeGlobalOnLayoutListener(this);
-                            }
-                        }
-                    }
-                };
-        activityRoot.getViewTreeObserver().addOnGlobalLayoutListener(layoutListener);
-        activity.getApplication()
-                .registerActivityLifecycleCallbacks(new QMUIActivityLifecycleCallbacks(activity) {
-                    @Override
-                    protected void onTargetActivityDestroyed() {
-                        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
-                            activityRoot.getViewTreeObserver()
-                                    .removeOnGlobalLayoutListener(layoutListener);
-                        } else {
-                            activityRoot.getViewTreeObserver()
-                                    .removeGlobalOnLayoutListener(layoutListener);
-                        }
-                    }
-                });
+        final QMUIKeyboardStateTracker tracker = QMUIKeyboardStateTracker.of(activity);
+        tracker.addKeyboardStateListener(new QMUIKeyboardStateTracker.KeyboardStateListener() {
+
+            private boolean wasOpened = false;
+
+            @Override
+            public void onKeyboardStateChanged(boolean isOpen, int keyboardHeight) {
+                if (isOpen == wasOpened) {
+                    // keyboard state has not changed
+                    return;
+                }
+
+                wasOpened = isOpen;
+
+                boolean removeListener = listener.onVisibilityChanged(isOpen, keyboardHeight);
+                if (removeListener) {
+                    tracker.removeKeyboardStateListener(this);
+                }
+            }
+        });
     }
 
     /**
      * Determine if keyboard is visible
+     * <p>
+     * 同步读取当前的可见区域, 不依赖 {@link QMUIKeyboardStateTracker} 是否已经收到过布局或 insets 的变化
+     * </p>
      *
      * @param activity Activity
      * @return Whether keyboard is visible or not
@@ -0,0 +1,338 @@
+/*
+ * Tencent is pleased to support the open source community by making QMUI_Android available.
+ *
+ * Copyright (C) 2017-2018 THL A29 Limited, a Tencent company. All rights reserved.
+ *
+ * Licensed under the MIT License (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/MIT
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.qmuiteam.qmui.util;
+
+import android.annotation.TargetApi;
+import android.app.Activity;
+import android.graphics.Rect;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.MainThread;
+import android.support.annotation.NonNull;
+import android.support.v4.view.OnApplyWindowInsetsListener;
+import android.support.v4.view.ViewCompat;
+import android.support.v4.view.WindowInsetsCompat;
+import android.view.Choreographer;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.ViewTreeObserver;
+import android.view.WindowInsets;
+import android.view.WindowManager;
+import android.view.animation.DecelerateInterpolator;
+import android.view.animation.Interpolator;
+
+import com.qmuiteam.qmui.R;
+
+import java.util.ArrayList;
+
+/**
+ * 键盘状态的统一监听, 每个 Window 只有一个实例, 由 {@link #of(Activity)} 获取。
+ * <p>
+ * Android 6.0 以上且 softInputMode 为 adjustResize 时, 在 DecorView 中插入一个大小为 0 的 View,
+ * 通过它自己的 OnApplyWindowInsetsListener 得知 insets 变化, 以 rootWindowInsets 中 systemWindowInsetBottom 与
+ * stableInsetBottom(导航栏)的差值作为键盘高度。其它情况才退回到 OnGlobalLayoutListener 与
+ * getWindowVisibleDisplayFrame 的方式。
+ * </p>
+ * <p>
+ * 变化只是标记状态可能改变, 每一帧最多计算一次, 状态变化时才通知所有的 {@link KeyboardStateListener}。
+ * 计算时同步读取当前状态, 所以第一次查询就是准确的, 不需要等待 insets 分发。
+ * </p>
+ * <p>
+ * support 库没有键盘动画的 API, {@link #getAnimatedKeyboardHeight()} 是在键盘高度变化后按帧插值的高度,
+ * 可以让底部输入栏等 UI 跟随键盘平滑移动。
+ * </p>
+ * <p>
+ * 不会设置 DecorView 的 OnApplyWindowInsetsListener, 不影响业务自己的 insets 处理。所有方法都需要在主线程调用。
+ * </p>
+ */
+public class QMUIKeyboardStateTracker {
+
+    private static final int ANIMATION_DURATION = 250;
+
+    public interface KeyboardStateListener {
+        /**
+         * 键盘显示状态或高度变化, 每帧最多回调一次
+         *
+         * @param keyboardHeight 键盘高度, 键盘收起时为 0。使用 insets 时是键盘本身的高度; 退回到可见区域计算时,
+         *                       是 Window 底部与可见区域底部的距离, Window 延伸到导航栏下方时会包含导航栏的高度
+         */
+        void onKeyboardStateChanged(boolean isOpen, int keyboardHeight);
+    }
+
+    public interface KeyboardAnimationListener {
+        /**
+         * 键盘高度变化后, 每一帧回调插值后的高度, fraction 为 1 时动画结束
+         */
+        void onKeyboardHeightAnimating(int animatedHeight, float fraction);
+    }
+
+    /**
+     * 获取 Activity 所在 Window 的键盘状态监听, 同一个 Window 只会创建一次, Activity 销毁时自动释放
+     */
+    @MainThread
+    public static QMUIKeyboardStateTracker of(@NonNull Activity activity) {
+        View decorView = activity.getWindow().getDecorView();
+        Object tag = decorView.getTag(R.id.qmui_keyboard_state_tracker);
+        if (tag instanceof QMUIKeyboardStateTracker) {
+            return (QMUIKeyboardStateTracker) tag;
+        }
+        final QMUIKeyboardStateTracker tracker = new QMUIKeyboardStateTracker(activity);
+        decorView.setTag(R.id.qmui_keyboard_state_tracker, tracker);
+        activity.getApplication().registerActivityLifecycleCallbacks(new QMUIActivityLifecycleCallbacks(activity) {
+            @Override
+            protected void onTargetActivityDestroyed() {
+                tracker.release();
+            }
+        });
+        return tracker;
+    }
+
+    private final View mDecorView;
+    private final int mVisibleThreshold;
+    private final boolean mUseInsets;
+    private View mInsetsProbe;
+    private final ArrayList<KeyboardStateListener> mStateListeners = new ArrayList<>();
+    private final ArrayList<KeyboardAnimationListener> mAnimationListeners = new ArrayList<>();
+    private final Rect mTempRect = new Rect();
+    private final Interpolator mInterpolator = new DecelerateInterpolator();
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private Object mFrameCallback;
+
+    private boolean mIsOpen = false;
+    private int mKeyboardHeight = 0;
+    private boolean mNotifiedOpen = false;
+    private int mNotifiedHeight = 0;
+    private boolean mIsDirty = true;
+    private boolean mIsFrameScheduled = false;
+    private boolean mIsReleased = false;
+
+    private int mAnimatedHeight = 0;
+    private int mAnimationStartHeight = 0;
+    private int mAnimationTargetHeight = 0;
+    private long mAnimationStartTime = -1;
+
+    private final ViewTreeObserver.OnGlobalLayoutListener mGlobalLayoutListener =
+            new ViewTreeObserver.OnGlobalLayoutListener() {
+                @Override
+                public void onGlobalLayout() {
+                    markDirty();
+                }
+            };
+
+    private final Runnable mFrameRunnable = new Runnable() {
+        @Override
+        public void run() {
+            doFrame(System.nanoTime());
+        }
+    };
+
+    private QMUIKeyboardStateTracker(Activity activity) {
+        mDecorView = activity.getWindow().getDecorView();
+        mVisibleThreshold = QMUIDisplayHelper.dp2px(activity, QMUIKeyboardHelper.KEYBOARD_VISIBLE_THRESHOLD_DP);
+        int adjust = activity.getWindow().getAttributes().softInputMode
+                & WindowManager.LayoutParams.SOFT_INPUT_MASK_ADJUST;
+        mUseInsets = Build.VERSION.SDK_INT >= 23 && adjust == WindowManager.LayoutParams.SOFT_INPUT_ADJUST_RESIZE
+                && mDecorView instanceof ViewGroup;
+        if (mUseInsets) {
+            installInsetsProbe(activity);
+        } else {
+            // 键盘的显示、隐藏与高度变化都会引起一次布局
+            mDecorView.getViewTreeObserver().addOnGlobalLayoutListener(mGlobalLayoutListener);
+        }
+        scheduleFrame();
+    }
+
+    private void installInsetsProbe(Activity activity) {
+        mInsetsProbe = new View(activity);
+        ViewCompat.setOnApplyWindowInsetsListener(mInsetsProbe, new OnApplyWindowInsetsListener() {
+            @Override
+            public WindowInsetsCompat onApplyWindowInsets(View v, WindowInsetsCompat insets) {
+                // 分发到这里的 insets 可能已被 DecorView 处理过, 只作为变化的信号, 计算时读取 rootWindowInsets
+                markDirty();
+                return insets;
+            }
+        });
+        // 放在内容之前: 内容中 fitsSystemWindows 的 View 会消费掉 insets, 排在它后面的 View 收不到
+        ViewGroup decorView = (ViewGroup) mDecorView;
+        View contentRoot = activity.findViewById(android.R.id.content);
+        while (contentRoot != null && contentRoot.getParent() != decorView
+                && contentRoot.getParent() instanceof View) {
+            contentRoot = (View) contentRoot.getParent();
+        }
+        int index = contentRoot == null ? -1 : decorView.indexOfChild(contentRoot);
+        decorView.addView(mInsetsProbe, Math.max(index, 0), new ViewGroup.LayoutParams(0, 0));
+    }
+
+    public void addKeyboardStateListener(@NonNull KeyboardStateListener listener) {
+        if (!mStateListeners.contains(listener)) {
+            mStateListeners.add(listener);
+        }
+    }
+
+    public void removeKeyboardStateListener(@NonNull KeyboardStateListener listener) {
+        mStateListeners.remove(listener);
+    }
+
+    public void addKeyboardAnimationListener(@NonNull KeyboardAnimationListener listener) {
+        if (!mAnimationListeners.contains(listener)) {
+            mAnimationListeners.add(listener);
+        }
+    }
+
+    public void removeKeyboardAnimationListener(@NonNull KeyboardAnimationListener listener) {
+        mAnimationListeners.remove(listener);
+    }
+
+    public boolean isKeyboardOpen() {
+        if (mIsDirty) {
+            computeState();
+        }
+        return mIsOpen;
+    }
+
+    public int getKeyboardHeight() {
+        if (mIsDirty) {
+            computeState();
+        }
+        return mKeyboardHeight;
+    }
+
+    /**
+     * @return 当前帧插值后的键盘高度
+     */
+    public int getAnimatedKeyboardHeight() {
+        return mAnimatedHeight;
+    }
+
+    private void markDirty() {
+        mIsDirty = true;
+        scheduleFrame();
+    }
+
+    private void scheduleFrame() {
+        if (mIsFrameScheduled || mIsReleased) {
+            return;
+        }
+        mIsFrameScheduled = true;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            postFrameCallback();
+        } else {
+            mHandler.post(mFrameRunnable);
+        }
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private void postFrameCallback() {
+        if (mFrameCallback == null) {
+            mFrameCallback = new Choreographer.FrameCallback() {
+                @Override
+                public void doFrame(long frameTimeNanos) {
+                    QMUIKeyboardStateTracker.this.doFrame(frameTimeNanos);
+                }
+            };
+        }
+        Choreographer.getInstance().postFrameCallback((Choreographer.FrameCallback) mFrameCallback);
+    }
+
+    private void doFrame(long frameTimeNanos) {
+        mIsFrameScheduled = false;
+        if (mIsReleased) {
+            return;
+        }
+        if (mIsDirty) {
+            computeState();
+        }
+        // 状态可能已经被 isKeyboardOpen() 等方法提前计算过, 所以与上次通知的状态比较
+        if (mNotifiedOpen != mIsOpen || mNotifiedHeight != mKeyboardHeight) {
+            mNotifiedOpen = mIsOpen;
+            mNotifiedHeight = mKeyboardHeight;
+            // 监听者可能在回调中移除自己
+            ArrayList<KeyboardStateListener> listeners = new ArrayList<>(mStateListeners);
+            for (KeyboardStateListener listener : listeners) {
+                listener.onKeyboardStateChanged(mIsOpen, mKeyboardHeight);
+            }
+        }
+        if (mAnimatedHeight != mKeyboardHeight) {
+            if (mAnimationStartTime < 0 || mAnimationTargetHeight != mKeyboardHeight) {
+                // 开始动画, 或者动画过程中键盘高度又变了, 从当前高度重新开始
+                mAnimationStartTime = frameTimeNanos;
+                mAnimationStartHeight = mAnimatedHeight;
+                mAnimationTargetHeight = mKeyboardHeight;
+            }
+            float fraction = Math.min(1f,
+                    (frameTimeNanos - mAnimationStartTime) / (ANIMATION_DURATION * 1000000f));
+            mAnimatedHeight = mAnimationStartHeight + Math.round(
+                    (mKeyboardHeight - mAnimationStartHeight) * mInterpolator.getInterpolation(fraction));
+            if (fraction >= 1f) {
+                mAnimatedHeight = mKeyboardHeight;
+                mAnimationStartTime = -1;
+            } else {
+                scheduleFrame();
+            }
+            ArrayList<KeyboardAnimationListener> listeners = new ArrayList<>(mAnimationListeners);
+            for (KeyboardAnimationListener listener : listeners) {
+                listener.onKeyboardHeightAnimating(mAnimatedHeight, fraction);
+            }
+        } else {
+            mAnimationStartTime = -1;
+        }
+    }
+
+    private void computeState() {
+        mIsDirty = false;
+        int heightDiff = mUseInsets ? getInsetKeyboardHeight() : -1;
+        if (heightDiff < 0) {
+            // 只取底部的差值, 不把状态栏算进键盘高度
+            mDecorView.getWindowVisibleDisplayFrame(mTempRect);
+            heightDiff = mDecorView.getRootView().getHeight() - mTempRect.bottom;
+        }
+        mIsOpen = heightDiff > mVisibleThreshold;
+        mKeyboardHeight = mIsOpen ? heightDiff : 0;
+    }
+
+    /**
+     * @return -1 if the window is not attached yet
+     */
+    @TargetApi(23)
+    private int getInsetKeyboardHeight() {
+        WindowInsets insets = mDecorView.getRootWindowInsets();
+        if (insets == null) {
+            return -1;
+        }
+        // stable insets 不包含键盘, 底部只有导航栏
+        return Math.max(0, insets.getSystemWindowInsetBottom() - insets.getStableInsetBottom());
+    }
+
+    @SuppressWarnings("deprecation")
+    private void release() {
+        mIsReleased = true;
+        mStateListeners.clear();
+        mAnimationListeners.clear();
+        mHandler.removeCallbacks(mFrameRunnable);
+        if (mInsetsProbe != null) {
+            ViewCompat.setOnApplyWindowInsetsListener(mInsetsProbe, null);
+            ((ViewGroup) mDecorView).removeView(mInsetsProbe);
+            mInsetsProbe = null;
+        } else if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            mDecorView.getViewTreeObserver().removeOnGlobalLayoutListener(mGlobalLayoutListener);
+        } else {
+            mDecorView.getViewTreeObserver().removeGlobalOnLayoutListener(mGlobalLayoutListener);
+        }
+        mDecorView.setTag(R.id.qmui_keyboard_state_tracker, null);
+    }
+}
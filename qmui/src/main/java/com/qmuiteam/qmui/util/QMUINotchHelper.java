@@ -20,8 +20,13 @@ import android.annotation.SuppressLint;
 import android.annotation.TargetApi;
 import android.app.Activity;
 import android.content.Context;
+import android.database.ContentObserver;
 import android.graphics.Rect;
+import android.net.Uri;
 import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.provider.Settings;
 import android.util.Log;
 import android.view.Display;
 import android.view.DisplayCutout;
@@ -31,7 +36,12 @@ import android.view.Window;
 import android.view.WindowInsets;
 import android.view.WindowManager;
 
+import com.qmuiteam.qmui.R;
+import com.qmuiteam.qmui.widget.INotchInsetConsumer;
+
 import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.WeakHashMap;
 
 import static android.content.res.Configuration.ORIENTATION_LANDSCAPE;
 
@@ -48,6 +58,10 @@ public class QMUINotchHelper {
     private static Rect sRotation270SafeInset = null;
     private static int[] sNotchSizeInHawei = null;
     private static Boolean sHuaweiIsNotchSetToShow = null;
+    private static final Rect EMPTY_SAFE_INSET = new Rect();
+    // 订阅厂商刘海屏设置变化的 consumer, 以弱引用持有
+    private static final WeakHashMap<INotchInsetConsumer, Boolean> sNotchInsetConsumers = new WeakHashMap<>();
+    private static ContentObserver sNotchSettingObserver = null;
 
     public static boolean hasNotchInVivo(Context context) {
         boolean ret = false;
@@ -116,7 +130,7 @@ public class QMUINotchHelper {
                     return false;
                 }
             }else {
-                sHasNotch = has3rdNotch(view.getContext());
+                sHasNotch = get3rdNotch(view.getContext());
             }
         }
         return sHasNotch;
@@ -138,7 +152,7 @@ public class QMUINotchHelper {
                     return false;
                 }
             }else {
-                sHasNotch = has3rdNotch(activity);
+                sHasNotch = get3rdNotch(activity);
             }
         }
         return sHasNotch;
@@ -162,6 +176,15 @@ public class QMUINotchHelper {
         }
     }
 
+    private static boolean get3rdNotch(Context context) {
+        // 优先使用 QMUIDeviceHelper#prepare 持久化的结果, 避免在主线程反射厂商 API
+        Boolean persisted = QMUIDeviceHelper.getPersisted3rdNotch();
+        if (persisted != null) {
+            return persisted;
+        }
+        return has3rdNotch(context);
+    }
+
     public static boolean has3rdNotch(Context context){
         if (QMUIDeviceHelper.isHuawei()) {
             return hasNotchInHuawei(context);
@@ -252,47 +275,137 @@ public class QMUINotchHelper {
 
     private static Rect getSafeInsetRect(Activity activity) {
         if(isNotchOfficialSupport()){
-            Rect rect = new Rect();
             View decorView = activity.getWindow().getDecorView();
-            getOfficialSafeInsetRect(decorView, rect);
-            return rect;
+            return getOfficialSafeInsetRect(decorView);
         }
         return get3rdSafeInsetRect(activity);
     }
 
     private static Rect getSafeInsetRect(View view) {
         if(isNotchOfficialSupport()){
-            Rect rect = new Rect();
-            getOfficialSafeInsetRect(view, rect);
-            return rect;
+            return getOfficialSafeInsetRect(view);
         }
         return get3rdSafeInsetRect(view.getContext());
     }
 
     @TargetApi(28)
-    private static void getOfficialSafeInsetRect(View view, Rect out) {
+    private static Rect getOfficialSafeInsetRect(View view) {
         if(view == null){
-            return;
+            return EMPTY_SAFE_INSET;
         }
+        // 安全区域属于窗口, 以根布局(Activity 中为 DecorView)的 tag 缓存, 不同窗口互不影响。
+        // tag 为 Rect[4], 下标为 Surface.ROTATION_*, 返回的是缓存的 Rect 本身, 只在本类内部读取
+        View rootView = view.getRootView();
+        int screenRotation = getScreenRotation(view.getContext());
+        Rect[] safeInsets = (Rect[]) rootView.getTag(R.id.qmui_notch_safe_inset_tag);
+        Rect rect = safeInsets == null ? null : safeInsets[screenRotation];
         WindowInsets rootWindowInsets = view.getRootWindowInsets();
-        if(rootWindowInsets == null){
+        if (rootWindowInsets == null) {
+            // view not attached, use the last snapshot of this window if any
+            return rect == null ? EMPTY_SAFE_INSET : rect;
+        }
+        return updateOfficialSafeInset(rootView, screenRotation, rootWindowInsets);
+    }
+
+    /**
+     * 根布局收到新的 WindowInsets 时调用, 刷新这个窗口当前方向的安全区域快照(Android P 以上)
+     */
+    public static void onRootWindowInsetsChanged(View view) {
+        if (!isNotchOfficialSupport()) {
             return;
         }
+        getOfficialSafeInsetRect(view);
+    }
+
+    /**
+     * 用 WindowInsets 中的 DisplayCutout 覆盖当前方向的快照, 每次都会重新赋值;
+     * 每个方向的 Rect 只在第一次时创建, 之后复用
+     */
+    @TargetApi(28)
+    private static Rect updateOfficialSafeInset(View rootView, int screenRotation, WindowInsets rootWindowInsets) {
+        Rect[] safeInsets = (Rect[]) rootView.getTag(R.id.qmui_notch_safe_inset_tag);
+        if (safeInsets == null) {
+            safeInsets = new Rect[4];
+            rootView.setTag(R.id.qmui_notch_safe_inset_tag, safeInsets);
+        }
+        Rect rect = safeInsets[screenRotation];
+        if (rect == null) {
+            rect = new Rect();
+            safeInsets[screenRotation] = rect;
+        }
         DisplayCutout displayCutout = rootWindowInsets.getDisplayCutout();
-        if(displayCutout != null){
-            out.set(displayCutout.getSafeInsetLeft(), displayCutout.getSafeInsetTop(),
+        if (displayCutout == null) {
+            rect.setEmpty();
+        } else {
+            rect.set(displayCutout.getSafeInsetLeft(), displayCutout.getSafeInsetTop(),
                     displayCutout.getSafeInsetRight(), displayCutout.getSafeInsetBottom());
         }
+        return rect;
     }
 
-    private static Rect get3rdSafeInsetRect(Context context){
-        // 全面屏设置项更改
+    /**
+     * 订阅安全区域的变化: 厂商的刘海屏设置项(华为隐藏刘海、小米隐藏刘海)改变时, 会主动调用
+     * {@link INotchInsetConsumer#notifyInsetMaybeChanged()}, 不需要在布局时轮询设置项。
+     * Android P 以上的变化由 WindowInsets 分发, 不需要订阅。
+     * <p>
+     * consumer 以弱引用持有, 需要在主线程调用
+     * </p>
+     */
+    public static void addNotchInsetConsumer(Context context, INotchInsetConsumer consumer) {
+        if (isNotchOfficialSupport()) {
+            return;
+        }
+        registerNotchSettingObserverIfNeeded(context);
+        sNotchInsetConsumers.put(consumer, Boolean.TRUE);
+    }
+
+    public static void removeNotchInsetConsumer(INotchInsetConsumer consumer) {
+        sNotchInsetConsumers.remove(consumer);
+    }
+
+    private static void registerNotchSettingObserverIfNeeded(Context context) {
+        if (sNotchSettingObserver != null) {
+            return;
+        }
+        Uri uri = null;
         if (QMUIDeviceHelper.isHuawei()) {
-            boolean isHuaweiNotchSetToShow = QMUIDisplayHelper.huaweiIsNotchSetToShowInSetting(context);
-            if (sHuaweiIsNotchSetToShow != null && sHuaweiIsNotchSetToShow != isHuaweiNotchSetToShow) {
-                clearLandscapeRectInfo();
+            uri = Settings.Secure.getUriFor(QMUIDisplayHelper.HUAWAI_DISPLAY_NOTCH_STATUS);
+        } else if (QMUIDeviceHelper.isXiaomi() && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1) {
+            uri = Settings.Global.getUriFor(QMUIDisplayHelper.XIAOMI_DISPLAY_NOTCH_STATUS);
+        }
+        if (uri == null) {
+            return;
+        }
+        final Context appContext = context.getApplicationContext();
+        sNotchSettingObserver = new ContentObserver(new Handler(Looper.getMainLooper())) {
+            @Override
+            public void onChange(boolean selfChange) {
+                onNotchSettingChanged(appContext);
             }
-            sHuaweiIsNotchSetToShow = isHuaweiNotchSetToShow;
+        };
+        appContext.getContentResolver().registerContentObserver(uri, false, sNotchSettingObserver);
+    }
+
+    private static void onNotchSettingChanged(Context context) {
+        if (QMUIDeviceHelper.isHuawei()) {
+            sHuaweiIsNotchSetToShow = QMUIDisplayHelper.huaweiIsNotchSetToShowInSetting(context);
+        }
+        clearAllRectInfo();
+        if (sNotchInsetConsumers.isEmpty()) {
+            return;
+        }
+        // consumer 可能在回调中取消订阅
+        ArrayList<INotchInsetConsumer> consumers = new ArrayList<>(sNotchInsetConsumers.keySet());
+        for (INotchInsetConsumer consumer : consumers) {
+            consumer.notifyInsetMaybeChanged();
+        }
+    }
+
+    private static Rect get3rdSafeInsetRect(Context context){
+        // 全面屏设置项的更改由 ContentObserver 监听, 这里只在第一次读取
+        registerNotchSettingObserverIfNeeded(context);
+        if (QMUIDeviceHelper.isHuawei() && sHuaweiIsNotchSetToShow == null) {
+            sHuaweiIsNotchSetToShow = QMUIDisplayHelper.huaweiIsNotchSetToShowInSetting(context);
         }
         int screenRotation = getScreenRotation(context);
         if (screenRotation == Surface.ROTATION_90) {
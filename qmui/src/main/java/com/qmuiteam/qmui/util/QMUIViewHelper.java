@@ -93,6 +93,7 @@ public class QMUIViewHelper {
      */
     @SuppressWarnings("deprecation")
     public static void requestApplyInsets(Window window) {
+        QMUIWindowInsetHelper.markInsetsRequested();
         if (Build.VERSION.SDK_INT >= 19 && Build.VERSION.SDK_INT < 21) {
             window.getDecorView().requestFitSystemWindows();
         } else if (Build.VERSION.SDK_INT >= 21) {
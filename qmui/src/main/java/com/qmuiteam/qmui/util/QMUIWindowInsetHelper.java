@@ -22,6 +22,7 @@ import android.content.res.Configuration;
 import android.graphics.Rect;
 import android.os.Build;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.support.design.widget.CoordinatorLayout;
 import android.support.v4.view.ViewCompat;
 import android.support.v4.view.WindowInsetsCompat;
@@ -30,6 +31,7 @@ import android.view.Gravity;
 import android.view.View;
 import android.view.ViewGroup;
 import android.view.ViewParent;
+import android.view.ViewTreeObserver;
 import android.view.WindowInsets;
 import android.widget.FrameLayout;
 
@@ -40,15 +42,71 @@ import com.qmuiteam.qmui.widget.IWindowInsetLayout;
 import java.lang.ref.WeakReference;
 
 /**
+ * WindowInsets 的分发会从根布局一路往下, 每一层 {@link IWindowInsetLayout} 都重新计算并设置 padding。
+ * 为了避免一次键盘弹起在很深的 Fragment 栈里引发一连串的布局:
+ * <ul>
+ * <li>如果某一层收到的 insets 与上次相同, 子 View 也没有变化, 且期间没有任何 View 请求重新分发
+ * (见 {@link #markInsetsRequested()}), 则直接复用上次的结果, 不再往下分发</li>
+ * <li>请求重新分发时统一使用 {@link #requestApplyInsets(View)}, 同一帧内的多次请求会由 ViewRootImpl 合并为一次,
+ * 在下一次 measure 之前一次性完成所有 padding 的设置</li>
+ * </ul>
+ * 可以通过 {@link #setInsetDispatchMonitor(InsetDispatchMonitor)} 统计每次 insets 变化引起的布局次数。
+ *
  * @author cginechen
  * @date 2017-09-13
  */
 
 public class QMUIWindowInsetHelper {
     private static final Object KEYBOARD_CONSUMER = new Object();
+    private static int sRequestGeneration = 0;
+    private static int sDispatchDepth = 0;
+    private static int sDispatchedCount = 0;
+    private static int sSkippedCount = 0;
+    private static InsetDispatchMonitor sInsetDispatchMonitor;
     private final int KEYBOARD_HEIGHT_BOUNDARY;
     private final WeakReference<IWindowInsetLayout> mWindowInsetLayoutWR;
     private int sApplySystemWindowInsetsCount = 0;
+    private boolean mHasDispatched = false;
+    private boolean mLastConsumed = false;
+    private int mLastGeneration = 0;
+    private final Rect mLastInsets = new Rect();
+    private View[] mLastChildren = new View[0];
+    private int mLastChildCount = 0;
+
+    public interface InsetDispatchMonitor {
+        /**
+         * 一次 insets 变化分发完成并绘制了下一帧
+         *
+         * @param root            最外层的 {@link IWindowInsetLayout}
+         * @param dispatchedCount 实际处理了 insets 的 {@link IWindowInsetLayout} 个数
+         * @param skippedCount    因为 insets 没有变化而跳过的 {@link IWindowInsetLayout} 个数
+         * @param layoutPassCount 从分发到下一帧绘制之间发生的布局次数
+         */
+        void onInsetDispatched(View root, int dispatchedCount, int skippedCount, int layoutPassCount);
+    }
+
+    public static void setInsetDispatchMonitor(@Nullable InsetDispatchMonitor monitor) {
+        sInsetDispatchMonitor = monitor;
+    }
+
+    /**
+     * 请求重新分发 insets, 所有 {@link IWindowInsetLayout} 都会重新处理一次。
+     * 需要在主线程调用
+     */
+    public static void requestApplyInsets(View view) {
+        markInsetsRequested();
+        ViewCompat.requestApplyInsets(view);
+    }
+
+    /**
+     * 标记 insets 需要重新分发, 之后的分发不再复用上次的结果。
+     * 子 View 可能绕过 {@link #requestApplyInsets(View)} 直接调用 {@link ViewCompat#requestApplyInsets(View)}
+     * (如 CoordinatorLayout、AppBarLayout、DrawerLayout), 所以使用 QMUIWindowInsetHelper 的容器需要在
+     * {@link View#requestFitSystemWindows()} 中调用这个方法, 请求从子 View 往上传递时都会经过这里
+     */
+    public static void markInsetsRequested() {
+        sRequestGeneration++;
+    }
 
     public QMUIWindowInsetHelper(ViewGroup viewGroup, IWindowInsetLayout windowInsetLayout) {
         mWindowInsetLayoutWR = new WeakReference<>(windowInsetLayout);
@@ -80,6 +138,7 @@ public class QMUIWindowInsetHelper {
         viewGroup.setOnApplyWindowInsetsListener(new View.OnApplyWindowInsetsListener() {
             @Override
             public WindowInsets onApplyWindowInsets(View view, WindowInsets windowInsets) {
+                QMUINotchHelper.onRootWindowInsetsChanged(view);
                 if (mWindowInsetLayoutWR.get() != null &&
                         mWindowInsetLayoutWR.get().applySystemWindowInsets21(windowInsets)) {
                     windowInsets = windowInsets.consumeSystemWindowInsets();
@@ -97,6 +156,10 @@ public class QMUIWindowInsetHelper {
     @SuppressWarnings("deprecation")
     @TargetApi(19)
     public boolean defaultApplySystemWindowInsets19(ViewGroup viewGroup, Rect insets) {
+        if (canSkipDispatch(viewGroup, insets.left, insets.top, insets.right, insets.bottom)) {
+            return mLastConsumed;
+        }
+        onDispatchStart(viewGroup, insets.left, insets.top, insets.right, insets.bottom);
         boolean consumed = false;
         if (insets.bottom >= KEYBOARD_HEIGHT_BOUNDARY) {
             QMUIViewHelper.setPaddingBottom(viewGroup, insets.bottom);
@@ -129,6 +192,7 @@ public class QMUIWindowInsetHelper {
             }
         }
 
+        onDispatchEnd(viewGroup, consumed);
         return consumed;
     }
 
@@ -146,6 +210,12 @@ public class QMUIWindowInsetHelper {
         if (!insets.hasSystemWindowInsets()) {
             return false;
         }
+        if (canSkipDispatch(viewGroup, insets.getSystemWindowInsetLeft(), insets.getSystemWindowInsetTop(),
+                insets.getSystemWindowInsetRight(), insets.getSystemWindowInsetBottom())) {
+            return mLastConsumed;
+        }
+        onDispatchStart(viewGroup, insets.getSystemWindowInsetLeft(), insets.getSystemWindowInsetTop(),
+                insets.getSystemWindowInsetRight(), insets.getSystemWindowInsetBottom());
         boolean consumed = false;
         boolean showKeyboard = false;
         if (insets.getSystemWindowInsetBottom() >= KEYBOARD_HEIGHT_BOUNDARY) {
@@ -183,6 +253,7 @@ public class QMUIWindowInsetHelper {
             consumed = consumed || (windowInsetsCompat != null && windowInsetsCompat.isConsumed());
         }
 
+        onDispatchEnd(viewGroup, consumed);
         return consumed;
     }
 
@@ -198,6 +269,13 @@ public class QMUIWindowInsetHelper {
             insets = insets.consumeDisplayCutout();
         }
 
+        if (canSkipDispatch(viewGroup, insets.getSystemWindowInsetLeft(), insets.getSystemWindowInsetTop(),
+                insets.getSystemWindowInsetRight(), insets.getSystemWindowInsetBottom())) {
+            sApplySystemWindowInsetsCount--;
+            return mLastConsumed;
+        }
+        onDispatchStart(viewGroup, insets.getSystemWindowInsetLeft(), insets.getSystemWindowInsetTop(),
+                insets.getSystemWindowInsetRight(), insets.getSystemWindowInsetBottom());
         boolean consumed = false;
         if (insets.hasSystemWindowInsets()) {
             boolean showKeyboard = false;
@@ -227,10 +305,62 @@ public class QMUIWindowInsetHelper {
                 consumed = consumed || windowInsets.isConsumed();
             }
         }
+        onDispatchEnd(viewGroup, consumed);
         sApplySystemWindowInsetsCount--;
         return consumed;
     }
 
+    private boolean canSkipDispatch(ViewGroup viewGroup, int left, int top, int right, int bottom) {
+        boolean canSkip = mHasDispatched
+                && mLastGeneration == sRequestGeneration
+                && mLastInsets.left == left && mLastInsets.top == top
+                && mLastInsets.right == right && mLastInsets.bottom == bottom
+                && mLastChildCount == viewGroup.getChildCount();
+        if (canSkip) {
+            for (int i = 0; i < mLastChildCount; i++) {
+                if (mLastChildren[i] != viewGroup.getChildAt(i)) {
+                    canSkip = false;
+                    break;
+                }
+            }
+        }
+        if (canSkip) {
+            sSkippedCount++;
+        }
+        return canSkip;
+    }
+
+    private void onDispatchStart(ViewGroup viewGroup, int left, int top, int right, int bottom) {
+        if (sDispatchDepth == 0) {
+            sDispatchedCount = 0;
+            sSkippedCount = 0;
+        }
+        sDispatchDepth++;
+        sDispatchedCount++;
+        mLastInsets.set(left, top, right, bottom);
+        mLastGeneration = sRequestGeneration;
+        int childCount = viewGroup.getChildCount();
+        if (mLastChildren.length < childCount) {
+            mLastChildren = new View[childCount];
+        }
+        for (int i = 0; i < mLastChildren.length; i++) {
+            mLastChildren[i] = i < childCount ? viewGroup.getChildAt(i) : null;
+        }
+        mLastChildCount = childCount;
+    }
+
+    private void onDispatchEnd(ViewGroup viewGroup, boolean consumed) {
+        mHasDispatched = true;
+        mLastConsumed = consumed;
+        sDispatchDepth--;
+        if (sDispatchDepth == 0 && sInsetDispatchMonitor != null) {
+            LayoutPassCounter counter = new LayoutPassCounter(viewGroup, sDispatchedCount, sSkippedCount);
+            ViewTreeObserver observer = viewGroup.getViewTreeObserver();
+            observer.addOnGlobalLayoutListener(counter);
+            observer.addOnPreDrawListener(counter);
+        }
+    }
+
     private void dispatchNotchInsetChange(View view) {
         if (view instanceof INotchInsetConsumer) {
             boolean stop = ((INotchInsetConsumer) view).notifyInsetMaybeChanged();
@@ -247,6 +377,37 @@ public class QMUIWindowInsetHelper {
         }
     }
 
+    private static class LayoutPassCounter implements ViewTreeObserver.OnGlobalLayoutListener,
+            ViewTreeObserver.OnPreDrawListener {
+        private final View mRoot;
+        private final int mDispatchedCount;
+        private final int mSkippedCount;
+        private int mLayoutPassCount = 0;
+
+        LayoutPassCounter(View root, int dispatchedCount, int skippedCount) {
+            mRoot = root;
+            mDispatchedCount = dispatchedCount;
+            mSkippedCount = skippedCount;
+        }
+
+        @Override
+        public void onGlobalLayout() {
+            mLayoutPassCount++;
+        }
+
+        @SuppressWarnings("deprecation")
+        @Override
+        public boolean onPreDraw() {
+            ViewTreeObserver observer = mRoot.getViewTreeObserver();
+            observer.removeGlobalOnLayoutListener(this);
+            observer.removeOnPreDrawListener(this);
+            if (sInsetDispatchMonitor != null) {
+                sInsetDispatchMonitor.onInsetDispatched(mRoot, mDispatchedCount, mSkippedCount, mLayoutPassCount);
+            }
+            return true;
+        }
+    }
+
     @SuppressWarnings("deprecation")
     @TargetApi(19)
     public static boolean jumpDispatch(View child) {
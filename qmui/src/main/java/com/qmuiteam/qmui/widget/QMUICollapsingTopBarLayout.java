@@ -74,6 +74,7 @@ import com.qmuiteam.qmui.util.QMUILangHelper;
 import com.qmuiteam.qmui.util.QMUINotchHelper;
 import com.qmuiteam.qmui.util.QMUIViewHelper;
 import com.qmuiteam.qmui.util.QMUIViewOffsetHelper;
+import com.qmuiteam.qmui.util.QMUIWindowInsetHelper;
 
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
@@ -234,7 +235,7 @@ public class QMUICollapsingTopBarLayout extends FrameLayout implements IWindowIn
             ((AppBarLayout) parent).addOnOffsetChangedListener(mOnOffsetChangedListener);
 
             // We're attached, so lets request an inset dispatch
-            ViewCompat.requestApplyInsets(this);
+            QMUIWindowInsetHelper.requestApplyInsets(this);
         }
     }
 
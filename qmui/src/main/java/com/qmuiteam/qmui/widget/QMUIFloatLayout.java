@@ -16,9 +16,10 @@
 
 package com.qmuiteam.qmui.widget;
 
-import android.annotation.SuppressLint;
+import android.annotation.TargetApi;
 import android.content.Context;
 import android.content.res.TypedArray;
+import android.os.Build;
 import android.util.AttributeSet;
 import android.view.Gravity;
 import android.view.View;
@@ -26,6 +27,8 @@ import android.view.ViewGroup;
 
 import com.qmuiteam.qmui.R;
 
+import java.util.Arrays;
+
 /**
  * 该 layout 使子 View 类似 CSS 中的 float:left 效果, 从左到右排列子 View 并自动换行。支持以下特性：
  * <ul>
@@ -54,18 +57,43 @@ public class QMUIFloatLayout extends ViewGroup {
      * <p>每一行的item数目，下标表示行下标，在onMeasured的时候计算得出，供onLayout去使用。</p>
      * <p>若mItemNumberInEachLine[x]==0，则表示第x行已经没有item了</p>
      */
-    private int[] mItemNumberInEachLine;
+    private int[] mItemNumberInEachLine = new int[0];
     /**
      * <p>每一行的item的宽度和（包括item直接的间距），下标表示行下标，
      * 如 mWidthSumInEachLine[x]表示第x行的item的宽度和（包括item直接的间距）</p>
      * <p>在onMeasured的时候计算得出，供onLayout去使用</p>
      */
-    private int[] mWidthSumInEachLine;
+    private int[] mWidthSumInEachLine = new int[0];
     /**
      * onMeasure过程中实际参与measure的子View个数
      */
     private int measuredChildCount;
 
+    /**
+     * <p>measure 缓存：记录上一次 onMeasure 的条件与结果。</p>
+     * <p>measure spec 不变且已 measure 的子 View 都没有 requestLayout 时，直接复用上一次的结果；
+     * 若只是在末尾追加了子 View，则从上一次结束的位置继续计算换行。</p>
+     */
+    private boolean mMeasureCacheValid = false;
+    /**
+     * 上一次 measure 之后子 View 是否只在末尾追加过，中间插入或移除都会导致下标错位
+     */
+    private boolean mChildOrderUnchanged = false;
+    private int mLastWidthMeasureSpec;
+    private int mLastHeightMeasureSpec;
+    private int mLastChildCount;
+    private int mLastGoneChildCount;
+    private int mLastMeasureEndIndex;
+    private boolean mLastReachLimit;
+    private int mLastLineIndex;
+    private int mLastChildPositionX;
+    private int mLastChildPositionY;
+    private int mLastMaxLineHeight;
+    private boolean mLastLineSpacingTrimmed;
+    private int mLastResultWidth;
+    private int mLastResultHeight;
+    private OnHierarchyChangeListener mOuterHierarchyChangeListener;
+
     public QMUIFloatLayout(Context context) {
         this(context, null);
     }
@@ -96,9 +124,95 @@ public class QMUIFloatLayout extends ViewGroup {
             setMaxNumber(maxNumber);
         }
         array.recycle();
+        super.setOnHierarchyChangeListener(new OnHierarchyChangeListener() {
+            @Override
+            public void onChildViewAdded(View parent, View child) {
+                if (indexOfChild(child) != getChildCount() - 1) {
+                    // 不是在末尾追加，之前的换行结果不能再用
+                    invalidateMeasureCache();
+                    mChildOrderUnchanged = false;
+                }
+                if (mOuterHierarchyChangeListener != null) {
+                    mOuterHierarchyChangeListener.onChildViewAdded(parent, child);
+                }
+            }
+
+            @Override
+            public void onChildViewRemoved(View parent, View child) {
+                invalidateMeasureCache();
+                mChildOrderUnchanged = false;
+                if (mOuterHierarchyChangeListener != null) {
+                    mOuterHierarchyChangeListener.onChildViewRemoved(parent, child);
+                }
+            }
+        });
+    }
+
+    @Override
+    public void setOnHierarchyChangeListener(OnHierarchyChangeListener listener) {
+        mOuterHierarchyChangeListener = listener;
+    }
+
+    @Override
+    public void setPadding(int left, int top, int right, int bottom) {
+        // padding 不在 MeasureSpec 里，变化时需要重新计算换行
+        invalidateMeasureCache();
+        super.setPadding(left, top, right, bottom);
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR1)
+    @Override
+    public void setPaddingRelative(int start, int top, int end, int bottom) {
+        invalidateMeasureCache();
+        super.setPaddingRelative(start, top, end, bottom);
+    }
+
+    /**
+     * 标记 measure 缓存失效，下一次 onMeasure 会重新计算所有行
+     */
+    private void invalidateMeasureCache() {
+        mMeasureCacheValid = false;
+    }
+
+    /**
+     * 保证行数组的容量，只在容量不足时扩容，避免每次 measure 都重新分配
+     */
+    private void ensureLineArrayCapacity(int count, boolean keepContent) {
+        int capacity = mItemNumberInEachLine.length;
+        if (capacity >= count) {
+            return;
+        }
+        int newCapacity = Math.max(count, capacity * 2);
+        if (keepContent) {
+            mItemNumberInEachLine = Arrays.copyOf(mItemNumberInEachLine, newCapacity);
+            mWidthSumInEachLine = Arrays.copyOf(mWidthSumInEachLine, newCapacity);
+        } else {
+            mItemNumberInEachLine = new int[newCapacity];
+            mWidthSumInEachLine = new int[newCapacity];
+        }
+    }
+
+    /**
+     * 上一次参与 measure 的子 View 是否都没有变化(没有 requestLayout, GONE 的个数也没变)
+     */
+    private boolean isLastMeasuredChildrenUnchanged(int count) {
+        if (count < mLastChildCount) {
+            return false;
+        }
+        int goneCount = 0;
+        for (int i = 0; i < mLastMeasureEndIndex; i++) {
+            final View child = getChildAt(i);
+            if (child.getVisibility() == GONE) {
+                goneCount++;
+                continue;
+            }
+            if (child.isLayoutRequested()) {
+                return false;
+            }
+        }
+        return goneCount == mLastGoneChildCount;
     }
 
-    @SuppressLint("DrawAllocation")
     @Override
     protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
         int widthSpecMode = MeasureSpec.getMode(widthMeasureSpec);
@@ -106,50 +220,93 @@ public class QMUIFloatLayout extends ViewGroup {
         int heightSpecMode = MeasureSpec.getMode(heightMeasureSpec);
         int heightSpecSize = MeasureSpec.getSize(heightMeasureSpec);
 
-        int maxLineHeight = 0;
+        final int count = getChildCount();
+
+        // 测量条件和上一次相同时，没有变化的子 View 可以直接复用上一次的测量结果
+        final boolean sameSpec = mMeasureCacheValid
+                && widthMeasureSpec == mLastWidthMeasureSpec
+                && heightMeasureSpec == mLastHeightMeasureSpec;
+        final boolean childrenUnchanged = sameSpec && isLastMeasuredChildrenUnchanged(count);
+        if (childrenUnchanged && (count == mLastChildCount || mLastReachLimit)) {
+            // 什么都没变，或者新增的子 View 本来就超出了最大限制，直接使用上一次的结果
+            setMeasuredDimension(mLastResultWidth, mLastResultHeight);
+            return;
+        }
+        // 只在末尾追加了子 View 时，从上一次结束的位置继续计算换行
+        final boolean resume = childrenUnchanged && widthSpecMode == MeasureSpec.EXACTLY;
+        final int reusableMeasureEnd = sameSpec && mChildOrderUnchanged ? mLastMeasureEndIndex : 0;
+        ensureLineArrayCapacity(count, resume);
 
+        int maxLineHeight;
         int resultWidth;
         int resultHeight;
-
-        final int count = getChildCount();
-
-        mItemNumberInEachLine = new int[count];
-        mWidthSumInEachLine = new int[count];
-        int lineIndex = 0;
+        int lineIndex;
+        int goneCount;
+        boolean reachLimit = false;
 
         // 若FloatLayout指定了MATCH_PARENT或固定宽度，则需要使子View换行
         if (widthSpecMode == MeasureSpec.EXACTLY) {
             resultWidth = widthSpecSize;
 
-            measuredChildCount = 0;
-
             // 下一个子View的position
-            int childPositionX = getPaddingLeft();
-            int childPositionY = getPaddingTop();
+            int childPositionX;
+            int childPositionY;
+            int startIndex;
+
+            if (resume) {
+                startIndex = mLastMeasureEndIndex;
+                lineIndex = mLastLineIndex;
+                childPositionX = mLastChildPositionX;
+                childPositionY = mLastChildPositionY;
+                maxLineHeight = mLastMaxLineHeight;
+                goneCount = mLastGoneChildCount;
+                if (mLastLineSpacingTrimmed) {
+                    // 上一次在行末减掉的 space 需要加回来
+                    mWidthSumInEachLine[lineIndex] += mChildHorizontalSpacing;
+                }
+            } else {
+                Arrays.fill(mItemNumberInEachLine, 0);
+                Arrays.fill(mWidthSumInEachLine, 0);
+                startIndex = 0;
+                lineIndex = 0;
+                childPositionX = getPaddingLeft();
+                childPositionY = getPaddingTop();
+                maxLineHeight = 0;
+                goneCount = 0;
+                measuredChildCount = 0;
+            }
 
             // 子View的Right最大可达到的x坐标
             int childMaxRight = widthSpecSize - getPaddingRight();
 
-            for (int i = 0; i < count; i++) {
+            int measureEndIndex = count;
+            for (int i = startIndex; i < count; i++) {
                 if (mMaxMode == NUMBER && measuredChildCount >= mMaximum) {
                     // 超出最多数量，则不再继续
+                    reachLimit = true;
+                    measureEndIndex = i;
                     break;
                 } else if (mMaxMode == LINES && lineIndex >= mMaximum) {
                     // 超出最多行数，则不再继续
+                    reachLimit = true;
+                    measureEndIndex = i;
                     break;
                 }
 
                 final View child = getChildAt(i);
                 if (child.getVisibility() == GONE) {
+                    goneCount++;
                     continue;
                 }
 
-                final LayoutParams childLayoutParams = child.getLayoutParams();
-                final int childWidthMeasureSpec = getChildMeasureSpec(widthMeasureSpec,
-                        getPaddingLeft() + getPaddingRight(), childLayoutParams.width);
-                final int childHeightMeasureSpec = getChildMeasureSpec(heightMeasureSpec,
-                        getPaddingTop() + getPaddingBottom(), childLayoutParams.height);
-                child.measure(childWidthMeasureSpec, childHeightMeasureSpec);
+                if (i >= reusableMeasureEnd || child.isLayoutRequested()) {
+                    final LayoutParams childLayoutParams = child.getLayoutParams();
+                    final int childWidthMeasureSpec = getChildMeasureSpec(widthMeasureSpec,
+                            getPaddingLeft() + getPaddingRight(), childLayoutParams.width);
+                    final int childHeightMeasureSpec = getChildMeasureSpec(heightMeasureSpec,
+                            getPaddingTop() + getPaddingBottom(), childLayoutParams.height);
+                    child.measure(childWidthMeasureSpec, childHeightMeasureSpec);
+                }
 
                 final int childw = child.getMeasuredWidth();
                 maxLineHeight = Math.max(maxLineHeight, child.getMeasuredHeight());
@@ -158,6 +315,9 @@ public class QMUIFloatLayout extends ViewGroup {
                     // 如果换行后超出最大行数，则不再继续
                     if (mMaxMode == LINES) {
                         if (lineIndex + 1 >= mMaximum) {
+                            reachLimit = true;
+                            // 该子 View 已经 measure 过，它的尺寸变化也会影响结果
+                            measureEndIndex = i + 1;
                             break;
                         }
                     }
@@ -171,8 +331,14 @@ public class QMUIFloatLayout extends ViewGroup {
                 childPositionX += (childw + mChildHorizontalSpacing);
                 measuredChildCount++;
             }
+            mLastMeasureEndIndex = measureEndIndex;
+            mLastLineIndex = lineIndex;
+            mLastChildPositionX = childPositionX;
+            mLastChildPositionY = childPositionY;
+            mLastMaxLineHeight = maxLineHeight;
             // 如果最后一个item不是刚好在行末（即lineCount最后没有+1，也就是mWidthSumInEachLine[lineCount]非0），则要减去最后一个item的space
-            if (mWidthSumInEachLine.length > 0 && mWidthSumInEachLine[lineIndex] > 0) {
+            mLastLineSpacingTrimmed = count > 0 && mWidthSumInEachLine[lineIndex] > 0;
+            if (mLastLineSpacingTrimmed) {
                 mWidthSumInEachLine[lineIndex] -= mChildHorizontalSpacing;
             }
             if (heightSpecMode == MeasureSpec.UNSPECIFIED) {
@@ -186,46 +352,68 @@ public class QMUIFloatLayout extends ViewGroup {
 
         } else {
             // 不计算换行，直接一行铺开
+            Arrays.fill(mItemNumberInEachLine, 0);
+            Arrays.fill(mWidthSumInEachLine, 0);
             resultWidth = getPaddingLeft() + getPaddingRight();
             measuredChildCount = 0;
+            maxLineHeight = 0;
+            lineIndex = 0;
+            goneCount = 0;
 
+            int measureEndIndex = count;
             for (int i = 0; i < count; i++) {
                 if (mMaxMode == NUMBER) {
                     // 超出最多数量，则不再继续
                     if (measuredChildCount > mMaximum) {
+                        reachLimit = true;
+                        measureEndIndex = i;
                         break;
                     }
                 } else if (mMaxMode == LINES) {
                     // 超出最大行数，则不再继续
                     if (1 > mMaximum) {
+                        reachLimit = true;
+                        measureEndIndex = i;
                         break;
                     }
                 }
                 final View child = getChildAt(i);
                 if (child.getVisibility() == GONE) {
+                    goneCount++;
                     continue;
                 }
-                final LayoutParams childLayoutParams = child.getLayoutParams();
-                final int childWidthMeasureSpec = getChildMeasureSpec(widthMeasureSpec,
-                        getPaddingLeft() + getPaddingRight(), childLayoutParams.width);
-                final int childHeightMeasureSpec = getChildMeasureSpec(heightMeasureSpec,
-                        getPaddingTop() + getPaddingBottom(), childLayoutParams.height);
-                child.measure(childWidthMeasureSpec, childHeightMeasureSpec);
+                if (i >= reusableMeasureEnd || child.isLayoutRequested()) {
+                    final LayoutParams childLayoutParams = child.getLayoutParams();
+                    final int childWidthMeasureSpec = getChildMeasureSpec(widthMeasureSpec,
+                            getPaddingLeft() + getPaddingRight(), childLayoutParams.width);
+                    final int childHeightMeasureSpec = getChildMeasureSpec(heightMeasureSpec,
+                            getPaddingTop() + getPaddingBottom(), childLayoutParams.height);
+                    child.measure(childWidthMeasureSpec, childHeightMeasureSpec);
+                }
                 resultWidth += child.getMeasuredWidth();
                 maxLineHeight = Math.max(maxLineHeight, child.getMeasuredHeight());
                 measuredChildCount++;
             }
+            mLastMeasureEndIndex = measureEndIndex;
             if (measuredChildCount > 0) {
                 resultWidth += mChildHorizontalSpacing * (measuredChildCount - 1);
             }
             resultHeight = maxLineHeight + getPaddingTop() + getPaddingBottom();
-            if (mItemNumberInEachLine.length > 0) {
+            if (count > 0) {
                 mItemNumberInEachLine[lineIndex] = count;
-            }
-            if (mWidthSumInEachLine.length > 0) {
                 mWidthSumInEachLine[0] = resultWidth;
             }
         }
+        mMeasureCacheValid = true;
+        mChildOrderUnchanged = true;
+        mLastWidthMeasureSpec = widthMeasureSpec;
+        mLastHeightMeasureSpec = heightMeasureSpec;
+        mLastChildCount = count;
+        mLastGoneChildCount = goneCount;
+        mLastReachLimit = reachLimit;
+        mLastResultWidth = resultWidth;
+        mLastResultHeight = resultHeight;
+
         setMeasuredDimension(resultWidth, resultHeight);
         int meausureLineCount = lineIndex + 1;
         if(mLineCount != meausureLineCount){
@@ -413,6 +601,7 @@ public class QMUIFloatLayout extends ViewGroup {
     public void setGravity(int gravity) {
         if (mGravity != gravity) {
             mGravity = gravity;
+            invalidateMeasureCache();
             requestLayout();
         }
     }
@@ -430,6 +619,7 @@ public class QMUIFloatLayout extends ViewGroup {
     public void setMaxNumber(int maxNumber) {
         mMaximum = maxNumber;
         mMaxMode = NUMBER;
+        invalidateMeasureCache();
         requestLayout();
     }
 
@@ -449,6 +639,7 @@ public class QMUIFloatLayout extends ViewGroup {
     public void setMaxLines(int maxLines) {
         mMaximum = maxLines;
         mMaxMode = LINES;
+        invalidateMeasureCache();
         requestLayout();
     }
 
@@ -474,7 +665,8 @@ public class QMUIFloatLayout extends ViewGroup {
      */
     public void setChildHorizontalSpacing(int spacing) {
         mChildHorizontalSpacing = spacing;
-        invalidate();
+        invalidateMeasureCache();
+        requestLayout();
     }
 
     /**
@@ -482,7 +674,8 @@ public class QMUIFloatLayout extends ViewGroup {
      */
     public void setChildVerticalSpacing(int spacing) {
         mChildVerticalSpacing = spacing;
-        invalidate();
+        invalidateMeasureCache();
+        requestLayout();
     }
 
     public interface OnLineCountChangeListener {
@@ -0,0 +1,827 @@
+/*
+ * Tencent is pleased to support the open source community by making QMUI_Android available.
+ *
+ * Copyright (C) 2017-2018 THL A29 Limited, a Tencent company. All rights reserved.
+ *
+ * Licensed under the MIT License (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/MIT
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.qmuiteam.qmui.widget;
+
+import android.graphics.PointF;
+import android.graphics.Rect;
+import android.os.Bundle;
+import android.os.Parcelable;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v7.widget.LinearSmoothScroller;
+import android.support.v7.widget.RecyclerView;
+import android.util.SparseArray;
+import android.view.Gravity;
+import android.view.View;
+import android.view.ViewGroup;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * {@link QMUIFloatLayout} 的 RecyclerView 版本, 用于数据量很大的场景(如上千个标签)。
+ * <p>
+ * 排列规则与 {@link QMUIFloatLayout} 相同: 从左到右排列 item 并自动换行, 支持 gravity、最大行数/最大个数、
+ * item 水平/垂直间距。不同的是只有可见的行会被 attach 到 RecyclerView 上, 滚出屏幕的 item 会通过 adapter 回收复用。
+ * </p>
+ * <p>
+ * 行信息在滚动过程中按需计算并缓存, item 的尺寸只在第一次出现或数据变化时测量。
+ * 高度为 wrap_content 时会在 measure 阶段计算出所有的行。
+ * </p>
+ */
+public class QMUIFloatLayoutManager extends RecyclerView.LayoutManager
+        implements RecyclerView.SmoothScroller.ScrollVectorProvider {
+
+    private static final String KEY_ANCHOR_POSITION = "anchor_position";
+    private static final String KEY_ANCHOR_OFFSET = "anchor_offset";
+
+    private static final int LINES = 0;
+    private static final int NUMBER = 1;
+    private static final int SIZE_UNKNOWN = -1;
+
+    private int mChildHorizontalSpacing;
+    private int mChildVerticalSpacing;
+    /**
+     * 对齐方式，目前支持 {@link Gravity#CENTER_HORIZONTAL}, {@link Gravity#LEFT} 和 {@link Gravity#RIGHT}
+     */
+    private int mGravity = Gravity.LEFT;
+    private int mMaxMode = LINES;
+    private int mMaximum = Integer.MAX_VALUE;
+
+    /**
+     * 内容区域的滚动距离, 0 表示第一行的顶部贴着 paddingTop
+     */
+    private int mScrollOffset = 0;
+    private int mPendingScrollPosition = RecyclerView.NO_POSITION;
+    private int mPendingScrollOffset = 0;
+    private int mLastAvailableWidth = -1;
+
+    /**
+     * 已计算出的行信息, 下标表示行下标, 行的 top 不包含 paddingTop
+     */
+    private int[] mRowStart = new int[16];
+    private int[] mRowCount = new int[16];
+    private int[] mRowWidthSum = new int[16];
+    private int[] mRowHeight = new int[16];
+    private int[] mRowTop = new int[16];
+    private int mRowSize = 0;
+    /**
+     * 所有的行是否都已经计算完毕
+     */
+    private boolean mRowsComplete = false;
+
+    /**
+     * item 的尺寸缓存(包含 margin 与 ItemDecoration), 下标为 adapter position
+     */
+    private int[] mItemWidth = new int[0];
+    private int[] mItemHeight = new int[0];
+
+    /**
+     * 计算行时 measure 出来的 view, fill 时直接复用, 避免重复 bind
+     */
+    private final SparseArray<View> mMeasuredViews = new SparseArray<>();
+    /**
+     * 计算行时, 与 [mKeepWindowTop, mKeepWindowBottom) 相交或包含 mKeepPosition 的行保留测量出的 view,
+     * 其它行在行高确定后立即回收, 避免一次跳转很远时持有大量 view
+     */
+    private int mKeepWindowTop = 0;
+    private int mKeepWindowBottom = 0;
+    private int mKeepPosition = RecyclerView.NO_POSITION;
+    /**
+     * onMeasure 时 RecyclerView 还没有宽度, 用 MeasureSpec 算出的宽度计算行
+     */
+    private int mMeasuringWidth = -1;
+    /**
+     * layout 时发现尺寸与缓存不一致的第一个 item, layout 结束后从它所在的行开始重新计算
+     */
+    private int mSizeChangedPosition = RecyclerView.NO_POSITION;
+    private final Rect mTmpDecorInsets = new Rect();
+    private final Runnable mRequestLayoutRunnable = new Runnable() {
+        @Override
+        public void run() {
+            requestLayout();
+        }
+    };
+
+    public QMUIFloatLayoutManager() {
+    }
+
+    @Override
+    public RecyclerView.LayoutParams generateDefaultLayoutParams() {
+        return new RecyclerView.LayoutParams(ViewGroup.LayoutParams.WRAP_CONTENT,
+                ViewGroup.LayoutParams.WRAP_CONTENT);
+    }
+
+    @Override
+    public boolean isAutoMeasureEnabled() {
+        // fill 只布局可见的行, auto measure 在 wrap_content 时会得到错误的高度, 由 onMeasure 自己计算
+        return false;
+    }
+
+    @Override
+    public void onMeasure(@NonNull RecyclerView.Recycler recycler, @NonNull RecyclerView.State state,
+                          int widthSpec, int heightSpec) {
+        if (View.MeasureSpec.getMode(heightSpec) == View.MeasureSpec.EXACTLY || state.getItemCount() == 0) {
+            super.onMeasure(recycler, state, widthSpec, heightSpec);
+            return;
+        }
+        // 高度由内容决定, 需要计算出所有的行
+        final int width = chooseSize(widthSpec, getPaddingLeft() + getPaddingRight(), getMinimumWidth());
+        mMeasuringWidth = width;
+        final int availableWidth = getAvailableWidth();
+        if (availableWidth != mLastAvailableWidth) {
+            mLastAvailableWidth = availableWidth;
+            invalidateRowsFrom(0);
+        }
+        ensureItemSizeCapacity(state.getItemCount());
+        // 超出高度限制的行不会被布局, 它们的 view 在计算完行高后就回收
+        if (View.MeasureSpec.getMode(heightSpec) == View.MeasureSpec.UNSPECIFIED) {
+            setKeepWindow(mScrollOffset, Integer.MAX_VALUE, RecyclerView.NO_POSITION);
+        } else {
+            setKeepWindow(mScrollOffset, mScrollOffset + View.MeasureSpec.getSize(heightSpec)
+                    - getPaddingTop() - getPaddingBottom(), RecyclerView.NO_POSITION);
+        }
+        while (!mRowsComplete) {
+            computeNextRow(recycler, state);
+        }
+        mMeasuringWidth = -1;
+
+        int contentHeight = 0;
+        if (mRowSize > 0) {
+            contentHeight = mRowTop[mRowSize - 1] + mRowHeight[mRowSize - 1];
+        }
+        final int height = chooseSize(heightSpec, contentHeight + getPaddingTop() + getPaddingBottom(),
+                getMinimumHeight());
+        setMeasuredDimension(width, height);
+    }
+
+    @Override
+    public boolean canScrollVertically() {
+        return true;
+    }
+
+    @Override
+    public void onLayoutChildren(RecyclerView.Recycler recycler, RecyclerView.State state) {
+        final int itemCount = state.getItemCount();
+        if (itemCount == 0) {
+            removeAndRecycleAllViews(recycler);
+            invalidateRowsFrom(0);
+            mScrollOffset = 0;
+            return;
+        }
+        if (state.isPreLayout()) {
+            return;
+        }
+        final int availableWidth = getAvailableWidth();
+        if (availableWidth != mLastAvailableWidth) {
+            mLastAvailableWidth = availableWidth;
+            invalidateRowsFrom(0);
+        }
+        ensureItemSizeCapacity(itemCount);
+
+        // 确定锚点: 优先使用 scrollToPosition 指定的位置, 否则保持第一个可见 item 的位置不变
+        int anchorPosition = RecyclerView.NO_POSITION;
+        int anchorOffset = 0;
+        if (mPendingScrollPosition != RecyclerView.NO_POSITION) {
+            anchorPosition = mPendingScrollPosition;
+            anchorOffset = mPendingScrollOffset;
+        } else if (getChildCount() > 0) {
+            View first = getChildAt(0);
+            RecyclerView.LayoutParams lp = (RecyclerView.LayoutParams) first.getLayoutParams();
+            anchorPosition = lp.getViewLayoutPosition();
+            anchorOffset = getDecoratedTop(first) - lp.topMargin - getPaddingTop();
+        }
+        mPendingScrollPosition = RecyclerView.NO_POSITION;
+        mPendingScrollOffset = 0;
+
+        detachAndScrapAttachedViews(recycler);
+        if (anchorPosition != RecyclerView.NO_POSITION) {
+            anchorPosition = Math.min(anchorPosition, itemCount - 1);
+            // 锚点所在行的位置算出来之前还不知道可见区域, 只保留锚点所在行的 view
+            setKeepWindow(0, 0, anchorPosition);
+            int row = ensureRowsUntilPosition(anchorPosition, recycler, state);
+            if (row >= 0) {
+                mScrollOffset = mRowTop[row] - anchorOffset;
+            }
+        }
+        mScrollOffset = clampScrollOffset(mScrollOffset, recycler, state);
+        fill(recycler, state);
+        if (mSizeChangedPosition != RecyclerView.NO_POSITION) {
+            relayoutForSizeChange(recycler, state);
+        }
+    }
+
+    @Override
+    public int scrollVerticallyBy(int dy, RecyclerView.Recycler recycler, RecyclerView.State state) {
+        if (getChildCount() == 0 || dy == 0) {
+            return 0;
+        }
+        int target = clampScrollOffset(mScrollOffset + dy, recycler, state);
+        int consumed = target - mScrollOffset;
+        if (consumed == 0) {
+            return 0;
+        }
+        mScrollOffset = target;
+        // 已经 attach 的行只需要平移, 只在边缘补充新的行, 回收滚出可见区域的行
+        offsetChildrenVertical(-consumed);
+        fillEdges(recycler, state);
+        if (mSizeChangedPosition != RecyclerView.NO_POSITION) {
+            relayoutForSizeChange(recycler, state);
+        }
+        return consumed;
+    }
+
+    @Override
+    public void scrollToPosition(int position) {
+        mPendingScrollPosition = position;
+        mPendingScrollOffset = 0;
+        requestLayout();
+    }
+
+    /**
+     * 滚动到指定 item, 并使其所在行的顶部距离 paddingTop 为 offset
+     */
+    public void scrollToPositionWithOffset(int position, int offset) {
+        mPendingScrollPosition = position;
+        mPendingScrollOffset = offset;
+        requestLayout();
+    }
+
+    @Override
+    public void smoothScrollToPosition(RecyclerView recyclerView, RecyclerView.State state, int position) {
+        LinearSmoothScroller scroller = new LinearSmoothScroller(recyclerView.getContext());
+        scroller.setTargetPosition(position);
+        startSmoothScroll(scroller);
+    }
+
+    @Nullable
+    @Override
+    public PointF computeScrollVectorForPosition(int targetPosition) {
+        if (getChildCount() == 0) {
+            return null;
+        }
+        int firstPosition = getPosition(getChildAt(0));
+        return new PointF(0, targetPosition < firstPosition ? -1 : 1);
+    }
+
+    @Override
+    public void onItemsChanged(@NonNull RecyclerView recyclerView) {
+        invalidateRowsFrom(0);
+    }
+
+    @Override
+    public void onItemsAdded(@NonNull RecyclerView recyclerView, int positionStart, int itemCount) {
+        invalidateRowsFrom(positionStart);
+    }
+
+    @Override
+    public void onItemsRemoved(@NonNull RecyclerView recyclerView, int positionStart, int itemCount) {
+        invalidateRowsFrom(positionStart);
+    }
+
+    @Override
+    public void onItemsUpdated(@NonNull RecyclerView recyclerView, int positionStart, int itemCount) {
+        invalidateRowsFrom(positionStart);
+    }
+
+    @Override
+    public void onItemsMoved(@NonNull RecyclerView recyclerView, int from, int to, int itemCount) {
+        invalidateRowsFrom(Math.min(from, to));
+    }
+
+    @Override
+    public void onAdapterChanged(@Nullable RecyclerView.Adapter oldAdapter, @Nullable RecyclerView.Adapter newAdapter) {
+        invalidateRowsFrom(0);
+        mScrollOffset = 0;
+    }
+
+    @Override
+    public int computeVerticalScrollOffset(@NonNull RecyclerView.State state) {
+        return mScrollOffset;
+    }
+
+    @Override
+    public int computeVerticalScrollExtent(@NonNull RecyclerView.State state) {
+        return getAvailableHeight();
+    }
+
+    @Override
+    public int computeVerticalScrollRange(@NonNull RecyclerView.State state) {
+        if (mRowSize == 0) {
+            return 0;
+        }
+        int lastRow = mRowSize - 1;
+        int knownHeight = mRowTop[lastRow] + mRowHeight[lastRow];
+        if (mRowsComplete) {
+            return knownHeight;
+        }
+        // 剩余的行按已计算行的平均值估算
+        int knownItemCount = mRowStart[lastRow] + mRowCount[lastRow];
+        int totalItemCount = getVisibleItemLimit(state.getItemCount());
+        if (knownItemCount <= 0 || totalItemCount <= knownItemCount) {
+            return knownHeight;
+        }
+        return (int) ((long) knownHeight * totalItemCount / knownItemCount);
+    }
+
+    @Override
+    public Parcelable onSaveInstanceState() {
+        Bundle bundle = new Bundle();
+        if (getChildCount() > 0) {
+            View first = getChildAt(0);
+            RecyclerView.LayoutParams lp = (RecyclerView.LayoutParams) first.getLayoutParams();
+            bundle.putInt(KEY_ANCHOR_POSITION, lp.getViewLayoutPosition());
+            bundle.putInt(KEY_ANCHOR_OFFSET, getDecoratedTop(first) - lp.topMargin - getPaddingTop());
+        } else {
+            bundle.putInt(KEY_ANCHOR_POSITION, mPendingScrollPosition);
+            bundle.putInt(KEY_ANCHOR_OFFSET, mPendingScrollOffset);
+        }
+        return bundle;
+    }
+
+    @Override
+    public void onRestoreInstanceState(Parcelable state) {
+        if (state instanceof Bundle) {
+            Bundle bundle = (Bundle) state;
+            mPendingScrollPosition = bundle.getInt(KEY_ANCHOR_POSITION, RecyclerView.NO_POSITION);
+            mPendingScrollOffset = bundle.getInt(KEY_ANCHOR_OFFSET, 0);
+            requestLayout();
+        }
+    }
+
+    /**
+     * 设置 item 的对齐方式，目前支持 {@link Gravity#CENTER_HORIZONTAL}, {@link Gravity#LEFT} 和 {@link Gravity#RIGHT}
+     */
+    public void setGravity(int gravity) {
+        if (mGravity != gravity) {
+            mGravity = gravity;
+            requestLayout();
+        }
+    }
+
+    public int getGravity() {
+        return mGravity;
+    }
+
+    /**
+     * 设置最多可显示的 item 个数
+     * 注意该方法不会改变 adapter 的数据，只会影响显示出来的 item 个数
+     *
+     * @param maxNumber 最多可显示的 item 个数
+     */
+    public void setMaxNumber(int maxNumber) {
+        mMaximum = maxNumber;
+        mMaxMode = NUMBER;
+        invalidateRowsFrom(0);
+        requestLayout();
+    }
+
+    /**
+     * 获取最多可显示的 item 个数
+     */
+    public int getMaxNumber() {
+        return mMaxMode == NUMBER ? mMaximum : -1;
+    }
+
+    /**
+     * 设置最多可显示的行数
+     * 注意该方法不会改变 adapter 的数据，只会影响显示出来的 item 个数
+     *
+     * @param maxLines 最多可显示的行数
+     */
+    public void setMaxLines(int maxLines) {
+        mMaximum = maxLines;
+        mMaxMode = LINES;
+        invalidateRowsFrom(0);
+        requestLayout();
+    }
+
+    /**
+     * 获取最多可显示的行数
+     *
+     * @return 没有限制时返回-1
+     */
+    public int getMaxLines() {
+        return mMaxMode == LINES ? mMaximum : -1;
+    }
+
+    /**
+     * 设置 item 的水平间距
+     */
+    public void setChildHorizontalSpacing(int spacing) {
+        if (mChildHorizontalSpacing != spacing) {
+            mChildHorizontalSpacing = spacing;
+            invalidateRowsFrom(0);
+            requestLayout();
+        }
+    }
+
+    /**
+     * 设置 item 的垂直间距
+     */
+    public void setChildVerticalSpacing(int spacing) {
+        if (mChildVerticalSpacing != spacing) {
+            mChildVerticalSpacing = spacing;
+            invalidateRowsFrom(0);
+            requestLayout();
+        }
+    }
+
+    /**
+     * 获取已经计算出的行数, 只有滚动到底部之后才是总行数
+     */
+    public int getComputedLineCount() {
+        return mRowSize;
+    }
+
+    private int getAvailableWidth() {
+        int width = mMeasuringWidth >= 0 ? mMeasuringWidth : getWidth();
+        return width - getPaddingLeft() - getPaddingRight();
+    }
+
+    private int getAvailableHeight() {
+        return getHeight() - getPaddingTop() - getPaddingBottom();
+    }
+
+    /**
+     * 考虑 maxNumber 后最多能显示的 item 个数
+     */
+    private int getVisibleItemLimit(int itemCount) {
+        return mMaxMode == NUMBER ? Math.min(itemCount, mMaximum) : itemCount;
+    }
+
+    private int clampScrollOffset(int offset, RecyclerView.Recycler recycler, RecyclerView.State state) {
+        if (offset <= 0) {
+            return 0;
+        }
+        int availableHeight = getAvailableHeight();
+        setKeepWindow(offset, offset + availableHeight, RecyclerView.NO_POSITION);
+        ensureRowsUntilOffset(offset + availableHeight, recycler, state);
+        if (mRowSize == 0) {
+            return 0;
+        }
+        int lastRow = mRowSize - 1;
+        int contentHeight = mRowTop[lastRow] + mRowHeight[lastRow];
+        return Math.max(0, Math.min(offset, contentHeight - availableHeight));
+    }
+
+    /**
+     * 布局 [mScrollOffset, mScrollOffset + 可见高度] 范围内的行, 调用前需要先 detach 已有的 view
+     */
+    private void fill(RecyclerView.Recycler recycler, RecyclerView.State state) {
+        final int windowTop = mScrollOffset;
+        final int windowBottom = mScrollOffset + getAvailableHeight();
+        setKeepWindow(windowTop, windowBottom, RecyclerView.NO_POSITION);
+        ensureRowsUntilOffset(windowBottom, recycler, state);
+
+        mSizeChangedPosition = RecyclerView.NO_POSITION;
+        for (int row = findRowByOffset(windowTop); row >= 0 && row < mRowSize; row++) {
+            if (mRowTop[row] >= windowBottom) {
+                break;
+            }
+            layoutRow(row, recycler, -1);
+        }
+        recycleUnusedViews(recycler);
+    }
+
+    /**
+     * 滚动后调用: 回收完全滚出可见区域的行, 在顶部或底部补充新进入的行, 其余已 attach 的 view 保持不动
+     */
+    private void fillEdges(RecyclerView.Recycler recycler, RecyclerView.State state) {
+        final int windowTop = mScrollOffset;
+        final int windowBottom = mScrollOffset + getAvailableHeight();
+        setKeepWindow(windowTop, windowBottom, RecyclerView.NO_POSITION);
+        ensureRowsUntilOffset(windowBottom, recycler, state);
+
+        mSizeChangedPosition = RecyclerView.NO_POSITION;
+        for (int i = getChildCount() - 1; i >= 0; i--) {
+            View child = getChildAt(i);
+            int row = findRowByPosition(getPosition(child));
+            if (row < 0 || mRowTop[row] >= windowBottom || mRowTop[row] + mRowHeight[row] <= windowTop) {
+                removeAndRecycleView(child, recycler);
+            }
+        }
+        if (getChildCount() == 0) {
+            // 一次滚动超过了一屏, 没有可以保留的行
+            fill(recycler, state);
+            return;
+        }
+        final int firstRow = findRowByPosition(getPosition(getChildAt(0)));
+        final int lastRow = findRowByPosition(getPosition(getChildAt(getChildCount() - 1)));
+        int addIndex = 0;
+        for (int row = findRowByOffset(windowTop); row >= 0 && row < firstRow; row++) {
+            addIndex = layoutRow(row, recycler, addIndex);
+        }
+        for (int row = lastRow + 1; row < mRowSize; row++) {
+            if (mRowTop[row] >= windowBottom) {
+                break;
+            }
+            layoutRow(row, recycler, -1);
+        }
+        recycleUnusedViews(recycler);
+    }
+
+    /**
+     * 有 item 的尺寸与缓存不一致时, 缓存的行信息不再可靠, 从它所在的行开始重新计算并在本次布局中重新 fill。
+     * RecyclerView 在 layout 与滚动过程中会忽略 requestLayout, 所以不能依赖它来修正重叠的行。
+     */
+    private void relayoutForSizeChange(RecyclerView.Recycler recycler, RecyclerView.State state) {
+        invalidateRowsFrom(mSizeChangedPosition);
+        detachAndScrapAttachedViews(recycler);
+        mScrollOffset = clampScrollOffset(mScrollOffset, recycler, state);
+        fill(recycler, state);
+        if (mSizeChangedPosition != RecyclerView.NO_POSITION) {
+            // 重新测量后尺寸仍在变化, 不在本次布局中反复计算, 下一帧再布局一次
+            invalidateRowsFrom(mSizeChangedPosition);
+            mSizeChangedPosition = RecyclerView.NO_POSITION;
+            removeCallbacks(mRequestLayoutRunnable);
+            postOnAnimation(mRequestLayoutRunnable);
+        }
+    }
+
+    private void recycleUnusedViews(RecyclerView.Recycler recycler) {
+        // 计算行时 measure 了但没有被用上的 view
+        for (int i = 0; i < mMeasuredViews.size(); i++) {
+            recycler.recycleView(mMeasuredViews.valueAt(i));
+        }
+        mMeasuredViews.clear();
+
+        // 没有被复用的 scrap 直接回收
+        final List<RecyclerView.ViewHolder> scrapList = recycler.getScrapList();
+        for (int i = scrapList.size() - 1; i >= 0; i--) {
+            recycler.recycleView(scrapList.get(i).itemView);
+        }
+    }
+
+    /**
+     * @param addIndex view 添加到的下标, -1 表示添加到最后
+     * @return 下一个 view 应该添加到的下标
+     */
+    private int layoutRow(int row, RecyclerView.Recycler recycler, int addIndex) {
+        final int parentWidth = getWidth();
+        int childPositionX;
+        switch (mGravity & Gravity.HORIZONTAL_GRAVITY_MASK) {
+            case Gravity.RIGHT:
+                childPositionX = parentWidth - getPaddingRight() - mRowWidthSum[row];
+                break;
+            case Gravity.CENTER_HORIZONTAL:
+                childPositionX = (parentWidth - getPaddingLeft() - getPaddingRight() - mRowWidthSum[row]) / 2
+                        + getPaddingLeft();
+                break;
+            default:
+                childPositionX = getPaddingLeft();
+                break;
+        }
+        final int childPositionY = getPaddingTop() + mRowTop[row] - mScrollOffset;
+        final int start = mRowStart[row];
+        final int end = start + mRowCount[row];
+        for (int position = start; position < end; position++) {
+            // 计算行时刚测量过的 view 不需要再测量
+            boolean justMeasured = mMeasuredViews.get(position) != null;
+            View view = obtainView(position, recycler);
+            addView(view, addIndex);
+            if (addIndex >= 0) {
+                addIndex++;
+            }
+            RecyclerView.LayoutParams lp = (RecyclerView.LayoutParams) view.getLayoutParams();
+            int childw = getDecoratedMeasuredWidth(view) + lp.leftMargin + lp.rightMargin;
+            int childh = getDecoratedMeasuredHeight(view) + lp.topMargin + lp.bottomMargin;
+            // 只有重新 bind 过(尺寸与缓存不符)或请求了 layout 的 view 才需要重新测量
+            if (!justMeasured && (view.isLayoutRequested() || childw != mItemWidth[position] || childh != mItemHeight[position])) {
+                measureChildWithMargins(view, 0, 0);
+                childw = getDecoratedMeasuredWidth(view) + lp.leftMargin + lp.rightMargin;
+                childh = getDecoratedMeasuredHeight(view) + lp.topMargin + lp.bottomMargin;
+                if ((childw != mItemWidth[position] || childh != mItemHeight[position])
+                        && (mSizeChangedPosition == RecyclerView.NO_POSITION || position < mSizeChangedPosition)) {
+                    mSizeChangedPosition = position;
+                }
+            }
+            layoutDecoratedWithMargins(view, childPositionX, childPositionY,
+                    childPositionX + childw, childPositionY + childh);
+            childPositionX += childw + mChildHorizontalSpacing;
+        }
+        return addIndex;
+    }
+
+    private View obtainView(int position, RecyclerView.Recycler recycler) {
+        View view = mMeasuredViews.get(position);
+        if (view != null) {
+            mMeasuredViews.remove(position);
+            return view;
+        }
+        return recycler.getViewForPosition(position);
+    }
+
+    /**
+     * 找到包含 offset 的行, offset 落在行间距里时返回下一行
+     */
+    private int findRowByOffset(int offset) {
+        if (mRowSize == 0) {
+            return -1;
+        }
+        int low = 0;
+        int high = mRowSize - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (mRowTop[mid] + mRowHeight[mid] <= offset) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int findRowByPosition(int position) {
+        int low = 0;
+        int high = mRowSize - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (mRowStart[mid] + mRowCount[mid] <= position) {
+                low = mid + 1;
+            } else if (mRowStart[mid] > position) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private void ensureRowsUntilOffset(int offset, RecyclerView.Recycler recycler, RecyclerView.State state) {
+        while (!mRowsComplete
+                && (mRowSize == 0 || mRowTop[mRowSize - 1] + mRowHeight[mRowSize - 1] < offset)) {
+            computeNextRow(recycler, state);
+        }
+    }
+
+    /**
+     * @return position 所在的行, 若该 item 超出了最大限制, 则返回最后一行
+     */
+    private int ensureRowsUntilPosition(int position, RecyclerView.Recycler recycler, RecyclerView.State state) {
+        while (!mRowsComplete
+                && (mRowSize == 0 || mRowStart[mRowSize - 1] + mRowCount[mRowSize - 1] <= position)) {
+            computeNextRow(recycler, state);
+        }
+        int row = findRowByPosition(position);
+        return row >= 0 ? row : mRowSize - 1;
+    }
+
+    private void computeNextRow(RecyclerView.Recycler recycler, RecyclerView.State state) {
+        final int itemLimit = getVisibleItemLimit(state.getItemCount());
+        final int start = mRowSize == 0 ? 0 : mRowStart[mRowSize - 1] + mRowCount[mRowSize - 1];
+        if (start >= itemLimit || (mMaxMode == LINES && mRowSize >= mMaximum)) {
+            mRowsComplete = true;
+            return;
+        }
+        ensureItemSizeCapacity(state.getItemCount());
+
+        final int availableWidth = getAvailableWidth();
+        int childPositionX = 0;
+        int widthSum = 0;
+        int lineHeight = 0;
+        int count = 0;
+        for (int position = start; position < itemLimit; position++) {
+            measureItem(position, recycler);
+            final int childw = mItemWidth[position];
+            // 需要换行, 每行至少放一个 item
+            if (count > 0 && childPositionX + childw > availableWidth) {
+                break;
+            }
+            widthSum = childPositionX + childw;
+            childPositionX += childw + mChildHorizontalSpacing;
+            lineHeight = Math.max(lineHeight, mItemHeight[position]);
+            count++;
+        }
+
+        ensureRowCapacity(mRowSize + 1);
+        final int row = mRowSize;
+        mRowStart[row] = start;
+        mRowCount[row] = count;
+        mRowWidthSum[row] = widthSum;
+        mRowHeight[row] = lineHeight;
+        mRowTop[row] = row == 0 ? 0 : mRowTop[row - 1] + mRowHeight[row - 1] + mChildVerticalSpacing;
+        mRowSize++;
+
+        if (!shouldKeepRowViews(row)) {
+            // 该行的高度已经确定, 又不在目标区域内, 它的 view 用不上了
+            for (int position = start; position < start + count; position++) {
+                View view = mMeasuredViews.get(position);
+                if (view != null) {
+                    mMeasuredViews.remove(position);
+                    recycler.recycleView(view);
+                }
+            }
+        }
+
+        if (start + count >= itemLimit || (mMaxMode == LINES && mRowSize >= mMaximum)) {
+            mRowsComplete = true;
+        }
+    }
+
+    private void setKeepWindow(int top, int bottom, int position) {
+        mKeepWindowTop = top;
+        mKeepWindowBottom = bottom;
+        mKeepPosition = position;
+    }
+
+    private boolean shouldKeepRowViews(int row) {
+        final int start = mRowStart[row];
+        if (mKeepPosition >= start && mKeepPosition < start + mRowCount[row]) {
+            return true;
+        }
+        return mRowTop[row] < mKeepWindowBottom && mRowTop[row] + mRowHeight[row] > mKeepWindowTop;
+    }
+
+    private void measureItem(int position, RecyclerView.Recycler recycler) {
+        if (mItemWidth[position] != SIZE_UNKNOWN) {
+            return;
+        }
+        View view = mMeasuredViews.get(position);
+        if (view == null) {
+            view = recycler.getViewForPosition(position);
+            mMeasuredViews.put(position, view);
+        }
+        measureItemView(view);
+        RecyclerView.LayoutParams lp = (RecyclerView.LayoutParams) view.getLayoutParams();
+        mItemWidth[position] = getDecoratedMeasuredWidth(view) + lp.leftMargin + lp.rightMargin;
+        mItemHeight[position] = getDecoratedMeasuredHeight(view) + lp.topMargin + lp.bottomMargin;
+    }
+
+    private void measureItemView(View view) {
+        if (mMeasuringWidth < 0) {
+            measureChildWithMargins(view, 0, 0);
+            return;
+        }
+        // onMeasure 时 LayoutManager 的宽度还不可用, 用 mMeasuringWidth 构造 MeasureSpec
+        RecyclerView.LayoutParams lp = (RecyclerView.LayoutParams) view.getLayoutParams();
+        calculateItemDecorationsForChild(view, mTmpDecorInsets);
+        int widthSpec = getChildMeasureSpec(mMeasuringWidth, View.MeasureSpec.EXACTLY,
+                getPaddingLeft() + getPaddingRight() + lp.leftMargin + lp.rightMargin
+                        + mTmpDecorInsets.left + mTmpDecorInsets.right,
+                lp.width, false);
+        int heightSpec = getChildMeasureSpec(0, View.MeasureSpec.UNSPECIFIED,
+                getPaddingTop() + getPaddingBottom() + lp.topMargin + lp.bottomMargin
+                        + mTmpDecorInsets.top + mTmpDecorInsets.bottom,
+                lp.height, true);
+        view.measure(widthSpec, heightSpec);
+    }
+
+    /**
+     * 使 position 及之后的行与 item 尺寸缓存失效
+     */
+    private void invalidateRowsFrom(int position) {
+        int row = position <= 0 ? 0 : findRowByPosition(position);
+        if (row >= 0) {
+            mRowSize = row;
+        } else if (mRowSize > 0) {
+            // 变化发生在已计算的行之后, 最后一行可能还能放下新的 item, 需要重新计算
+            mRowSize--;
+        }
+        mRowsComplete = false;
+        int from = Math.max(0, position);
+        if (from < mItemWidth.length) {
+            Arrays.fill(mItemWidth, from, mItemWidth.length, SIZE_UNKNOWN);
+            Arrays.fill(mItemHeight, from, mItemHeight.length, SIZE_UNKNOWN);
+        }
+    }
+
+    private void ensureItemSizeCapacity(int itemCount) {
+        int capacity = mItemWidth.length;
+        if (capacity >= itemCount) {
+            return;
+        }
+        int newCapacity = Math.max(itemCount, capacity * 2);
+        mItemWidth = Arrays.copyOf(mItemWidth, newCapacity);
+        mItemHeight = Arrays.copyOf(mItemHeight, newCapacity);
+        Arrays.fill(mItemWidth, capacity, newCapacity, SIZE_UNKNOWN);
+        Arrays.fill(mItemHeight, capacity, newCapacity, SIZE_UNKNOWN);
+    }
+
+    private void ensureRowCapacity(int rowCount) {
+        int capacity = mRowStart.length;
+        if (capacity >= rowCount) {
+            return;
+        }
+        int newCapacity = Math.max(rowCount, capacity * 2);
+        mRowStart = Arrays.copyOf(mRowStart, newCapacity);
+        mRowCount = Arrays.copyOf(mRowCount, newCapacity);
+        mRowWidthSum = Arrays.copyOf(mRowWidthSum, newCapacity);
+        mRowHeight = Arrays.copyOf(mRowHeight, newCapacity);
+        mRowTop = Arrays.copyOf(mRowTop, newCapacity);
+    }
+}
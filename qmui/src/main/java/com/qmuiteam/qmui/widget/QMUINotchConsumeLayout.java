@@ -41,10 +41,17 @@ public class QMUINotchConsumeLayout extends FrameLayout implements INotchInsetCo
     protected void onAttachedToWindow() {
         super.onAttachedToWindow();
         if (!QMUINotchHelper.isNotchOfficialSupport()) {
+            QMUINotchHelper.addNotchInsetConsumer(getContext(), this);
             notifyInsetMaybeChanged();
         }
     }
 
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        QMUINotchHelper.removeNotchInsetConsumer(this);
+    }
+
     @Override
     protected void onConfigurationChanged(Configuration newConfig) {
         super.onConfigurationChanged(newConfig);
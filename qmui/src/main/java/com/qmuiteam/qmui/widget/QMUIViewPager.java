@@ -23,7 +23,6 @@ import android.os.Build;
 import android.os.Parcelable;
 import android.support.annotation.NonNull;
 import android.support.v4.view.PagerAdapter;
-import android.support.v4.view.ViewCompat;
 import android.support.v4.view.ViewPager;
 import android.util.AttributeSet;
 import android.view.MotionEvent;
@@ -87,7 +86,7 @@ public class QMUIViewPager extends ViewPager implements IWindowInsetLayout {
     @Override
     public void addView(View child, int index, ViewGroup.LayoutParams params) {
         super.addView(child, index, params);
-        ViewCompat.requestApplyInsets(this);
+        QMUIWindowInsetHelper.requestApplyInsets(this);
     }
 
     @Override
@@ -132,6 +131,13 @@ public class QMUIViewPager extends ViewPager implements IWindowInsetLayout {
         return mQMUIWindowInsetHelper.defaultApplySystemWindowInsets21(this, insets);
     }
 
+    @SuppressWarnings("deprecation")
+    @Override
+    public void requestFitSystemWindows() {
+        QMUIWindowInsetHelper.markInsetsRequested();
+        super.requestFitSystemWindows();
+    }
+
     @Override
     public void setAdapter(PagerAdapter adapter) {
         if (adapter instanceof QMUIPagerAdapter) {
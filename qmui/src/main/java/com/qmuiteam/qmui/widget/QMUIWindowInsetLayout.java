@@ -20,7 +20,6 @@ import android.content.Context;
 import android.content.res.Configuration;
 import android.graphics.Rect;
 import android.os.Build;
-import android.support.v4.view.ViewCompat;
 import android.util.AttributeSet;
 
 import com.qmuiteam.qmui.layout.QMUIFrameLayout;
@@ -73,16 +72,23 @@ public class QMUIWindowInsetLayout extends QMUIFrameLayout implements IWindowIns
         return mQMUIWindowInsetHelper.defaultApplySystemWindowInsets21(this, insets);
     }
 
+    @SuppressWarnings("deprecation")
+    @Override
+    public void requestFitSystemWindows() {
+        QMUIWindowInsetHelper.markInsetsRequested();
+        super.requestFitSystemWindows();
+    }
+
     @Override
     protected void onAttachedToWindow() {
         super.onAttachedToWindow();
-        ViewCompat.requestApplyInsets(this);
+        QMUIWindowInsetHelper.requestApplyInsets(this);
     }
 
     @Override
     protected void onConfigurationChanged(Configuration newConfig) {
         super.onConfigurationChanged(newConfig);
         // xiaomi 8 not reapply insets default...
-        ViewCompat.requestApplyInsets(this);
+        QMUIWindowInsetHelper.requestApplyInsets(this);
     }
 }
@@ -76,6 +76,10 @@ public class QMUIBottomSheet extends Dialog {
     private boolean mIsAnimating = false;
 
     private OnBottomSheetShowListener mOnBottomSheetShowListener;
+    /**
+     * dismiss 时需要执行的回收动作, 用于把复用池中取出的 View 放回 {@link QMUIBottomSheetViewPool}
+     */
+    private List<Runnable> mReleaseActions;
 
     public QMUIBottomSheet(Context context) {
         super(context, R.style.QMUI_BottomSheet);
@@ -223,6 +227,24 @@ public class QMUIBottomSheet extends Dialog {
         animateDown();
     }
 
+    @Override
+    protected void onStop() {
+        super.onStop();
+        if (mReleaseActions != null) {
+            for (Runnable action : mReleaseActions) {
+                action.run();
+            }
+            mReleaseActions.clear();
+        }
+    }
+
+    void addReleaseAction(Runnable action) {
+        if (mReleaseActions == null) {
+            mReleaseActions = new ArrayList<>();
+        }
+        mReleaseActions.add(action);
+    }
+
     public interface OnBottomSheetShowListener {
         void onShow();
     }
@@ -245,6 +267,7 @@ public class QMUIBottomSheet extends Dialog {
         private TextView mTitleTv;
         private OnSheetItemClickListener mOnSheetItemClickListener;
         private OnDismissListener mOnBottomDialogDismissListener;
+        private boolean mUseViewPool = false;
 
         public BottomListSheetBuilder(Context context) {
             this(context, false);
@@ -359,6 +382,16 @@ public class QMUIBottomSheet extends Dialog {
             return this;
         }
 
+        /**
+         * 是否从 {@link QMUIBottomSheetViewPool} 中获取面板的 View, dismiss 时会放回复用池。
+         * <p>
+         * 注意: 开启后生成的 {@link QMUIBottomSheet} 在 dismiss 后不能再次 show, 需要重新 {@link #build()}。
+         */
+        public BottomListSheetBuilder setUseViewPool(boolean useViewPool) {
+            mUseViewPool = useViewPool;
+            return this;
+        }
+
         public QMUIBottomSheet build() {
             mDialog = new QMUIBottomSheet(mContext);
             View contentView = buildViews();
@@ -371,9 +404,33 @@ public class QMUIBottomSheet extends Dialog {
         }
 
         private View buildViews() {
-            View wrapperView = View.inflate(mContext, getContentViewLayoutId(), null);
+            final View wrapperView;
+            if (mUseViewPool) {
+                wrapperView = QMUIBottomSheetViewPool.getInstance().acquire(mContext, getContentViewLayoutId());
+            } else {
+                wrapperView = View.inflate(mContext, getContentViewLayoutId(), null);
+            }
             mTitleTv = (TextView) wrapperView.findViewById(R.id.title);
             mContainerView = (ListView) wrapperView.findViewById(R.id.listview);
+            if (mUseViewPool) {
+                final TextView titleTv = mTitleTv;
+                final ListView containerView = mContainerView;
+                final int originListHeight = containerView.getLayoutParams().height;
+                final List<View> headerViews = new ArrayList<>(mHeaderViews);
+                mDialog.addReleaseAction(new Runnable() {
+                    @Override
+                    public void run() {
+                        titleTv.setText(null);
+                        titleTv.setVisibility(View.GONE);
+                        containerView.setAdapter(null);
+                        for (View headerView : headerViews) {
+                            containerView.removeHeaderView(headerView);
+                        }
+                        containerView.getLayoutParams().height = originListHeight;
+                        QMUIBottomSheetViewPool.getInstance().release(wrapperView);
+                    }
+                });
+            }
             if (mTitle != null && mTitle.length() != 0) {
                 mTitleTv.setVisibility(View.VISIBLE);
                 mTitleTv.setText(mTitle);
@@ -600,6 +657,8 @@ public class QMUIBottomSheet extends Dialog {
         private boolean mIsShowButton = true;
         private CharSequence mButtonText = null;
         private View.OnClickListener mButtonClickListener = null;
+        private boolean mUseViewPool = false;
+        private List<QMUIBottomSheetItemView> mPooledItemViews;
 
         public BottomGridSheetBuilder(Context context) {
             mContext = context;
@@ -640,6 +699,17 @@ public class QMUIBottomSheet extends Dialog {
             return this;
         }
 
+        /**
+         * 是否从 {@link QMUIBottomSheetViewPool} 中获取 item View, dismiss 时会放回复用池。
+         * 需要在 {@link #addItem(int, CharSequence, Object, int, int)} 之前调用。
+         * <p>
+         * 注意: 开启后生成的 {@link QMUIBottomSheet} 在 dismiss 后不能再次 show, 需要重新生成 Builder。
+         */
+        public BottomGridSheetBuilder setUseViewPool(boolean useViewPool) {
+            mUseViewPool = useViewPool;
+            return this;
+        }
+
         public BottomGridSheetBuilder addItem(int imageRes, CharSequence text, Object tag, @Style int style, int subscriptRes) {
             QMUIBottomSheetItemView itemView = createItemView(AppCompatResources.getDrawable(mContext, imageRes), text, tag, subscriptRes);
             return addItem(itemView, style);
@@ -658,8 +728,18 @@ public class QMUIBottomSheet extends Dialog {
         }
 
         public QMUIBottomSheetItemView createItemView(Drawable drawable, CharSequence text, Object tag, int subscriptRes) {
-            LayoutInflater inflater = LayoutInflater.from(mContext);
-            QMUIBottomSheetItemView itemView = (QMUIBottomSheetItemView) inflater.inflate(getItemViewLayoutId(), null, false);
+            QMUIBottomSheetItemView itemView;
+            if (mUseViewPool) {
+                itemView = (QMUIBottomSheetItemView) QMUIBottomSheetViewPool.getInstance()
+                        .acquire(mContext, getItemViewLayoutId());
+                if (mPooledItemViews == null) {
+                    mPooledItemViews = new ArrayList<>();
+                }
+                mPooledItemViews.add(itemView);
+            } else {
+                LayoutInflater inflater = LayoutInflater.from(mContext);
+                itemView = (QMUIBottomSheetItemView) inflater.inflate(getItemViewLayoutId(), null, false);
+            }
             TextView titleTV = (TextView) itemView.findViewById(R.id.grid_item_title);
             if (mItemTextTypeFace != null) {
                 titleTV.setTypeface(mItemTextTypeFace);
@@ -671,11 +751,7 @@ public class QMUIBottomSheet extends Dialog {
             AppCompatImageView imageView = (AppCompatImageView) itemView.findViewById(R.id.grid_item_image);
             imageView.setImageDrawable(drawable);
 
-            if (subscriptRes != 0) {
-                ViewStub stub = (ViewStub) itemView.findViewById(R.id.grid_item_subscript);
-                View inflated = stub.inflate();
-                ((ImageView) inflated).setImageResource(subscriptRes);
-            }
+            itemView.setSubScript(subscriptRes);
             return itemView;
         }
 
@@ -715,6 +791,20 @@ public class QMUIBottomSheet extends Dialog {
             View contentView = buildViews();
             mDialog.setContentView(contentView,
                     new ViewGroup.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT));
+            if (mPooledItemViews != null && !mPooledItemViews.isEmpty()) {
+                final List<QMUIBottomSheetItemView> pooledItemViews = mPooledItemViews;
+                mPooledItemViews = null;
+                mDialog.addReleaseAction(new Runnable() {
+                    @Override
+                    public void run() {
+                        QMUIBottomSheetViewPool pool = QMUIBottomSheetViewPool.getInstance();
+                        for (QMUIBottomSheetItemView itemView : pooledItemViews) {
+                            itemView.resetForReuse();
+                            pool.release(itemView);
+                        }
+                    }
+                });
+            }
             return mDialog;
         }
 
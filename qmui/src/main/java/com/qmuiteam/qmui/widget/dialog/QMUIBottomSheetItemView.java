@@ -17,9 +17,12 @@
 package com.qmuiteam.qmui.widget.dialog;
 
 import android.content.Context;
+import android.graphics.Typeface;
 import android.support.v7.widget.AppCompatImageView;
 import android.util.AttributeSet;
+import android.view.View;
 import android.view.ViewStub;
+import android.widget.ImageView;
 import android.widget.LinearLayout;
 import android.widget.TextView;
 
@@ -37,6 +40,8 @@ public class QMUIBottomSheetItemView extends QMUIAlphaLinearLayout {
     private AppCompatImageView mAppCompatImageView;
     private ViewStub mSubScript;
     private TextView mTextView;
+    private ImageView mSubScriptImageView;
+    private Typeface mOriginTypeface;
 
 
     public QMUIBottomSheetItemView(Context context) {
@@ -57,8 +62,46 @@ public class QMUIBottomSheetItemView extends QMUIAlphaLinearLayout {
         mAppCompatImageView = (AppCompatImageView) findViewById(R.id.grid_item_image);
         mSubScript = (ViewStub) findViewById(R.id.grid_item_subscript);
         mTextView = (TextView) findViewById(R.id.grid_item_title);
+        if (mTextView != null) {
+            mOriginTypeface = mTextView.getTypeface();
+        }
     }
 
+    /**
+     * 设置右上角的角标, 为 0 时隐藏
+     */
+    public void setSubScript(int subscriptRes) {
+        if (subscriptRes == 0) {
+            if (mSubScriptImageView != null) {
+                mSubScriptImageView.setVisibility(View.GONE);
+            }
+            return;
+        }
+        if (mSubScriptImageView == null && mSubScript != null) {
+            mSubScriptImageView = (ImageView) mSubScript.inflate();
+        }
+        if (mSubScriptImageView != null) {
+            mSubScriptImageView.setVisibility(View.VISIBLE);
+            mSubScriptImageView.setImageResource(subscriptRes);
+        }
+    }
+
+    /**
+     * 放回 {@link QMUIBottomSheetViewPool} 前清理状态
+     */
+    void resetForReuse() {
+        setTag(null);
+        setOnClickListener(null);
+        setVisibility(View.VISIBLE);
+        if (mAppCompatImageView != null) {
+            mAppCompatImageView.setImageDrawable(null);
+        }
+        if (mTextView != null) {
+            mTextView.setText(null);
+            mTextView.setTypeface(mOriginTypeface);
+        }
+        setSubScript(0);
+    }
     public AppCompatImageView getAppCompatImageView() {
         return mAppCompatImageView;
     }
@@ -0,0 +1,189 @@
+/*
+ * Tencent is pleased to support the open source community by making QMUI_Android available.
+ *
+ * Copyright (C) 2017-2018 THL A29 Limited, a Tencent company. All rights reserved.
+ *
+ * Licensed under the MIT License (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/MIT
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.qmuiteam.qmui.widget.dialog;
+
+import android.content.Context;
+import android.content.MutableContextWrapper;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.support.annotation.LayoutRes;
+import android.support.annotation.MainThread;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v4.view.AsyncLayoutInflater;
+import android.util.SparseArray;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+
+import com.qmuiteam.qmui.R;
+
+import java.util.ArrayList;
+
+/**
+ * {@link QMUIBottomSheet} 的 View 复用池, 按 layout id 缓存已经 inflate 好的 View, 全进程共享。
+ * <p>
+ * 池中的 View 使用 {@link MutableContextWrapper} 创建: 取出时绑定到当前的 Context, 放回时切换为 Application Context,
+ * 避免 View 持有已经销毁的 Activity。注意 View 的属性(如 ?attr 引用)在 inflate 时就已经确定,
+ * 因此只适合所有 Activity 的 BottomSheet 主题一致的场景。
+ * </p>
+ * <p>
+ * 所有方法都需要在主线程调用。
+ * </p>
+ */
+public class QMUIBottomSheetViewPool {
+
+    private static final int DEFAULT_MAX_SIZE_PER_LAYOUT = 32;
+
+    private static QMUIBottomSheetViewPool sInstance;
+
+    private final SparseArray<ArrayList<View>> mPool = new SparseArray<>();
+    private int mMaxSizePerLayout = DEFAULT_MAX_SIZE_PER_LAYOUT;
+
+    @MainThread
+    public static QMUIBottomSheetViewPool getInstance() {
+        if (sInstance == null) {
+            sInstance = new QMUIBottomSheetViewPool();
+        }
+        return sInstance;
+    }
+
+    private QMUIBottomSheetViewPool() {
+    }
+
+    /**
+     * 设置每个 layout 最多缓存的 View 个数
+     */
+    public void setMaxSizePerLayout(int maxSizePerLayout) {
+        mMaxSizePerLayout = maxSizePerLayout;
+        for (int i = 0; i < mPool.size(); i++) {
+            ArrayList<View> views = mPool.valueAt(i);
+            while (views.size() > maxSizePerLayout) {
+                views.remove(views.size() - 1);
+            }
+        }
+    }
+
+    /**
+     * 从池中取出一个 View, 池中没有时会立即 inflate 一个
+     */
+    @NonNull
+    public View acquire(@NonNull Context context, @LayoutRes int layoutId) {
+        ArrayList<View> views = mPool.get(layoutId);
+        if (views != null && !views.isEmpty()) {
+            View view = views.remove(views.size() - 1);
+            Context viewContext = view.getContext();
+            if (viewContext instanceof MutableContextWrapper) {
+                ((MutableContextWrapper) viewContext).setBaseContext(context);
+            }
+            return view;
+        }
+        return inflate(context, layoutId);
+    }
+
+    /**
+     * 将 View 放回池中, 只接受通过 {@link #acquire(Context, int)} 或预加载创建的 View
+     */
+    public void release(@Nullable View view) {
+        if (view == null) {
+            return;
+        }
+        Object layoutId = view.getTag(R.id.qmui_view_pool_layout_id);
+        if (!(layoutId instanceof Integer)) {
+            return;
+        }
+        ViewGroup parent = (ViewGroup) view.getParent();
+        if (parent != null) {
+            parent.removeView(view);
+        }
+        ArrayList<View> views = mPool.get((Integer) layoutId);
+        if (views == null) {
+            views = new ArrayList<>();
+            mPool.put((Integer) layoutId, views);
+        }
+        if (views.size() >= mMaxSizePerLayout || views.contains(view)) {
+            return;
+        }
+        Context viewContext = view.getContext();
+        if (viewContext instanceof MutableContextWrapper) {
+            MutableContextWrapper wrapper = (MutableContextWrapper) viewContext;
+            wrapper.setBaseContext(wrapper.getBaseContext().getApplicationContext());
+        }
+        views.add(view);
+    }
+
+    /**
+     * 在主线程空闲时预先 inflate View 放入池中, 每次空闲只处理一个, 避免影响当前帧
+     *
+     * @param async 为 true 时在主线程空闲时才交给 {@link AsyncLayoutInflater} 在子线程 inflate,
+     *              避免与启动阶段的工作争抢 CPU
+     */
+    @MainThread
+    public void preInflate(@NonNull final Context context, @LayoutRes final int layoutId, final int count,
+                           final boolean async) {
+        final int needCount = count - getPooledCount(layoutId);
+        if (needCount <= 0) {
+            return;
+        }
+        Looper.myQueue().addIdleHandler(new MessageQueue.IdleHandler() {
+            private int mRemain = needCount;
+
+            @Override
+            public boolean queueIdle() {
+                if (getPooledCount(layoutId) >= count) {
+                    return false;
+                }
+                if (async) {
+                    inflateAsync(context, layoutId);
+                } else {
+                    release(inflate(context, layoutId));
+                }
+                mRemain--;
+                return mRemain > 0;
+            }
+        });
+    }
+
+    public int getPooledCount(@LayoutRes int layoutId) {
+        ArrayList<View> views = mPool.get(layoutId);
+        return views == null ? 0 : views.size();
+    }
+
+    public void clear() {
+        mPool.clear();
+    }
+
+    private void inflateAsync(Context context, final int layoutId) {
+        // 每个 View 需要独立的 MutableContextWrapper, 取出时才能分别绑定 Context
+        AsyncLayoutInflater inflater = new AsyncLayoutInflater(new MutableContextWrapper(context));
+        inflater.inflate(layoutId, null, new AsyncLayoutInflater.OnInflateFinishedListener() {
+            @Override
+            public void onInflateFinished(@NonNull View view, int resid, @Nullable ViewGroup parent) {
+                view.setTag(R.id.qmui_view_pool_layout_id, layoutId);
+                release(view);
+            }
+        });
+    }
+
+    private View inflate(Context context, int layoutId) {
+        // 必须 clone 出以 wrapper 为 Context 的 LayoutInflater, 否则 View 会直接持有 Activity
+        LayoutInflater inflater = LayoutInflater.from(context).cloneInContext(new MutableContextWrapper(context));
+        View view = inflater.inflate(layoutId, null, false);
+        view.setTag(R.id.qmui_view_pool_layout_id, layoutId);
+        return view;
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Tencent is pleased to support the open source community by making QMUI_Android available.
+ *
+ * Copyright (C) 2017-2018 THL A29 Limited, a Tencent company. All rights reserved.
+ *
+ * Licensed under the MIT License (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/MIT
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.qmuiteam.qmui.widget.pullRefreshLayout;
+
+/**
+ * {@link QMUIPullRefreshMotion} 的积分部分, 只依赖传入的时间间隔, 不依赖 Handler 与 Choreographer:
+ * <ul>
+ * <li>回弹使用弹簧模型, 半隐式欧拉分步积分, 每步不超过 {@link #MAX_STEP_SECONDS}</li>
+ * <li>惯性使用指数衰减模型, 有解析解, 停在 {@link #fling(int, float, int, int)} 预测的位置</li>
+ * </ul>
+ */
+class QMUIPullRefreshIntegrator {
+
+    static final int MODE_IDLE = 0;
+    static final int MODE_SPRING = 1;
+    static final int MODE_FLING = 2;
+
+    private static final float STIFFNESS = 500f;
+    private static final float DAMPING_RATIO = 1f;
+    /**
+     * 把 Scroller 的摩擦系数换算成每秒的衰减系数, 默认的 0.015 对应 4.2
+     */
+    private static final float FRICTION_TO_DECAY = 280f;
+    static final float MAX_STEP_SECONDS = 0.004f;
+    private static final float POSITION_THRESHOLD = 0.5f;
+    private static final float VELOCITY_THRESHOLD = 20f;
+
+    private final float mDecay;
+    private final float mDamping;
+
+    private int mMode = MODE_IDLE;
+    private float mPosition;
+    private float mVelocity;
+    private float mTarget;
+    private float mMin;
+    private float mMax;
+
+    QMUIPullRefreshIntegrator(float friction) {
+        mDecay = Math.max(friction * FRICTION_TO_DECAY, 0.1f);
+        mDamping = (float) (2 * DAMPING_RATIO * Math.sqrt(STIFFNESS));
+    }
+
+    /**
+     * 从 from 开始惯性滑动, 在 [min, max] 内停止
+     *
+     * @return 滑动的最终位置
+     */
+    int fling(int from, float velocity, int min, int max) {
+        syncPosition(from);
+        mVelocity = velocity;
+        mMin = min;
+        mMax = max;
+        // 视图只能停在整数位置, 终点取整后作为 fling 的返回值与最终位置
+        mTarget = Math.round(Math.max(min, Math.min(max, mPosition + velocity / mDecay)));
+        mMode = MODE_FLING;
+        return (int) mTarget;
+    }
+
+    /**
+     * 用弹簧移动到 target, 正在运动时保留当前速度
+     */
+    void springTo(int from, int target) {
+        boolean wasIdle = mMode == MODE_IDLE;
+        syncPosition(from);
+        if (wasIdle) {
+            mVelocity = 0;
+        }
+        mTarget = target;
+        mMode = MODE_SPRING;
+    }
+
+    void stop() {
+        mMode = MODE_IDLE;
+        mVelocity = 0;
+    }
+
+    int getMode() {
+        return mMode;
+    }
+
+    float getPosition() {
+        return mPosition;
+    }
+
+    /**
+     * @return 带方向的速度, px/s
+     */
+    float getVelocity() {
+        return mVelocity;
+    }
+
+    private void syncPosition(int from) {
+        // 视图位置被外部修改过(如被 calculateTargetOffset 截断)时以视图为准, 否则保留小数部分
+        if (mMode == MODE_IDLE || Math.abs(mPosition - from) >= 1) {
+            mPosition = from;
+        }
+    }
+
+    /**
+     * 前进 dt 秒
+     */
+    void step(float dt) {
+        if (mMode == MODE_FLING) {
+            // 指数衰减有解析解, 不需要分步
+            float factor = (float) Math.exp(-mDecay * dt);
+            mPosition += mVelocity / mDecay * (1 - factor);
+            mVelocity *= factor;
+            if (mPosition <= mMin || mPosition >= mMax) {
+                mPosition = Math.max(mMin, Math.min(mMax, mPosition));
+                mMode = MODE_IDLE;
+            } else if (Math.abs(mVelocity) / mDecay < POSITION_THRESHOLD) {
+                // 剩余距离不足半个像素, 直接落到终点, 保证停在 fling 返回的位置
+                mPosition = mTarget;
+                mVelocity = 0;
+                mMode = MODE_IDLE;
+            }
+            return;
+        }
+        if (mMode != MODE_SPRING) {
+            return;
+        }
+        // 弹簧用半隐式欧拉分步积分, 步长不超过 MAX_STEP_SECONDS 以保证稳定
+        while (dt > 0) {
+            float h = Math.min(dt, MAX_STEP_SECONDS);
+            float acceleration = -STIFFNESS * (mPosition - mTarget) - mDamping * mVelocity;
+            mVelocity += acceleration * h;
+            mPosition += mVelocity * h;
+            dt -= h;
+        }
+        if (Math.abs(mPosition - mTarget) < POSITION_THRESHOLD && Math.abs(mVelocity) < VELOCITY_THRESHOLD) {
+            mPosition = mTarget;
+            mVelocity = 0;
+            mMode = MODE_IDLE;
+        }
+    }
+}
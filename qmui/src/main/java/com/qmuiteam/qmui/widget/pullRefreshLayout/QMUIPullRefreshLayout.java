@@ -27,6 +27,7 @@ import android.support.v4.view.MotionEventCompat;
 import android.support.v4.view.NestedScrollingParent;
 import android.support.v4.view.NestedScrollingParentHelper;
 import android.support.v4.view.ViewCompat;
+import android.support.v4.widget.NestedScrollView;
 import android.support.v4.widget.CircularProgressDrawable;
 import android.support.v7.widget.AppCompatImageView;
 import android.support.v7.widget.RecyclerView;
@@ -38,8 +39,9 @@ import android.view.VelocityTracker;
 import android.view.View;
 import android.view.ViewConfiguration;
 import android.view.ViewGroup;
+import android.view.ViewTreeObserver;
 import android.widget.AbsListView;
-import android.widget.Scroller;
+import android.widget.ScrollView;
 
 import com.qmuiteam.qmui.BuildConfig;
 import com.qmuiteam.qmui.R;
@@ -54,6 +56,7 @@ import com.qmuiteam.qmui.widget.section.QMUIStickySectionLayout;
  * <li>可通过继承并覆写 {@link #createRefreshView()} 方法实现自己的 RefreshView</li>
  * <li>可通过 {@link #setRefreshOffsetCalculator(RefreshOffsetCalculator)} 自己决定在下拉过程中 RefreshView 的位置</li>
  * <li>可在 xml 中使用 {@link com.qmuiteam.qmui.R.styleable#QMUIPullRefreshLayout} 这些属性或在 Java 设置对应的属性决定子View的开始位置、触发刷新的位置等值</li>
+ * <li>可通过 {@link #setOnLoadMoreListener(OnLoadMoreListener)} 开启底部加载更多, 见 {@link #setLoadMorePrefetchDistance(int)}、{@link #setEnablePullToLoadMore(boolean)}</li>
  * </ul>
  *
  * @author cginechen
@@ -76,6 +79,32 @@ public class QMUIPullRefreshLayout extends ViewGroup implements NestedScrollingP
     private int mTouchSlop;
     private OnPullListener mListener;
     private OnChildScrollUpCallback mChildScrollUpCallback;
+    private OnChildScrollDownCallback mChildScrollDownCallback;
+    private OnLoadMoreListener mLoadMoreListener;
+    /**
+     * 是否正在加载更多, 加载完成前不会重复触发
+     */
+    private boolean mIsLoadingMore = false;
+    /**
+     * TargetView 距离底部小于这个距离时触发加载更多, 小于 0 表示使用 TargetView 的高度(提前一屏)
+     */
+    private int mLoadMorePrefetchDistance = -1;
+    /**
+     * 是否允许在底部继续上拉触发加载更多
+     */
+    private boolean mEnablePullToLoadMore = false;
+    /**
+     * 在底部上拉超过这个距离时触发加载更多
+     */
+    private int mLoadMorePullDistance;
+    private int mLoadMorePulledDistance = 0;
+    private final ViewTreeObserver.OnScrollChangedListener mLoadMoreScrollChangedListener =
+            new ViewTreeObserver.OnScrollChangedListener() {
+                @Override
+                public void onScrollChanged() {
+                    checkLoadMore();
+                }
+            };
     /**
      * RefreshView的初始offset
      */
@@ -131,7 +160,7 @@ public class QMUIPullRefreshLayout extends ViewGroup implements NestedScrollingP
     private VelocityTracker mVelocityTracker;
     private float mMaxVelocity;
     private float mMiniVelocity;
-    private Scroller mScroller;
+    private QMUIPullRefreshMotion mMotion;
     private int mScrollFlag = 0;
     private boolean mNestScrollDurationRefreshing = false;
     private Runnable mPendingRefreshDirectlyAction = null;
@@ -155,9 +184,14 @@ public class QMUIPullRefreshLayout extends ViewGroup implements NestedScrollingP
         mMiniVelocity = vc.getScaledMinimumFlingVelocity();
         mSystemTouchSlop = vc.getScaledTouchSlop();
         mTouchSlop = QMUIDisplayHelper.px2dp(context, mSystemTouchSlop); //系统的值是8dp,如何配置？
+        mLoadMorePullDistance = QMUIDisplayHelper.dp2px(context, 48);
 
-        mScroller = new Scroller(getContext());
-        mScroller.setFriction(getScrollerFriction());
+        mMotion = new QMUIPullRefreshMotion(new QMUIPullRefreshMotion.Callback() {
+            @Override
+            public void onMotionFrame(boolean moving) {
+                QMUIPullRefreshLayout.this.onMotionFrame(moving);
+            }
+        }, getScrollerFriction());
 
         addRefreshView();
         ViewCompat.setChildrenDrawingOrderEnabled(this, true);
@@ -217,10 +251,97 @@ public class QMUIPullRefreshLayout extends ViewGroup implements NestedScrollingP
         }
     }
 
+    /**
+     * @return view 距离底部还可以滚动的距离, 无法准确计算时, 能滚动则返回 Integer.MAX_VALUE, 否则返回 0
+     */
+    public static int defaultScrollDownDistance(View view) {
+        if (view == null) {
+            return 0;
+        }
+        if (view instanceof QMUIContinuousNestedScrollLayout) {
+            QMUIContinuousNestedScrollLayout layout = (QMUIContinuousNestedScrollLayout) view;
+            return Math.max(0, layout.getScrollRange() - layout.getCurrentScroll());
+        }
+
+        if (view instanceof QMUIStickySectionLayout) {
+            QMUIStickySectionLayout layout = (QMUIStickySectionLayout) view;
+            return defaultScrollDownDistance(layout.getRecyclerView());
+        }
+
+        if (view instanceof RecyclerView) {
+            RecyclerView recyclerView = (RecyclerView) view;
+            return Math.max(0, recyclerView.computeVerticalScrollRange()
+                    - recyclerView.computeVerticalScrollOffset()
+                    - recyclerView.computeVerticalScrollExtent());
+        }
+
+        if (view instanceof AbsListView) {
+            AbsListView listView = (AbsListView) view;
+            int childCount = listView.getChildCount();
+            if (childCount == 0) {
+                return 0;
+            }
+            View lastChild = listView.getChildAt(childCount - 1);
+            int distance = Math.max(0, lastChild.getBottom() - (listView.getHeight() - listView.getPaddingBottom()));
+            // 未显示的 item 按可见 item 的平均高度估算
+            int remainCount = listView.getCount() - 1 - listView.getLastVisiblePosition();
+            if (remainCount > 0) {
+                distance += remainCount * (lastChild.getBottom() - listView.getChildAt(0).getTop()) / childCount;
+            }
+            return distance;
+        }
+
+        if ((view instanceof ScrollView || view instanceof NestedScrollView)
+                && ((ViewGroup) view).getChildCount() > 0) {
+            View child = ((ViewGroup) view).getChildAt(0);
+            return Math.max(0, child.getBottom() - view.getScrollY() - (view.getHeight() - view.getPaddingBottom()));
+        }
+        return ViewCompat.canScrollVertically(view, 1) ? Integer.MAX_VALUE : 0;
+    }
+
     public void setOnPullListener(OnPullListener listener) {
         mListener = listener;
     }
 
+    /**
+     * 设置加载更多的监听, 为 null 时关闭加载更多(如已经没有更多数据)。
+     * 加载完成后需要调用 {@link #finishLoadMore()}
+     */
+    public void setOnLoadMoreListener(@Nullable OnLoadMoreListener loadMoreListener) {
+        mLoadMoreListener = loadMoreListener;
+        checkLoadMore();
+    }
+
+    /**
+     * 设置 TargetView 距离底部多远时开始加载更多, 让数据在滚动到底部之前返回。
+     * 小于 0 时使用 TargetView 的高度, 即提前一屏加载
+     */
+    public void setLoadMorePrefetchDistance(int loadMorePrefetchDistance) {
+        mLoadMorePrefetchDistance = loadMorePrefetchDistance;
+    }
+
+    /**
+     * 是否允许滚动到底部后继续上拉触发加载更多(如上次加载失败后重试), 依赖 NestScroll 实现
+     */
+    public void setEnablePullToLoadMore(boolean enablePullToLoadMore) {
+        mEnablePullToLoadMore = enablePullToLoadMore;
+    }
+
+    public void setLoadMorePullDistance(int loadMorePullDistance) {
+        mLoadMorePullDistance = loadMorePullDistance;
+    }
+
+    public boolean isLoadingMore() {
+        return mIsLoadingMore;
+    }
+
+    /**
+     * 加载更多完成(不论成功与否)后调用, 之后才能再次触发加载更多
+     */
+    public void finishLoadMore() {
+        mIsLoadingMore = false;
+    }
+
     public void setDisableNestScrollImpl(boolean disableNestScrollImpl) {
         mDisableNestScrollImpl = disableNestScrollImpl;
     }
@@ -235,6 +356,10 @@ public class QMUIPullRefreshLayout extends ViewGroup implements NestedScrollingP
         mChildScrollUpCallback = childScrollUpCallback;
     }
 
+    public void setChildScrollDownCallback(OnChildScrollDownCallback childScrollDownCallback) {
+        mChildScrollDownCallback = childScrollDownCallback;
+    }
+
     protected float getScrollerFriction() {
         return ViewConfiguration.getScrollFriction();
     }
@@ -451,9 +576,8 @@ public class QMUIPullRefreshLayout extends ViewGroup implements NestedScrollingP
             case MotionEvent.ACTION_DOWN:
                 mIsDragging = false;
                 mScrollFlag = 0;
-                if (!mScroller.isFinished()) {
-                    mScroller.abortAnimation();
-                }
+                // 停在当前位置, 之后的拖拽从这里继续
+                mMotion.stop();
                 mActivePointerId = ev.getPointerId(0);
                 break;
 
@@ -569,72 +693,69 @@ public class QMUIPullRefreshLayout extends ViewGroup implements NestedScrollingP
     private void finishPull(int vy) {
         info("finishPull: vy = " + vy + " ; mTargetCurrentOffset = " + mTargetCurrentOffset +
                 " ; mTargetRefreshOffset = " + mTargetRefreshOffset + " ; mTargetInitOffset = " + mTargetInitOffset +
-                " ; mScroller.isFinished() = " + mScroller.isFinished());
+                " ; mMotion.isFinished() = " + mMotion.isFinished());
         int miniVy = vy / 1000; // 向下拖拽时， 速度不能太大
         onFinishPull(miniVy, mRefreshInitOffset, mRefreshEndOffset, mRefreshView.getHeight(),
                 mTargetCurrentOffset, mTargetInitOffset, mTargetRefreshOffset);
         if (mTargetCurrentOffset >= mTargetRefreshOffset) {
             if (miniVy > 0) {
                 mScrollFlag = FLAG_NEED_SCROLL_TO_REFRESH_POSITION | FLAG_NEED_DO_REFRESH;
-                mScroller.fling(0, mTargetCurrentOffset, 0, miniVy,
-                        0, 0, mTargetInitOffset, Integer.MAX_VALUE);
-                invalidate();
+                mMotion.fling(mTargetCurrentOffset, miniVy, mTargetInitOffset, Integer.MAX_VALUE);
+                mMotion.requestFrame();
             } else if (miniVy < 0) {
-                mScroller.fling(0, mTargetCurrentOffset, 0, vy,
-                        0, 0, Integer.MIN_VALUE, Integer.MAX_VALUE);
-                if (mScroller.getFinalY() < mTargetInitOffset) {
+                int finalY = mMotion.fling(mTargetCurrentOffset, vy, Integer.MIN_VALUE, Integer.MAX_VALUE);
+                if (finalY < mTargetInitOffset) {
                     mScrollFlag = FLAG_NEED_DELIVER_VELOCITY;
-                } else if (mScroller.getFinalY() < mTargetRefreshOffset) {
-                    int dy = mTargetInitOffset - mTargetCurrentOffset;
-                    mScroller.startScroll(0, mTargetCurrentOffset, 0, dy);
-                } else if (mScroller.getFinalY() == mTargetRefreshOffset) {
+                } else if (finalY < mTargetRefreshOffset) {
+                    mMotion.springTo(mTargetCurrentOffset, mTargetInitOffset);
+                } else if (finalY == mTargetRefreshOffset) {
                     mScrollFlag = FLAG_NEED_DO_REFRESH;
                 } else {
-                    mScroller.startScroll(0, mTargetCurrentOffset, 0, mTargetRefreshOffset - mTargetCurrentOffset);
+                    mMotion.springTo(mTargetCurrentOffset, mTargetRefreshOffset);
                     mScrollFlag = FLAG_NEED_DO_REFRESH;
                 }
-                invalidate();
+                mMotion.requestFrame();
             } else {
                 if (mTargetCurrentOffset > mTargetRefreshOffset) {
-                    mScroller.startScroll(0, mTargetCurrentOffset, 0, mTargetRefreshOffset - mTargetCurrentOffset);
+                    mMotion.springTo(mTargetCurrentOffset, mTargetRefreshOffset);
                 }
                 mScrollFlag = FLAG_NEED_DO_REFRESH;
-                invalidate();
+                mMotion.requestFrame();
             }
         } else {
             if (miniVy > 0) {
-                mScroller.fling(0, mTargetCurrentOffset, 0, miniVy, 0, 0, mTargetInitOffset, Integer.MAX_VALUE);
-                if (mScroller.getFinalY() > mTargetRefreshOffset) {
+                int finalY = mMotion.fling(mTargetCurrentOffset, miniVy, mTargetInitOffset, Integer.MAX_VALUE);
+                if (finalY > mTargetRefreshOffset) {
                     mScrollFlag = FLAG_NEED_SCROLL_TO_REFRESH_POSITION | FLAG_NEED_DO_REFRESH;
-                } else if (mAutoScrollToRefreshMinOffset >= 0 && mScroller.getFinalY() > mAutoScrollToRefreshMinOffset) {
-                    mScroller.startScroll(0, mTargetCurrentOffset, 0, mTargetRefreshOffset - mTargetCurrentOffset);
+                } else if (mAutoScrollToRefreshMinOffset >= 0 && finalY > mAutoScrollToRefreshMinOffset) {
+                    mMotion.springTo(mTargetCurrentOffset, mTargetRefreshOffset);
                     mScrollFlag = FLAG_NEED_DO_REFRESH;
                 } else {
                     mScrollFlag = FLAG_NEED_SCROLL_TO_INIT_POSITION;
                 }
-                invalidate();
+                mMotion.requestFrame();
             } else if (miniVy < 0) {
                 mScrollFlag = 0;
-                mScroller.fling(0, mTargetCurrentOffset, 0, vy, 0, 0, Integer.MIN_VALUE, Integer.MAX_VALUE);
-                if (mScroller.getFinalY() < mTargetInitOffset) {
+                int finalY = mMotion.fling(mTargetCurrentOffset, vy, Integer.MIN_VALUE, Integer.MAX_VALUE);
+                if (finalY < mTargetInitOffset) {
                     mScrollFlag = FLAG_NEED_DELIVER_VELOCITY;
                 } else {
-                    mScroller.startScroll(0, mTargetCurrentOffset, 0, mTargetInitOffset - mTargetCurrentOffset);
+                    mMotion.springTo(mTargetCurrentOffset, mTargetInitOffset);
                     mScrollFlag = 0;
                 }
-                invalidate();
+                mMotion.requestFrame();
             } else {
                 if (mTargetCurrentOffset == mTargetInitOffset) {
                     return;
                 }
                 if (mAutoScrollToRefreshMinOffset >= 0 && mTargetCurrentOffset >= mAutoScrollToRefreshMinOffset) {
-                    mScroller.startScroll(0, mTargetCurrentOffset, 0, mTargetRefreshOffset - mTargetCurrentOffset);
+                    mMotion.springTo(mTargetCurrentOffset, mTargetRefreshOffset);
                     mScrollFlag = FLAG_NEED_DO_REFRESH;
                 } else {
-                    mScroller.startScroll(0, mTargetCurrentOffset, 0, mTargetInitOffset - mTargetCurrentOffset);
+                    mMotion.springTo(mTargetCurrentOffset, mTargetInitOffset);
                     mScrollFlag = 0;
                 }
-                invalidate();
+                mMotion.requestFrame();
             }
         }
     }
@@ -650,12 +771,34 @@ public class QMUIPullRefreshLayout extends ViewGroup implements NestedScrollingP
         }
     }
 
+    protected void onLoadMore() {
+        if (mIsLoadingMore || mLoadMoreListener == null) {
+            return;
+        }
+        mIsLoadingMore = true;
+        mLoadMorePulledDistance = 0;
+        mLoadMoreListener.onLoadMore();
+    }
+
+    /**
+     * 滚动时检查是否需要预加载, 由 OnScrollChangedListener 驱动, 每帧最多一次
+     */
+    private void checkLoadMore() {
+        if (mLoadMoreListener == null || mIsLoadingMore || mIsRefreshing || !isEnabled() || mTargetView == null) {
+            return;
+        }
+        int prefetchDistance = mLoadMorePrefetchDistance >= 0 ? mLoadMorePrefetchDistance : mTargetView.getHeight();
+        if (getChildScrollDownDistance() <= prefetchDistance) {
+            onLoadMore();
+        }
+    }
+
     public void finishRefresh() {
         mIsRefreshing = false;
         mIRefreshView.stop();
         mScrollFlag = FLAG_NEED_SCROLL_TO_INIT_POSITION;
-        mScroller.forceFinished(true);
-        invalidate();
+        mMotion.stop();
+        mMotion.requestFrame();
     }
 
     public void setToRefreshDirectly() {
@@ -670,7 +813,7 @@ public class QMUIPullRefreshLayout extends ViewGroup implements NestedScrollingP
                     setTargetViewToTop(mTargetView);
                     onRefresh();
                     mScrollFlag = FLAG_NEED_SCROLL_TO_REFRESH_POSITION;
-                    invalidate();
+                    mMotion.requestFrame();
                 }
             }, delay);
 
@@ -720,7 +863,7 @@ public class QMUIPullRefreshLayout extends ViewGroup implements NestedScrollingP
         moveTargetViewTo(mTargetInitOffset, false);
         mIRefreshView.stop();
         mIsRefreshing = false;
-        mScroller.forceFinished(true);
+        mMotion.stop();
         mScrollFlag = 0;
     }
 
@@ -743,9 +886,16 @@ public class QMUIPullRefreshLayout extends ViewGroup implements NestedScrollingP
         return mIsDragging;
     }
 
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        getViewTreeObserver().addOnScrollChangedListener(mLoadMoreScrollChangedListener);
+    }
+
     @Override
     protected void onDetachedFromWindow() {
         super.onDetachedFromWindow();
+        getViewTreeObserver().removeOnScrollChangedListener(mLoadMoreScrollChangedListener);
         reset();
     }
 
@@ -765,6 +915,13 @@ public class QMUIPullRefreshLayout extends ViewGroup implements NestedScrollingP
         return defaultCanScrollUp(mTargetView);
     }
 
+    public int getChildScrollDownDistance() {
+        if (mChildScrollDownCallback != null) {
+            return mChildScrollDownCallback.getChildScrollDownDistance(this, mTargetView);
+        }
+        return defaultScrollDownDistance(mTargetView);
+    }
+
     @Override
     public boolean onStartNestedScroll(View child, View target, int nestedScrollAxes) {
         info("onStartNestedScroll: nestedScrollAxes = " + nestedScrollAxes);
@@ -774,7 +931,8 @@ public class QMUIPullRefreshLayout extends ViewGroup implements NestedScrollingP
     @Override
     public void onNestedScrollAccepted(View child, View target, int axes) {
         info("onNestedScrollAccepted: axes = " + axes);
-        mScroller.abortAnimation();
+        mMotion.stop();
+        mLoadMorePulledDistance = 0;
         mNestedScrollingParentHelper.onNestedScrollAccepted(child, target, axes);
         mNestedScrollInProgress = true;
         mIsDragging = true;
@@ -799,8 +957,15 @@ public class QMUIPullRefreshLayout extends ViewGroup implements NestedScrollingP
     public void onNestedScroll(View target, int dxConsumed, int dyConsumed, int dxUnconsumed, int dyUnconsumed) {
         info("onNestedScroll: dxConsumed = " + dxConsumed + " ; dyConsumed = " + dyConsumed +
                 " ; dxUnconsumed = " + dxUnconsumed + " ; dyUnconsumed = " + dyUnconsumed);
-        if (dyUnconsumed < 0 && !canChildScrollUp() && mScroller.isFinished() && mScrollFlag == 0) {
+        if (dyUnconsumed < 0 && !canChildScrollUp() && mMotion.isFinished() && mScrollFlag == 0) {
             moveTargetView(-dyUnconsumed, true);
+        } else if (dyUnconsumed > 0 && mEnablePullToLoadMore && mTargetCurrentOffset == mTargetInitOffset
+                && !mIsLoadingMore && !mIsRefreshing && getChildScrollDownDistance() == 0) {
+            // 已经到底部, 继续上拉
+            mLoadMorePulledDistance += dyUnconsumed;
+            if (mLoadMorePulledDistance >= mLoadMorePullDistance) {
+                onLoadMore();
+            }
         }
     }
 
@@ -863,8 +1028,21 @@ public class QMUIPullRefreshLayout extends ViewGroup implements NestedScrollingP
         int offset = 0;
         if (target != mTargetCurrentOffset || calculateAnyWay) {
             offset = target - mTargetCurrentOffset;
+            if (mRefreshOffsetCalculator == null) {
+                mRefreshOffsetCalculator = new QMUIDefaultRefreshOffsetCalculator();
+            }
+            int newRefreshOffset = mRefreshOffsetCalculator.calculateRefreshOffset(mRefreshInitOffset, mRefreshEndOffset, mRefreshView.getHeight(),
+                    target, mTargetInitOffset, mTargetRefreshOffset);
+            int refreshOffset = newRefreshOffset - mRefreshCurrentOffset;
+
+            // 先算出两个 View 的位置再一起移动, 回调中拿到的两个位置总是同一帧的
             ViewCompat.offsetTopAndBottom(mTargetView, offset);
             mTargetCurrentOffset = target;
+            if (refreshOffset != 0) {
+                ViewCompat.offsetTopAndBottom(mRefreshView, refreshOffset);
+                mRefreshCurrentOffset = newRefreshOffset;
+            }
+
             int total = mTargetRefreshOffset - mTargetInitOffset;
             if (isDragging) {
                 mIRefreshView.onPull(Math.min(mTargetCurrentOffset - mTargetInitOffset, total), total,
@@ -874,15 +1052,7 @@ public class QMUIPullRefreshLayout extends ViewGroup implements NestedScrollingP
             if (mListener != null) {
                 mListener.onMoveTarget(mTargetCurrentOffset);
             }
-
-            if (mRefreshOffsetCalculator == null) {
-                mRefreshOffsetCalculator = new QMUIDefaultRefreshOffsetCalculator();
-            }
-            int newRefreshOffset = mRefreshOffsetCalculator.calculateRefreshOffset(mRefreshInitOffset, mRefreshEndOffset, mRefreshView.getHeight(),
-                    mTargetCurrentOffset, mTargetInitOffset, mTargetRefreshOffset);
-            if (newRefreshOffset != mRefreshCurrentOffset) {
-                ViewCompat.offsetTopAndBottom(mRefreshView, newRefreshOffset - mRefreshCurrentOffset);
-                mRefreshCurrentOffset = newRefreshOffset;
+            if (refreshOffset != 0) {
                 onMoveRefreshView(mRefreshCurrentOffset);
                 if (mListener != null) {
                     mListener.onMoveRefreshView(mRefreshCurrentOffset);
@@ -957,30 +1127,33 @@ public class QMUIPullRefreshLayout extends ViewGroup implements NestedScrollingP
         mScrollFlag = mScrollFlag & ~flag;
     }
 
-    @Override
-    public void computeScroll() {
-        if (mScroller.computeScrollOffset()) {
-            int offsetY = mScroller.getCurrY();
+    /**
+     * 由 {@link QMUIPullRefreshMotion} 每帧回调: 动画进行中时移动 TargetView,
+     * 动画结束后每帧处理一个 mScrollFlag 中的后续动作
+     */
+    private void onMotionFrame(boolean moving) {
+        if (moving) {
+            int offsetY = mMotion.getCurrentPosition();
             moveTargetViewTo(offsetY, false);
             if (offsetY <= 0 && hasFlag(FLAG_NEED_DELIVER_VELOCITY)) {
                 deliverVelocity();
-                mScroller.forceFinished(true);
+                mMotion.stop();
             }
-            invalidate();
+            mMotion.requestFrame();
         } else if (hasFlag(FLAG_NEED_SCROLL_TO_INIT_POSITION)) {
             removeFlag(FLAG_NEED_SCROLL_TO_INIT_POSITION);
             if (mTargetCurrentOffset != mTargetInitOffset) {
-                mScroller.startScroll(0, mTargetCurrentOffset, 0, mTargetInitOffset - mTargetCurrentOffset);
+                mMotion.springTo(mTargetCurrentOffset, mTargetInitOffset);
             }
-            invalidate();
+            mMotion.requestFrame();
         } else if (hasFlag(FLAG_NEED_SCROLL_TO_REFRESH_POSITION)) {
             removeFlag(FLAG_NEED_SCROLL_TO_REFRESH_POSITION);
             if (mTargetCurrentOffset != mTargetRefreshOffset) {
-                mScroller.startScroll(0, mTargetCurrentOffset, 0, mTargetRefreshOffset - mTargetCurrentOffset);
+                mMotion.springTo(mTargetCurrentOffset, mTargetRefreshOffset);
             } else {
                 moveTargetViewTo(mTargetRefreshOffset, false, true);
             }
-            invalidate();
+            mMotion.requestFrame();
         } else if (hasFlag(FLAG_NEED_DO_REFRESH)) {
             removeFlag(FLAG_NEED_DO_REFRESH);
             onRefresh();
@@ -993,13 +1166,14 @@ public class QMUIPullRefreshLayout extends ViewGroup implements NestedScrollingP
     private void deliverVelocity() {
         if (hasFlag(FLAG_NEED_DELIVER_VELOCITY)) {
             removeFlag(FLAG_NEED_DELIVER_VELOCITY);
-            if (mScroller.getCurrVelocity() > mMiniVelocity) {
-                info("deliver velocity: " + mScroller.getCurrVelocity());
+            float velocity = mMotion.getCurrentVelocity();
+            if (velocity > mMiniVelocity) {
+                info("deliver velocity: " + velocity);
                 // if there is a velocity, pass it on
                 if (mTargetView instanceof RecyclerView) {
-                    ((RecyclerView) mTargetView).fling(0, (int) mScroller.getCurrVelocity());
+                    ((RecyclerView) mTargetView).fling(0, (int) velocity);
                 } else if (mTargetView instanceof AbsListView && android.os.Build.VERSION.SDK_INT >= 21) {
-                    ((AbsListView) mTargetView).fling((int) mScroller.getCurrVelocity());
+                    ((AbsListView) mTargetView).fling((int) velocity);
                 }
             }
         }
@@ -1018,7 +1192,7 @@ public class QMUIPullRefreshLayout extends ViewGroup implements NestedScrollingP
             mNestScrollDurationRefreshing = mIsRefreshing || (mScrollFlag & FLAG_NEED_DO_REFRESH) != 0;
         } else if (mNestScrollDurationRefreshing) {
             if (action == MotionEvent.ACTION_MOVE) {
-                if (!mIsRefreshing && mScroller.isFinished() && mScrollFlag == 0) {
+                if (!mIsRefreshing && mMotion.isFinished() && mScrollFlag == 0) {
                     // 这里必须要 dispatch 一次 down 事件，否则不能触发 NestScroll，具体可参考 RecyclerView
                     // down 过程中会触发 onStopNestedScroll，mNestScrollDurationRefreshing 必须在之后
                     // 置为false，否则会触发 finishPull
@@ -1052,6 +1226,17 @@ public class QMUIPullRefreshLayout extends ViewGroup implements NestedScrollingP
         boolean canChildScrollUp(QMUIPullRefreshLayout parent, @Nullable View child);
     }
 
+    public interface OnChildScrollDownCallback {
+        /**
+         * @return child 距离底部还可以滚动的距离, 用于判断是否需要加载更多
+         */
+        int getChildScrollDownDistance(QMUIPullRefreshLayout parent, @Nullable View child);
+    }
+
+    public interface OnLoadMoreListener {
+        void onLoadMore();
+    }
+
     public interface RefreshOffsetCalculator {
 
         /**
@@ -0,0 +1,178 @@
+/*
+ * Tencent is pleased to support the open source community by making QMUI_Android available.
+ *
+ * Copyright (C) 2017-2018 THL A29 Limited, a Tencent company. All rights reserved.
+ *
+ * Licensed under the MIT License (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/MIT
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.qmuiteam.qmui.widget.pullRefreshLayout;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+
+/**
+ * {@link QMUIPullRefreshLayout} 的动画引擎, 由同一个 Choreographer 帧回调驱动:
+ * <ul>
+ * <li>回弹使用弹簧模型, 惯性使用指数衰减模型, 都按帧间隔积分, 与帧率无关(见 {@link QMUIPullRefreshIntegrator})</li>
+ * <li>动画进行中切换目标时沿用当前的位置与速度, 不会跳变</li>
+ * <li>状态都是基本类型, 每帧不分配对象</li>
+ * </ul>
+ * 只能在主线程使用。
+ */
+class QMUIPullRefreshMotion {
+
+    interface Callback {
+        /**
+         * 每帧回调一次
+         *
+         * @param moving 本帧是否有动画在进行(位置可能有更新)
+         */
+        void onMotionFrame(boolean moving);
+    }
+
+    private static final float MAX_FRAME_SECONDS = 0.1f;
+    private static final long FALLBACK_FRAME_DELAY = 16;
+
+    private final Callback mCallback;
+    private final QMUIPullRefreshIntegrator mIntegrator;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private Object mFrameCallback;
+    private boolean mIsFrameScheduled = false;
+    private long mLastFrameTimeNanos;
+
+    private final Runnable mFrameRunnable = new Runnable() {
+        @Override
+        public void run() {
+            doFrame(System.nanoTime());
+        }
+    };
+
+    QMUIPullRefreshMotion(Callback callback, float friction) {
+        mCallback = callback;
+        mIntegrator = new QMUIPullRefreshIntegrator(friction);
+    }
+
+    /**
+     * 从 from 开始惯性滑动, 在 [min, max] 内停止
+     *
+     * @return 滑动的最终位置
+     */
+    int fling(int from, float velocity, int min, int max) {
+        boolean wasIdle = isFinished();
+        int finalPosition = mIntegrator.fling(from, velocity, min, max);
+        start(wasIdle);
+        return finalPosition;
+    }
+
+    /**
+     * 用弹簧动画移动到 target, 正在动画时保留当前速度
+     */
+    void springTo(int from, int target) {
+        boolean wasIdle = isFinished();
+        mIntegrator.springTo(from, target);
+        start(wasIdle);
+    }
+
+    void stop() {
+        mIntegrator.stop();
+        cancelFrame();
+    }
+
+    /**
+     * 没有动画时也回调一次 {@link Callback#onMotionFrame(boolean)}
+     */
+    void requestFrame() {
+        scheduleFrame();
+    }
+
+    boolean isFinished() {
+        return mIntegrator.getMode() == QMUIPullRefreshIntegrator.MODE_IDLE;
+    }
+
+    int getCurrentPosition() {
+        return Math.round(mIntegrator.getPosition());
+    }
+
+    /**
+     * @return 当前速度的绝对值, px/s
+     */
+    float getCurrentVelocity() {
+        return Math.abs(mIntegrator.getVelocity());
+    }
+
+    private void start(boolean wasIdle) {
+        if (wasIdle) {
+            mLastFrameTimeNanos = System.nanoTime();
+        }
+        scheduleFrame();
+    }
+    private void scheduleFrame() {
+        if (mIsFrameScheduled) {
+            return;
+        }
+        mIsFrameScheduled = true;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            postFrameCallback();
+        } else {
+            mHandler.postDelayed(mFrameRunnable, FALLBACK_FRAME_DELAY);
+        }
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private void postFrameCallback() {
+        if (mFrameCallback == null) {
+            mFrameCallback = new Choreographer.FrameCallback() {
+                @Override
+                public void doFrame(long frameTimeNanos) {
+                    QMUIPullRefreshMotion.this.doFrame(frameTimeNanos);
+                }
+            };
+        }
+        Choreographer.getInstance().postFrameCallback((Choreographer.FrameCallback) mFrameCallback);
+    }
+
+    private void cancelFrame() {
+        if (!mIsFrameScheduled) {
+            return;
+        }
+        mIsFrameScheduled = false;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            removeFrameCallback();
+        } else {
+            mHandler.removeCallbacks(mFrameRunnable);
+        }
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private void removeFrameCallback() {
+        if (mFrameCallback != null) {
+            Choreographer.getInstance().removeFrameCallback((Choreographer.FrameCallback) mFrameCallback);
+        }
+    }
+
+    private void doFrame(long frameTimeNanos) {
+        mIsFrameScheduled = false;
+        boolean moving = !isFinished();
+        if (moving) {
+            float dt = (frameTimeNanos - mLastFrameTimeNanos) / 1e9f;
+            mIntegrator.step(Math.max(0, Math.min(dt, MAX_FRAME_SECONDS)));
+        }
+        mLastFrameTimeNanos = frameTimeNanos;
+        mCallback.onMotionFrame(moving);
+        if (!isFinished()) {
+            scheduleFrame();
+        }
+    }
+}
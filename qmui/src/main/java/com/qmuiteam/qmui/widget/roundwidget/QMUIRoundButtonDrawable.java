@@ -18,16 +18,23 @@ package com.qmuiteam.qmui.widget.roundwidget;
 
 import android.content.Context;
 import android.content.res.ColorStateList;
+import android.content.res.Configuration;
+import android.content.res.Resources;
 import android.content.res.TypedArray;
 import android.graphics.Color;
 import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
 import android.graphics.drawable.GradientDrawable;
 import android.os.Build;
+import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.util.AttributeSet;
 
 import com.qmuiteam.qmui.R;
 
+import java.util.HashMap;
+import java.util.WeakHashMap;
+
 /**
  * 可以方便地生成圆角矩形/圆形 {@link android.graphics.drawable.Drawable}。
  * <p>
@@ -36,9 +43,23 @@ import com.qmuiteam.qmui.R;
  * <li>使用 {@link #setStrokeData(int, ColorStateList)} 设置描边大小、描边颜色。</li>
  * <li>使用 {@link #setIsRadiusAdjustBounds(boolean)} 设置圆角大小是否自动适应为 {@link android.view.View} 的高度的一半, 默认为 true。</li>
  * </ul>
+ * <p>
+ * 通过 {@link #getConstantState()} 可以拿到不可变的配置(颜色、描边、圆角), 多个 View 之间共享同一份配置,
+ * 每个 View 只持有自己的 bounds 与当前状态。
+ * </p>
+ * <p>
+ * {@link #fromAttributeSet(Context, AttributeSet, int)} 会按 (defStyleAttr, style, Theme, Configuration) 缓存
+ * 解析得到的配置, 同一个样式的按钮只解析一次属性, 之后都从共享的配置创建。xml 中直接写了
+ * QMUIRoundButton 属性的 View 不走缓存。
+ * </p>
  */
 public class QMUIRoundButtonDrawable extends GradientDrawable {
 
+    /**
+     * 可能在异步 inflate 的子线程中访问, 需要加锁
+     */
+    private static final WeakHashMap<Resources.Theme, StyleCache> sStyleCaches = new WeakHashMap<>();
+
     /**
      * 圆角大小是否自适应为 View 的高度的一般
      */
@@ -46,15 +67,41 @@ public class QMUIRoundButtonDrawable extends GradientDrawable {
     private ColorStateList mFillColors;
     private int mStrokeWidth = 0;
     private ColorStateList mStrokeColors;
+    private float mRadius = 0;
+    private float[] mRadii;
+    /**
+     * 当前配置对应的 ConstantState, 任何配置变更都会将其置空
+     */
+    private RoundButtonState mState;
+
+    public QMUIRoundButtonDrawable() {
+        super();
+    }
+
+    private QMUIRoundButtonDrawable(@NonNull RoundButtonState state) {
+        super();
+        setBgData(state.mFillColors);
+        setStrokeData(state.mStrokeWidth, state.mStrokeColors);
+        if (state.mRadii != null) {
+            setCornerRadii(state.mRadii);
+        } else {
+            setCornerRadius(state.mRadius);
+        }
+        setIsRadiusAdjustBounds(state.mRadiusAdjustBounds);
+        setChangingConfigurations(state.mChangingConfigurations);
+        // 配置完全来自 state, 可以直接复用, 无需再生成
+        mState = state;
+    }
 
     /**
      * 设置按钮的背景色(只支持纯色,不支持 Bitmap 或 Drawable)
      */
     public void setBgData(@Nullable ColorStateList colors) {
+        mFillColors = colors;
+        mState = null;
         if (hasNativeStateListAPI()) {
             super.setColor(colors);
         } else {
-            mFillColors = colors;
             final int currentColor;
             if (colors == null) {
                 currentColor = Color.TRANSPARENT;
@@ -69,11 +116,12 @@ public class QMUIRoundButtonDrawable extends GradientDrawable {
      * 设置按钮的描边粗细和颜色
      */
     public void setStrokeData(int width, @Nullable ColorStateList colors) {
+        mStrokeWidth = width;
+        mStrokeColors = colors;
+        mState = null;
         if (hasNativeStateListAPI()) {
             super.setStroke(width, colors);
         } else {
-            mStrokeWidth = width;
-            mStrokeColors = colors;
             final int currentColor;
             if (colors == null) {
                 currentColor = Color.TRANSPARENT;
@@ -93,11 +141,30 @@ public class QMUIRoundButtonDrawable extends GradientDrawable {
      */
     public void setIsRadiusAdjustBounds(boolean isRadiusAdjustBounds) {
         mRadiusAdjustBounds = isRadiusAdjustBounds;
+        mState = null;
+    }
+
+    @Override
+    public void setCornerRadius(float radius) {
+        super.setCornerRadius(radius);
+        mRadius = radius;
+        mRadii = null;
+        mState = null;
+    }
+
+    @Override
+    public void setCornerRadii(@Nullable float[] radii) {
+        super.setCornerRadii(radii);
+        mRadii = radii;
+        mState = null;
     }
 
     @Override
     protected boolean onStateChange(int[] stateSet) {
         boolean superRet = super.onStateChange(stateSet);
+        if (hasNativeStateListAPI()) {
+            return superRet;
+        }
         if (mFillColors != null) {
             int color = mFillColors.getColorForState(stateSet, 0);
             setColor(color);
@@ -122,12 +189,71 @@ public class QMUIRoundButtonDrawable extends GradientDrawable {
     protected void onBoundsChange(Rect r) {
         super.onBoundsChange(r);
         if (mRadiusAdjustBounds) {
-            // 修改圆角为短边的一半
-            setCornerRadius(Math.min(r.width(), r.height()) / 2);
+            // 修改圆角为短边的一半, 这是每个 View 自己的状态, 不记录到共享配置中
+            super.setCornerRadius(Math.min(r.width(), r.height()) / 2);
         }
     }
 
+    @Override
+    public ConstantState getConstantState() {
+        if (mState == null) {
+            mState = new RoundButtonState(this);
+        }
+        return mState;
+    }
+
+    /**
+     * 从 xml 属性生成 drawable, 相同样式的 drawable 共享同一份 {@link RoundButtonState}
+     */
     public static QMUIRoundButtonDrawable fromAttributeSet(Context context, AttributeSet attrs, int defStyleAttr) {
+        if (hasInlineAttrs(attrs)) {
+            return parseAttributeSet(context, attrs, defStyleAttr);
+        }
+        Resources.Theme theme = context.getTheme();
+        Configuration configuration = context.getResources().getConfiguration();
+        int styleRes = attrs == null ? 0 : attrs.getStyleAttribute();
+        long key = ((long) defStyleAttr << 32) | (styleRes & 0xffffffffL);
+        RoundButtonState state;
+        synchronized (sStyleCaches) {
+            StyleCache cache = sStyleCaches.get(theme);
+            state = cache == null || !cache.configuration.equals(configuration) ? null : cache.states.get(key);
+        }
+        if (state != null) {
+            return new QMUIRoundButtonDrawable(state);
+        }
+        QMUIRoundButtonDrawable bg = parseAttributeSet(context, attrs, defStyleAttr);
+        state = (RoundButtonState) bg.getConstantState();
+        synchronized (sStyleCaches) {
+            StyleCache cache = sStyleCaches.get(theme);
+            if (cache == null || !cache.configuration.equals(configuration)) {
+                // Configuration 变化后(如 configChanges 中处理了夜间模式)同一个 Theme 解析出的值可能不同
+                cache = new StyleCache(configuration);
+                sStyleCaches.put(theme, cache);
+            }
+            cache.states.put(key, state);
+        }
+        return bg;
+    }
+
+    /**
+     * 是否在 xml 中直接写了 QMUIRoundButton 的属性, 这时配置与 View 相关, 不能共享
+     */
+    private static boolean hasInlineAttrs(@Nullable AttributeSet attrs) {
+        if (attrs == null) {
+            return false;
+        }
+        for (int i = 0; i < attrs.getAttributeCount(); i++) {
+            int nameRes = attrs.getAttributeNameResource(i);
+            for (int attr : R.styleable.QMUIRoundButton) {
+                if (attr == nameRes) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    static QMUIRoundButtonDrawable parseAttributeSet(Context context, AttributeSet attrs, int defStyleAttr) {
         TypedArray typedArray = context.obtainStyledAttributes(attrs, R.styleable.QMUIRoundButton, defStyleAttr, 0);
         ColorStateList colorBg = typedArray.getColorStateList(R.styleable.QMUIRoundButton_qmui_backgroundColor);
         ColorStateList colorBorder = typedArray.getColorStateList(R.styleable.QMUIRoundButton_qmui_borderColor);
@@ -162,4 +288,55 @@ public class QMUIRoundButtonDrawable extends GradientDrawable {
         return bg;
     }
 
+    /**
+     * 同一个 Theme 下按 (defStyleAttr, style) 缓存的配置, Theme 被回收时整体释放
+     */
+    private static class StyleCache {
+        final Configuration configuration;
+        final HashMap<Long, RoundButtonState> states = new HashMap<>();
+
+        StyleCache(Configuration configuration) {
+            this.configuration = new Configuration(configuration);
+        }
+    }
+
+    /**
+     * 不可变的共享配置, 多个 {@link QMUIRoundButtonDrawable} 可以共用同一个实例
+     */
+    static class RoundButtonState extends ConstantState {
+        private final ColorStateList mFillColors;
+        private final int mStrokeWidth;
+        private final ColorStateList mStrokeColors;
+        private final float mRadius;
+        private final float[] mRadii;
+        private final boolean mRadiusAdjustBounds;
+        private final int mChangingConfigurations;
+
+        RoundButtonState(QMUIRoundButtonDrawable drawable) {
+            mFillColors = drawable.mFillColors;
+            mStrokeWidth = drawable.mStrokeWidth;
+            mStrokeColors = drawable.mStrokeColors;
+            mRadius = drawable.mRadius;
+            mRadii = drawable.mRadii == null ? null : drawable.mRadii.clone();
+            mRadiusAdjustBounds = drawable.mRadiusAdjustBounds;
+            mChangingConfigurations = drawable.getChangingConfigurations();
+        }
+
+        @NonNull
+        @Override
+        public Drawable newDrawable() {
+            return new QMUIRoundButtonDrawable(this);
+        }
+
+        @NonNull
+        @Override
+        public Drawable newDrawable(@Nullable Resources res) {
+            return new QMUIRoundButtonDrawable(this);
+        }
+
+        @Override
+        public int getChangingConfigurations() {
+            return mChangingConfigurations;
+        }
+    }
 }
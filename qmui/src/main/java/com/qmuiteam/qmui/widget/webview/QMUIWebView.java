@@ -55,6 +55,7 @@ public class QMUIWebView extends WebView implements IWindowInsetLayout {
     private Callback mCallback;
     private List<OnScrollChangeListener> mOnScrollChangeListeners = new ArrayList<>();
     private QMUIWindowInsetHelper mWindowInsetHelper;
+    private QMUIWebViewJsInjector mJsInjector;
 
 
     public QMUIWebView(Context context) {
@@ -129,7 +130,7 @@ public class QMUIWebView extends WebView implements IWindowInsetLayout {
             mNeedDispatchSafeAreaInset = needDispatchSafeAreaInset;
             if (ViewCompat.isAttachedToWindow(this)) {
                 if (needDispatchSafeAreaInset) {
-                    ViewCompat.requestApplyInsets(this);
+                    QMUIWindowInsetHelper.requestApplyInsets(this);
                 } else {
                     // clear insets
                     setStyleDisplayCutoutSafeArea(new Rect());
@@ -138,6 +139,16 @@ public class QMUIWebView extends WebView implements IWindowInsetLayout {
         }
     }
 
+    /**
+     * 注入 JS 请使用这里返回的实例, 同一帧的注入会合并执行
+     */
+    public QMUIWebViewJsInjector getJsInjector() {
+        if (mJsInjector == null) {
+            mJsInjector = new QMUIWebViewJsInjector(this);
+        }
+        return mJsInjector;
+    }
+
     public boolean isNeedDispatchSafeAreaInset() {
         return mNeedDispatchSafeAreaInset;
     }
@@ -208,6 +219,26 @@ public class QMUIWebView extends WebView implements IWindowInsetLayout {
         return 0;
     }
 
+    /**
+     * 放回 {@link QMUIWebViewPool} 之前重置状态
+     */
+    void resetForReuse() {
+        stopLoading();
+        setWebChromeClient(null);
+        setWebViewClient(null);
+        setDownloadListener(null);
+        setOnTouchListener(null);
+        setOnLongClickListener(null);
+        mOnScrollChangeListeners.clear();
+        mCallback = null;
+        mNeedDispatchSafeAreaInset = false;
+        mSafeAreaRectCache = null;
+        if (mJsInjector != null) {
+            mJsInjector.reset();
+        }
+        scrollTo(0, 0);
+    }
+
     @Override
     public void destroy() {
         mAwContents = null;
@@ -275,7 +306,7 @@ public class QMUIWebView extends WebView implements IWindowInsetLayout {
     @Override
     protected void onAttachedToWindow() {
         super.onAttachedToWindow();
-        ViewCompat.requestApplyInsets(this);
+        QMUIWindowInsetHelper.requestApplyInsets(this);
     }
 
     private Object getAwContentsFieldValueInProvider(Object provider) throws IllegalAccessException, NoSuchFieldException {
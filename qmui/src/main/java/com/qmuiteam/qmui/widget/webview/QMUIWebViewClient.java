@@ -53,6 +53,9 @@ public class QMUIWebViewClient extends WebViewClient {
     @Override
     public void onPageStarted(WebView view, String url, @Nullable Bitmap favicon) {
         mIsPageFinished = false;
+        if (view instanceof QMUIWebView) {
+            ((QMUIWebView) view).getJsInjector().onPageStarted();
+        }
         super.onPageStarted(view, url, favicon);
     }
 
@@ -62,7 +65,12 @@ public class QMUIWebViewClient extends WebViewClient {
         super.onPageFinished(view, url);
         mIsPageFinished = true;
         if (mDisableVideoFullscreenBtnAlways) {
-            runJsCode(view, getJsCodeForDisableVideoFullscreenBtn(), null);
+            if (view instanceof QMUIWebView) {
+                ((QMUIWebView) view).getJsInjector().setValue(
+                        QMUIWebViewJsInjector.SLOT_DISABLE_VIDEO_FULLSCREEN_BUTTON, 1);
+            } else {
+                runJsCode(view, getJsCodeForDisableVideoFullscreenBtn(), null);
+            }
         }
         if (mNeedDispatchSafeAreaInset && view instanceof QMUIWebView) {
             dispatchFullscreenRequestAction((QMUIWebView) view);
@@ -80,28 +88,17 @@ public class QMUIWebViewClient extends WebViewClient {
                 "})()";
     }
 
-    private String getJsCodeForFullscreenHtml() {
-        return "(function(){\n" +
-                "   document.body.addEventListener('keydown', function(e){\n" +
-                "        if(e.keyCode == " + JS_FAKE_KEY_CODE_EVENT + "){\n" +
-                "             var html = document.documentElement;\n" +
-                "             var requestFullscreen = html.requestFullscreen || html.webkitRequestFullscreen;\n" +
-                "             requestFullscreen.call(html);\n" +
-                "        }\n" +
-                "    })\n" +
-                "})()";
-    }
-
     private void dispatchFullscreenRequestAction(final QMUIWebView webView) {
         boolean sureNotSupportModifyCssEnv = webView.isNotSupportChangeCssEnv();
         if (sureNotSupportModifyCssEnv) {
             return;
         }
 
-        if (!mDisableVideoFullscreenBtnAlways) {
-            runJsCode(webView, getJsCodeForDisableVideoFullscreenBtn(), null);
-        }
-        runJsCode(webView, getJsCodeForFullscreenHtml(), new Runnable() {
+        // 脚本已经注入到当前页面时不会重复执行
+        QMUIWebViewJsInjector jsInjector = webView.getJsInjector();
+        jsInjector.setValue(QMUIWebViewJsInjector.SLOT_DISABLE_VIDEO_FULLSCREEN_BUTTON, 1);
+        jsInjector.setValue(QMUIWebViewJsInjector.SLOT_FULLSCREEN_KEY_LISTENER, 1);
+        jsInjector.runAfterFlush(new Runnable() {
             @Override
             public void run() {
                 dispatchFullscreenRequestEvent(webView);
@@ -0,0 +1,228 @@
+/*
+ * Tencent is pleased to support the open source community by making QMUI_Android available.
+ *
+ * Copyright (C) 2017-2018 THL A29 Limited, a Tencent company. All rights reserved.
+ *
+ * Licensed under the MIT License (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/MIT
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.qmuiteam.qmui.widget.webview;
+
+import android.os.Build;
+import android.support.annotation.NonNull;
+import android.support.v4.view.ViewCompat;
+import android.webkit.ValueCallback;
+import android.webkit.WebView;
+
+import java.util.ArrayList;
+
+/**
+ * 向网页注入 JS 的统一入口, 每个 {@link QMUIWebView} 一个实例。
+ * <p>
+ * 每个页面只注入一次运行时脚本(定义 window.__qmui), 之后只发送 [slot, value, slot, value...] 形式的数字更新,
+ * 同一帧内的更新合并为一次 evaluateJavascript, 值没有变化的更新会被跳过。
+ * 页面切换由 {@link QMUIWebViewClient#onPageStarted} 通知, 没有使用 QMUIWebViewClient 时,
+ * 也会根据执行结果发现运行时脚本丢失并重新注入。
+ * </p>
+ * <p>
+ * 所有方法都需要在主线程调用。
+ * </p>
+ */
+public class QMUIWebViewJsInjector {
+
+    /**
+     * 滚动到 value(css px)
+     */
+    public static final int SLOT_SCROLL_Y = 0;
+    /**
+     * value 为 1 时隐藏 video 的全屏按钮
+     */
+    public static final int SLOT_DISABLE_VIDEO_FULLSCREEN_BUTTON = 1;
+    /**
+     * value 为 1 时监听 {@link QMUIWebViewClient#JS_FAKE_KEY_CODE_EVENT} 按键, 收到后让 html 全屏
+     */
+    public static final int SLOT_FULLSCREEN_KEY_LISTENER = 2;
+
+    private static final int SLOT_COUNT = 3;
+    private static final int NO_VALUE = Integer.MIN_VALUE;
+
+    private static final String RUNTIME = "(function(){\n" +
+            "   if(window.__qmui){return;}\n" +
+            "   var installed = {};\n" +
+            "   window.__qmui = {u: function(a){\n" +
+            "       for(var i = 0; i < a.length; i += 2){\n" +
+            "           var s = a[i], v = a[i + 1];\n" +
+            "           if(s == " + SLOT_SCROLL_Y + "){\n" +
+            "               window.scrollTo(0, v);\n" +
+            "           }else if(v == 1 && !installed[s]){\n" +
+            "               installed[s] = true;\n" +
+            "               if(s == " + SLOT_DISABLE_VIDEO_FULLSCREEN_BUTTON + "){\n" +
+            "                   var style = document.createElement('style');\n" +
+            "                   style.type = 'text/css';\n" +
+            "                   style.innerHTML = 'video::-webkit-media-controls-fullscreen-button{display: none !important;}';\n" +
+            "                   document.getElementsByTagName('head')[0].appendChild(style);\n" +
+            "               }else if(s == " + SLOT_FULLSCREEN_KEY_LISTENER + "){\n" +
+            "                   document.body.addEventListener('keydown', function(e){\n" +
+            "                       if(e.keyCode == " + QMUIWebViewClient.JS_FAKE_KEY_CODE_EVENT + "){\n" +
+            "                           var html = document.documentElement;\n" +
+            "                           var requestFullscreen = html.requestFullscreen || html.webkitRequestFullscreen;\n" +
+            "                           requestFullscreen.call(html);\n" +
+            "                       }\n" +
+            "                   });\n" +
+            "               }\n" +
+            "           }\n" +
+            "       }\n" +
+            "   }};\n" +
+            "})();";
+
+    private final WebView mWebView;
+    private final int[] mSentValues = new int[SLOT_COUNT];
+    private final int[] mPendingValues = new int[SLOT_COUNT];
+    private final ArrayList<Runnable> mAfterFlushActions = new ArrayList<>();
+    private final StringBuilder mScriptBuilder = new StringBuilder();
+    private boolean mIsBootstrapped = false;
+    private boolean mIsFlushScheduled = false;
+
+    private final Runnable mFlushAction = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    public QMUIWebViewJsInjector(@NonNull WebView webView) {
+        mWebView = webView;
+        reset();
+    }
+
+    /**
+     * 更新状态类的值, 与已经发送到当前页面的值相同时跳过
+     */
+    public void setValue(int slot, int value) {
+        if (mPendingValues[slot] == NO_VALUE && mSentValues[slot] == value) {
+            return;
+        }
+        mPendingValues[slot] = value;
+        scheduleFlush();
+    }
+
+    /**
+     * 发送一次性的值(如滚动位置), 即使与上次相同也会发送, 同一帧内只保留最后一次
+     */
+    public void post(int slot, int value) {
+        mSentValues[slot] = NO_VALUE;
+        mPendingValues[slot] = value;
+        scheduleFlush();
+    }
+
+    /**
+     * 在当前所有更新执行完后执行, 没有待发送的更新时在下一帧执行
+     */
+    public void runAfterFlush(@NonNull Runnable action) {
+        mAfterFlushActions.add(action);
+        scheduleFlush();
+    }
+
+    /**
+     * 页面开始加载, 之前注入的脚本与状态都失效
+     */
+    public void onPageStarted() {
+        mIsBootstrapped = false;
+        for (int i = 0; i < SLOT_COUNT; i++) {
+            mSentValues[i] = NO_VALUE;
+        }
+    }
+
+    void reset() {
+        onPageStarted();
+        for (int i = 0; i < SLOT_COUNT; i++) {
+            mPendingValues[i] = NO_VALUE;
+        }
+        mAfterFlushActions.clear();
+        mWebView.removeCallbacks(mFlushAction);
+        mIsFlushScheduled = false;
+    }
+
+    private void scheduleFlush() {
+        if (mIsFlushScheduled) {
+            return;
+        }
+        mIsFlushScheduled = true;
+        ViewCompat.postOnAnimation(mWebView, mFlushAction);
+    }
+
+    private void flush() {
+        mIsFlushScheduled = false;
+        final int[] values = new int[SLOT_COUNT];
+        boolean hasUpdate = false;
+        mScriptBuilder.setLength(0);
+        for (int i = 0; i < SLOT_COUNT; i++) {
+            values[i] = mPendingValues[i];
+            if (values[i] == NO_VALUE) {
+                continue;
+            }
+            mPendingValues[i] = NO_VALUE;
+            mSentValues[i] = values[i];
+            mScriptBuilder.append(hasUpdate ? "," : "").append(i).append(',').append(values[i]);
+            hasUpdate = true;
+        }
+        final ArrayList<Runnable> actions = new ArrayList<>(mAfterFlushActions);
+        mAfterFlushActions.clear();
+        if (!hasUpdate) {
+            runActions(actions);
+            return;
+        }
+        String update = "[" + mScriptBuilder.toString() + "]";
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+            String script = mIsBootstrapped ?
+                    "window.__qmui?(__qmui.u(" + update + "),1):0" :
+                    RUNTIME + "__qmui.u(" + update + ");1";
+            mIsBootstrapped = true;
+            mWebView.evaluateJavascript(script, new ValueCallback<String>() {
+                @Override
+                public void onReceiveValue(String value) {
+                    if ("0".equals(value)) {
+                        // 页面已经切换, 运行时脚本丢失, 重新注入后再发送
+                        onPageStarted();
+                        for (int i = 0; i < SLOT_COUNT; i++) {
+                            if (values[i] != NO_VALUE && mPendingValues[i] == NO_VALUE) {
+                                mPendingValues[i] = values[i];
+                            }
+                        }
+                        mAfterFlushActions.addAll(0, actions);
+                        scheduleFlush();
+                        return;
+                    }
+                    runActions(actions);
+                }
+            });
+        } else {
+            // Usually, there is no chance to come here.
+            // 没有执行结果, 无法知道页面是否切换, 每次都带上运行时脚本(脚本本身会判断是否已经注入)
+            mWebView.loadUrl("javascript:" + RUNTIME + "__qmui.u(" + update + ")");
+            mIsBootstrapped = true;
+            if (!actions.isEmpty()) {
+                mWebView.postDelayed(new Runnable() {
+                    @Override
+                    public void run() {
+                        runActions(actions);
+                    }
+                }, 250);
+            }
+        }
+    }
+
+    private static void runActions(ArrayList<Runnable> actions) {
+        for (Runnable action : actions) {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * Tencent is pleased to support the open source community by making QMUI_Android available.
+ *
+ * Copyright (C) 2017-2018 THL A29 Limited, a Tencent company. All rights reserved.
+ *
+ * Licensed under the MIT License (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/MIT
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.qmuiteam.qmui.widget.webview;
+
+import android.app.ActivityManager;
+import android.content.Context;
+import android.content.MutableContextWrapper;
+import android.os.Build;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.support.annotation.MainThread;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.view.ViewGroup;
+
+import java.util.ArrayList;
+
+/**
+ * {@link QMUIWebView} 的复用池。创建 WebView(内核初始化、移除内置的 JS 接口等)是打开页面时最耗时的部分,
+ * 可以在启动后通过 {@link #prepare(Context, int)} 利用主线程空闲时间预先创建。
+ * <p>
+ * 池中的 WebView 使用 {@link MutableContextWrapper} 包装的 Application Context 创建, {@link #acquire(Context)}
+ * 时绑定到当前 Activity, {@link #release(QMUIWebView)} 时重置状态(加载 about:blank、清空历史、移除监听)后放回池中,
+ * 而不是调用 {@link QMUIWebView#destroy()}。池的大小默认按应用的内存级别限制。
+ * </p>
+ * <p>
+ * 所有方法都需要在主线程调用。
+ * </p>
+ */
+public class QMUIWebViewPool {
+
+    private static final String BLANK_URL = "about:blank";
+
+    private static QMUIWebViewPool sInstance;
+
+    public interface WebViewFactory {
+        /**
+         * @param context 一定是 {@link MutableContextWrapper}
+         */
+        QMUIWebView create(Context context);
+    }
+
+    private final ArrayList<QMUIWebView> mPool = new ArrayList<>();
+    private int mMaxSize = -1;
+    private WebViewFactory mFactory = new WebViewFactory() {
+        @Override
+        public QMUIWebView create(Context context) {
+            return new QMUIWebView(context);
+        }
+    };
+
+    @MainThread
+    public static QMUIWebViewPool getInstance() {
+        if (sInstance == null) {
+            sInstance = new QMUIWebViewPool();
+        }
+        return sInstance;
+    }
+
+    private QMUIWebViewPool() {
+    }
+
+    /**
+     * 使用 QMUIWebView 的子类时需要设置, 应在 {@link #prepare(Context, int)} 之前调用
+     */
+    public void setWebViewFactory(@NonNull WebViewFactory factory) {
+        mFactory = factory;
+    }
+
+    /**
+     * 设置池的最大容量, 不设置或者设置为负数时按内存级别决定
+     */
+    public void setMaxSize(int maxSize) {
+        mMaxSize = maxSize < 0 ? -1 : maxSize;
+        if (maxSize < 0) {
+            // 默认容量需要 Context 计算, 在下一次使用池时再决定
+            return;
+        }
+        while (mPool.size() > maxSize) {
+            mPool.remove(mPool.size() - 1).destroy();
+        }
+    }
+
+    public int getMaxSize(Context context) {
+        if (mMaxSize < 0) {
+            mMaxSize = getDefaultMaxSize(context);
+        }
+        return mMaxSize;
+    }
+
+    /**
+     * 在主线程空闲时预先创建 WebView, 每次空闲只创建一个
+     */
+    public void prepare(@NonNull Context context, int count) {
+        final Context appContext = context.getApplicationContext();
+        final int targetCount = Math.min(count, getMaxSize(appContext));
+        if (mPool.size() >= targetCount) {
+            return;
+        }
+        Looper.myQueue().addIdleHandler(new MessageQueue.IdleHandler() {
+            @Override
+            public boolean queueIdle() {
+                if (mPool.size() >= targetCount) {
+                    return false;
+                }
+                mPool.add(mFactory.create(new MutableContextWrapper(appContext)));
+                return mPool.size() < targetCount;
+            }
+        });
+    }
+
+    /**
+     * 取出一个 WebView 并绑定到 context, 池为空时会立即创建
+     *
+     * @param context 通常是 Activity, 网页中的弹窗等需要 Activity 作为 Context
+     */
+    @NonNull
+    public QMUIWebView acquire(@NonNull Context context) {
+        if (mPool.isEmpty()) {
+            return mFactory.create(new MutableContextWrapper(context));
+        }
+        QMUIWebView webView = mPool.remove(mPool.size() - 1);
+        ((MutableContextWrapper) webView.getContext()).setBaseContext(context);
+        // about:blank 已经加载完成, 这时才能清空 release 之前的历史
+        webView.clearHistory();
+        webView.onResume();
+        return webView;
+    }
+
+    /**
+     * 重置 WebView 并放回池中, 池已满或者不是通过池创建的 WebView 会直接 destroy。
+     * 已经在池中的 WebView 重复 release 会被忽略
+     */
+    public void release(@Nullable QMUIWebView webView) {
+        if (webView == null || mPool.contains(webView)) {
+            return;
+        }
+        ViewGroup parent = (ViewGroup) webView.getParent();
+        if (parent != null) {
+            parent.removeView(webView);
+        }
+        Context context = webView.getContext();
+        if (!(context instanceof MutableContextWrapper) || mPool.size() >= getMaxSize(context)) {
+            webView.setWebChromeClient(null);
+            webView.setWebViewClient(null);
+            webView.destroy();
+            return;
+        }
+        webView.resetForReuse();
+        webView.loadUrl(BLANK_URL);
+        webView.clearHistory();
+        webView.onPause();
+        MutableContextWrapper wrapper = (MutableContextWrapper) context;
+        wrapper.setBaseContext(wrapper.getBaseContext().getApplicationContext());
+        mPool.add(webView);
+    }
+
+    public int getPooledCount() {
+        return mPool.size();
+    }
+
+    public void clear() {
+        for (QMUIWebView webView : mPool) {
+            webView.destroy();
+        }
+        mPool.clear();
+    }
+
+    private static int getDefaultMaxSize(Context context) {
+        ActivityManager am = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        if (am == null) {
+            return 1;
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT && am.isLowRamDevice()) {
+            return 0;
+        }
+        int memoryClass = am.getMemoryClass();
+        if (memoryClass >= 256) {
+            return 3;
+        } else if (memoryClass >= 128) {
+            return 2;
+        }
+        return 1;
+    }
+}
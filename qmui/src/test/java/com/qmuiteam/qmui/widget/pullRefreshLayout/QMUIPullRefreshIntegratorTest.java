@@ -0,0 +1,116 @@
+package com.qmuiteam.qmui.widget.pullRefreshLayout;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link QMUIPullRefreshIntegrator} 的本地单元测试
+ */
+public class QMUIPullRefreshIntegratorTest {
+    private static final float FRICTION = 0.015f;
+    private static final float FRAME_60 = 1f / 60;
+    private static final float FRAME_120 = 1f / 120;
+
+    private static int runUntilIdle(QMUIPullRefreshIntegrator integrator, float frame) {
+        int frames = 0;
+        while (integrator.getMode() != QMUIPullRefreshIntegrator.MODE_IDLE) {
+            integrator.step(frame);
+            frames++;
+            assertTrue("motion does not stop", frames < 10000);
+        }
+        return frames;
+    }
+
+    @Test
+    public void spring_sameTrajectoryAt60And120Hz() throws Exception {
+        QMUIPullRefreshIntegrator at60 = new QMUIPullRefreshIntegrator(FRICTION);
+        QMUIPullRefreshIntegrator at120 = new QMUIPullRefreshIntegrator(FRICTION);
+        at60.springTo(0, 300);
+        at120.springTo(0, 300);
+        // 比较同一时刻的位置
+        for (int i = 0; i < 60; i++) {
+            at60.step(FRAME_60);
+            at120.step(FRAME_120);
+            at120.step(FRAME_120);
+            assertEquals("frame " + i, at60.getPosition(), at120.getPosition(), 1f);
+        }
+        runUntilIdle(at60, FRAME_60);
+        runUntilIdle(at120, FRAME_120);
+        assertEquals(300f, at60.getPosition(), 0f);
+        assertEquals(300f, at120.getPosition(), 0f);
+    }
+
+    @Test
+    public void fling_sameTrajectoryAt60And120Hz() throws Exception {
+        QMUIPullRefreshIntegrator at60 = new QMUIPullRefreshIntegrator(FRICTION);
+        QMUIPullRefreshIntegrator at120 = new QMUIPullRefreshIntegrator(FRICTION);
+        at60.fling(0, 2000, -10000, 10000);
+        at120.fling(0, 2000, -10000, 10000);
+        for (int i = 0; i < 30; i++) {
+            at60.step(FRAME_60);
+            at120.step(FRAME_120);
+            at120.step(FRAME_120);
+            assertEquals("frame " + i, at60.getPosition(), at120.getPosition(), 0.5f);
+        }
+    }
+
+    @Test
+    public void fling_stopsAtPredictedEnd() throws Exception {
+        QMUIPullRefreshIntegrator integrator = new QMUIPullRefreshIntegrator(FRICTION);
+        int predicted = integrator.fling(100, 3000, -10000, 10000);
+        assertTrue(predicted > 100);
+        runUntilIdle(integrator, FRAME_60);
+        assertEquals(predicted, integrator.getPosition(), 0f);
+        assertEquals(0f, integrator.getVelocity(), 0f);
+
+        predicted = integrator.fling(predicted, -3000, -10000, 10000);
+        runUntilIdle(integrator, FRAME_120);
+        assertEquals(predicted, integrator.getPosition(), 0f);
+    }
+
+    @Test
+    public void fling_stopsAtBound() throws Exception {
+        QMUIPullRefreshIntegrator integrator = new QMUIPullRefreshIntegrator(FRICTION);
+        int predicted = integrator.fling(0, 3000, 0, 200);
+        assertEquals(200, predicted);
+        runUntilIdle(integrator, FRAME_60);
+        assertEquals(200f, integrator.getPosition(), 0f);
+    }
+
+    @Test
+    public void springTo_retargetKeepsPositionAndVelocity() throws Exception {
+        QMUIPullRefreshIntegrator integrator = new QMUIPullRefreshIntegrator(FRICTION);
+        integrator.springTo(0, 300);
+        for (int i = 0; i < 5; i++) {
+            integrator.step(FRAME_60);
+        }
+        float position = integrator.getPosition();
+        float velocity = integrator.getVelocity();
+        assertTrue(velocity > 0);
+
+        // 视图只能设置整数偏移, 重新设置目标时传入的是取整后的位置
+        integrator.springTo(Math.round(position), 0);
+        assertEquals(position, integrator.getPosition(), 0f);
+        assertEquals(velocity, integrator.getVelocity(), 0f);
+
+        // 下一帧仍然沿原来的方向运动, 位移不超过这一帧按原速度能走的距离
+        integrator.step(FRAME_60);
+        float moved = integrator.getPosition() - position;
+        assertTrue(moved > 0);
+        assertTrue(moved <= velocity * FRAME_60);
+
+        runUntilIdle(integrator, FRAME_60);
+        assertEquals(0f, integrator.getPosition(), 0f);
+    }
+
+    @Test
+    public void springTo_fromIdleStartsAtRest() throws Exception {
+        QMUIPullRefreshIntegrator integrator = new QMUIPullRefreshIntegrator(FRICTION);
+        integrator.fling(0, 3000, 0, 100);
+        runUntilIdle(integrator, FRAME_60);
+        integrator.springTo(100, 0);
+        assertEquals(100f, integrator.getPosition(), 0f);
+        assertEquals(0f, integrator.getVelocity(), 0f);
+    }
+}
@@ -21,6 +21,7 @@ import android.app.Application;
 import android.content.Context;
 
 import com.qmuiteam.qmui.arch.QMUISwipeBackActivityManager;
+import com.qmuiteam.qmui.util.QMUIDeviceHelper;
 import com.qmuiteam.qmuidemo.manager.QDUpgradeManager;
 import com.squareup.leakcanary.LeakCanary;
 
@@ -45,6 +46,8 @@ public class QDApplication extends Application {
         }
         LeakCanary.install(this);
 
+        QMUIDeviceHelper.prepare(this);
+
         QDUpgradeManager.getInstance(this).check();
         QMUISwipeBackActivityManager.init(this);
     }